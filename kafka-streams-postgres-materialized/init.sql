@@ -24,38 +24,160 @@ CREATE TABLE IF NOT EXISTS user_view (
 );
 
 -- Create indexes for better query performance
-CREATE INDEX IF NOT EXISTS idx_user_view_department ON user_view(department);
+-- (department, user_id) serves both department filters and keyset pages within a department
+DROP INDEX IF EXISTS idx_user_view_department;
+CREATE INDEX IF NOT EXISTS idx_user_view_department_user_id ON user_view(department, user_id);
 CREATE INDEX IF NOT EXISTS idx_user_view_status ON user_view(status);
 CREATE INDEX IF NOT EXISTS idx_user_view_name ON user_view(name);
+-- Substring search on the name with the postgres read source (LIKE '%...%' cannot use a btree)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_user_view_name_trgm ON user_view USING gin (lower(name) gin_trgm_ops);
 CREATE INDEX IF NOT EXISTS idx_user_view_email ON user_view(email);
 CREATE INDEX IF NOT EXISTS idx_user_view_last_processed ON user_view(last_processed_at);
 
--- Create materialized view for department statistics
-CREATE MATERIALIZED VIEW IF NOT EXISTS department_stats AS
-SELECT 
-    department,
-    COUNT(*) as user_count,
-    COUNT(CASE WHEN status = 'ACTIVE' THEN 1 END) as active_users,
-    COUNT(CASE WHEN status = 'INACTIVE' THEN 1 END) as inactive_users,
-    MAX(last_processed_at) as last_updated
-FROM user_view
-GROUP BY department;
-
--- Create index on materialized view
-CREATE UNIQUE INDEX IF NOT EXISTS idx_department_stats_dept ON department_stats(department);
-
--- Function to refresh materialized view
-CREATE OR REPLACE FUNCTION refresh_department_stats()
+-- Version of each user's latest delete. user_view rows are deleted outright, so upserts check this
+-- instead, and an update that is retried after the delete that followed it stays deleted.
+-- One small row per deleted user; a user id is never reused.
+CREATE TABLE IF NOT EXISTS user_view_tombstones (
+    user_id BIGINT PRIMARY KEY,
+    version BIGINT NOT NULL,
+    deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Offsets of the next user-events record per partition for user-view.sink.mode=exactly-once,
+-- committed in the same transaction as the user_view changes of the records before it
+CREATE TABLE IF NOT EXISTS user_view_offsets (
+    consumer_group VARCHAR(255) NOT NULL,
+    topic VARCHAR(255) NOT NULL,
+    partition INT NOT NULL,
+    next_offset BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (consumer_group, topic, partition)
+);
+
+-- Department statistics, maintained incrementally from user_view changes.
+-- Older databases created department_stats as a materialized view that was fully
+-- refreshed after every statement on user_view; replace it with a plain table.
+DO
+$do$
+BEGIN
+    IF EXISTS (SELECT FROM pg_matviews WHERE matviewname = 'department_stats') THEN
+        DROP TRIGGER IF EXISTS trigger_refresh_department_stats ON user_view;
+        DROP MATERIALIZED VIEW department_stats;
+    END IF;
+END
+$do$;
+
+DROP FUNCTION IF EXISTS refresh_department_stats();
+
+CREATE TABLE IF NOT EXISTS department_stats (
+    department VARCHAR(255),
+    user_count BIGINT NOT NULL DEFAULT 0,
+    active_users BIGINT NOT NULL DEFAULT 0,
+    inactive_users BIGINT NOT NULL DEFAULT 0,
+    last_updated TIMESTAMP
+);
+
+-- NULL departments are grouped together, as GROUP BY did in the materialized view
+CREATE UNIQUE INDEX IF NOT EXISTS idx_department_stats_dept ON department_stats(department) NULLS NOT DISTINCT;
+
+-- Full recomputation, used to backfill the table and after bulk rebuilds of user_view
+CREATE OR REPLACE FUNCTION rebuild_department_stats()
+RETURNS void AS $$
+BEGIN
+    DELETE FROM department_stats;
+    INSERT INTO department_stats (department, user_count, active_users, inactive_users, last_updated)
+    SELECT
+        department,
+        COUNT(*),
+        COUNT(*) FILTER (WHERE status = 'ACTIVE'),
+        COUNT(*) FILTER (WHERE status = 'INACTIVE'),
+        MAX(last_processed_at)
+    FROM user_view
+    GROUP BY department;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Applies the per-department delta of one statement on user_view, using its transition tables.
+-- Cost is proportional to the rows the statement touched, not to the size of user_view.
+-- last_updated is the latest last_processed_at written, or the delete time for deletes.
+CREATE OR REPLACE FUNCTION apply_department_stats_delta()
 RETURNS TRIGGER AS $$
 BEGIN
-            REFRESH MATERIALIZED VIEW CONCURRENTLY department_stats;
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO department_stats AS ds (department, user_count, active_users, inactive_users, last_updated)
+        SELECT department, COUNT(*), COUNT(*) FILTER (WHERE status = 'ACTIVE'),
+               COUNT(*) FILTER (WHERE status = 'INACTIVE'), MAX(last_processed_at)
+        FROM new_rows
+        GROUP BY department
+        ON CONFLICT (department) DO UPDATE SET
+            user_count = ds.user_count + EXCLUDED.user_count,
+            active_users = ds.active_users + EXCLUDED.active_users,
+            inactive_users = ds.inactive_users + EXCLUDED.inactive_users,
+            last_updated = GREATEST(ds.last_updated, EXCLUDED.last_updated);
+    ELSIF TG_OP = 'UPDATE' THEN
+        INSERT INTO department_stats AS ds (department, user_count, active_users, inactive_users, last_updated)
+        SELECT department, SUM(n), SUM(active), SUM(inactive), MAX(processed_at)
+        FROM (
+            SELECT department, 1 AS n, (status = 'ACTIVE')::int AS active,
+                   (status = 'INACTIVE')::int AS inactive, last_processed_at AS processed_at
+            FROM new_rows
+            UNION ALL
+            SELECT department, -1, -(status = 'ACTIVE')::int, -(status = 'INACTIVE')::int, NULL
+            FROM old_rows
+        ) delta
+        GROUP BY department
+        ON CONFLICT (department) DO UPDATE SET
+            user_count = ds.user_count + EXCLUDED.user_count,
+            active_users = ds.active_users + EXCLUDED.active_users,
+            inactive_users = ds.inactive_users + EXCLUDED.inactive_users,
+            last_updated = GREATEST(ds.last_updated, EXCLUDED.last_updated);
+    ELSE
+        INSERT INTO department_stats AS ds (department, user_count, active_users, inactive_users, last_updated)
+        SELECT department, -COUNT(*), -COUNT(*) FILTER (WHERE status = 'ACTIVE'),
+               -COUNT(*) FILTER (WHERE status = 'INACTIVE'), LOCALTIMESTAMP
+        FROM old_rows
+        GROUP BY department
+        ON CONFLICT (department) DO UPDATE SET
+            user_count = ds.user_count + EXCLUDED.user_count,
+            active_users = ds.active_users + EXCLUDED.active_users,
+            inactive_users = ds.inactive_users + EXCLUDED.inactive_users,
+            last_updated = GREATEST(ds.last_updated, EXCLUDED.last_updated);
+    END IF;
+
+    DELETE FROM department_stats WHERE user_count <= 0;
     RETURN NULL;
 END;
 $$ LANGUAGE plpgsql;
 
--- Trigger to automatically refresh materialized view
-DROP TRIGGER IF EXISTS trigger_refresh_department_stats ON user_view;
-CREATE TRIGGER trigger_refresh_department_stats
-    AFTER INSERT OR UPDATE OR DELETE ON user_view
-    FOR EACH STATEMENT
-    EXECUTE FUNCTION refresh_department_stats(); 
\ No newline at end of file
+-- Transition tables require one trigger per event.
+-- Kept in a function so a user_view swapped in by a rebuild can get the same triggers.
+CREATE OR REPLACE FUNCTION attach_department_stats_triggers()
+RETURNS void AS $$
+BEGIN
+    DROP TRIGGER IF EXISTS trigger_department_stats_insert ON user_view;
+    CREATE TRIGGER trigger_department_stats_insert
+        AFTER INSERT ON user_view
+        REFERENCING NEW TABLE AS new_rows
+        FOR EACH STATEMENT
+        EXECUTE FUNCTION apply_department_stats_delta();
+
+    DROP TRIGGER IF EXISTS trigger_department_stats_update ON user_view;
+    CREATE TRIGGER trigger_department_stats_update
+        AFTER UPDATE ON user_view
+        REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+        FOR EACH STATEMENT
+        EXECUTE FUNCTION apply_department_stats_delta();
+
+    DROP TRIGGER IF EXISTS trigger_department_stats_delete ON user_view;
+    CREATE TRIGGER trigger_department_stats_delete
+        AFTER DELETE ON user_view
+        REFERENCING OLD TABLE AS old_rows
+        FOR EACH STATEMENT
+        EXECUTE FUNCTION apply_department_stats_delta();
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT attach_department_stats_triggers();
+
+SELECT rebuild_department_stats();
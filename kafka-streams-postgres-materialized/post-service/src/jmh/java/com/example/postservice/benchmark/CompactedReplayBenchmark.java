@@ -0,0 +1,152 @@
+package com.example.postservice.benchmark;
+
+import com.example.postservice.domain.UserEvent;
+import com.example.postservice.domain.UserView;
+import com.example.postservice.serde.UserEventSerde;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full replay of {@code user-events} (decode + fold into the latest view per user, as the
+ * {@code user-view-store} aggregation does on restore or reprocessing) over a churn-heavy synthetic
+ * history, before and after log compaction.
+ * <p>
+ * The history has {@code liveUsers} users that are created and updated {@code updatesPerUser} times,
+ * and {@code churn} times as many users that are created, updated half as often and deleted
+ * (delete event + tombstone). Compaction keeps the last record of every key in offset order:
+ * {@code COMPACTED} still holds the tombstones (within {@code delete.retention.ms}),
+ * {@code COMPACTED_TOMBSTONES_EXPIRED} is the steady state once they are removed too.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class CompactedReplayBenchmark {
+
+    public enum Log { FULL, COMPACTED, COMPACTED_TOMBSTONES_EXPIRED }
+
+    @Param({"20000"})
+    private int liveUsers;
+
+    @Param({"1", "4"})
+    private int churn;
+
+    @Param({"10"})
+    private int updatesPerUser;
+
+    @Param
+    private Log log;
+
+    private UserEventSerde userEventSerde;
+    private List<String> keys;
+    private List<byte[]> values;
+
+    @Setup
+    public void setUp() {
+        userEventSerde = new UserEventSerde(Jackson2ObjectMapperBuilder.json().build());
+        List<Map.Entry<String, byte[]>> history = history();
+        List<Map.Entry<String, byte[]>> records = switch (log) {
+            case FULL -> history;
+            case COMPACTED -> compact(history, false);
+            case COMPACTED_TOMBSTONES_EXPIRED -> compact(history, true);
+        };
+        keys = new ArrayList<>(records.size());
+        values = new ArrayList<>(records.size());
+        for (Map.Entry<String, byte[]> record : records) {
+            keys.add(record.getKey());
+            values.add(record.getValue());
+        }
+        System.out.printf("%n%s: %d records (full history %d) for %d live users%n", log, records.size(), history.size(), liveUsers);
+    }
+
+    @Benchmark
+    public int replay() {
+        Map<Long, UserView> views = new HashMap<>(liveUsers * 2);
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] value = values.get(i);
+            UserEvent event = value != null
+                    ? userEventSerde.decode(value)
+                    : UserEvent.tombstone(Long.valueOf(keys.get(i)));
+            UserView current = views.get(event.getUserId());
+            if (current != null && current.getVersion() >= event.getVersion()) {
+                continue;
+            }
+            if ("USER_DELETED".equals(event.getEventType())) {
+                views.remove(event.getUserId());
+            } else {
+                views.put(event.getUserId(), UserView.from(event, LocalDateTime.now()));
+            }
+        }
+        return views.size();
+    }
+
+    /**
+     * Interleaves the lives of all users round by round, so updates of one user are spread over the log.
+     */
+    private List<Map.Entry<String, byte[]>> history() {
+        int churnedUsers = liveUsers * churn;
+        int churnedUpdates = updatesPerUser / 2;
+        List<Map.Entry<String, byte[]>> history = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int round = 0; round <= updatesPerUser + 1; round++) {
+            for (long userId = 1; userId <= liveUsers + churnedUsers; userId++) {
+                boolean churned = userId > liveUsers;
+                String key = String.valueOf(userId);
+                if (round == 0) {
+                    history.add(Map.entry(key, encode("USER_CREATED", userId, 1, now)));
+                } else if (!churned && round <= updatesPerUser) {
+                    history.add(Map.entry(key, encode("USER_UPDATED", userId, round + 1, now)));
+                } else if (churned && round <= churnedUpdates) {
+                    history.add(Map.entry(key, encode("USER_UPDATED", userId, round + 1, now)));
+                } else if (churned && round == churnedUpdates + 1) {
+                    history.add(Map.entry(key, encode("USER_DELETED", userId, round + 1, now)));
+                    history.add(new AbstractMap.SimpleEntry<>(key, null));
+                }
+            }
+        }
+        return history;
+    }
+
+    private static List<Map.Entry<String, byte[]>> compact(List<Map.Entry<String, byte[]>> history, boolean dropTombstones) {
+        // re-inserting moves a key to the offset of its latest record
+        LinkedHashMap<String, byte[]> latest = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> record : history) {
+            latest.remove(record.getKey());
+            latest.put(record.getKey(), record.getValue());
+        }
+        List<Map.Entry<String, byte[]>> compacted = new ArrayList<>(latest.size());
+        latest.forEach((key, value) -> {
+            if (value != null || !dropTombstones) {
+                compacted.add(new AbstractMap.SimpleEntry<>(key, value));
+            }
+        });
+        return compacted;
+    }
+
+    private byte[] encode(String type, long userId, long version, LocalDateTime now) {
+        return userEventSerde.encode(UserEvent.builder()
+                .eventType(type)
+                .userId(userId)
+                .user(UserEvent.User.builder()
+                        .id(userId)
+                        .name("사용자" + userId)
+                        .email("user" + userId + "@example.com")
+                        .department("개발팀")
+                        .status("ACTIVE")
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .version(version)
+                        .build())
+                .timestamp(now)
+                .version(version)
+                .build());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.postservice.benchmark;
+
+import com.example.postservice.domain.UserView;
+import com.example.postservice.service.UserViewLookup;
+import com.example.postservice.streams.UserNameIndex;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * {@link UserViewLookup} over a plain map, so benchmarks measure PostService itself rather than
+ * Postgres or the state store. Users are spread round-robin over {@code departments} departments.
+ */
+class InMemoryUserViewLookup implements UserViewLookup {
+
+    private final NavigableMap<Long, UserView> users = new TreeMap<>();
+
+    InMemoryUserViewLookup(int userCount, int departments) {
+        LocalDateTime now = LocalDateTime.now();
+        for (long id = 1; id <= userCount; id++) {
+            users.put(id, UserView.builder()
+                    .userId(id)
+                    .name("사용자" + id)
+                    .email("user" + id + "@example.com")
+                    .department(department(id, departments))
+                    .status("ACTIVE")
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .version(1L)
+                    .lastProcessedAt(now)
+                    .build());
+        }
+    }
+
+    static String department(long userId, int departments) {
+        return "부서" + (userId % departments);
+    }
+
+    @Override
+    public Optional<UserView> findById(Long userId) {
+        return Optional.ofNullable(users.get(userId));
+    }
+
+    @Override
+    public Map<Long, UserView> findAllById(Collection<Long> userIds) {
+        Map<Long, UserView> found = new HashMap<>(userIds.size() * 2);
+        for (Long userId : userIds) {
+            UserView userView = users.get(userId);
+            if (userView != null) {
+                found.put(userId, userView);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<UserView> findAll() {
+        return List.copyOf(users.values());
+    }
+
+    @Override
+    public List<UserView> findByDepartment(String department) {
+        return users.values().stream()
+                .filter(userView -> department.equals(userView.getDepartment()))
+                .toList();
+    }
+
+    @Override
+    public List<UserView> findPage(String department, Long afterUserId, int limit) {
+        Map<Long, UserView> tail = afterUserId != null ? users.tailMap(afterUserId, false) : users;
+        return tail.values().stream()
+                .filter(userView -> department == null || department.equals(userView.getDepartment()))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<UserView> searchByName(String name, int limit) {
+        return users.values().stream()
+                .filter(userView -> userView.getName().contains(name))
+                .sorted(UserNameIndex.ranking(name))
+                .limit(limit)
+                .toList();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.postservice.benchmark;
+
+import com.example.postservice.domain.Post;
+import com.example.postservice.service.PostService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-side enrichment in {@link PostService}: listing every post and filtering by department or
+ * author, at increasing post counts with a fixed author population.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class PostEnrichmentBenchmark {
+
+    private static final int AUTHORS = 10_000;
+    private static final int DEPARTMENTS = 20;
+
+    @Param({"1000", "100000", "1000000"})
+    public int posts;
+
+    private PostService postService;
+    private String department;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        postService = new PostService(new InMemoryUserViewLookup(AUTHORS, DEPARTMENTS));
+        for (int i = 0; i < posts; i++) {
+            long authorId = 1 + (i % AUTHORS);
+            postService.createPost(Post.builder()
+                    .title("제목" + i)
+                    .content("내용" + i)
+                    .authorId(authorId)
+                    .build());
+        }
+        department = InMemoryUserViewLookup.department(1, DEPARTMENTS);
+    }
+
+    @Benchmark
+    public List<Post> getAllPosts() {
+        return postService.getAllPosts();
+    }
+
+    @Benchmark
+    public List<Post> getPostsByDepartment() {
+        return postService.getPostsByDepartment(department);
+    }
+
+    @Benchmark
+    public List<Post> getPostsByAuthor() {
+        return postService.getPostsByAuthor(1L);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.postservice.benchmark;
+
+import com.example.postservice.domain.Post;
+import com.example.postservice.service.PostService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code postStore} paths of {@link PostService} under contention: concurrent reads of single
+ * posts racing with updates of random posts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Group)
+public class PostStoreContentionBenchmark {
+
+    private static final int AUTHORS = 10_000;
+
+    @Param({"100000"})
+    public int posts;
+
+    private PostService postService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        postService = new PostService(new InMemoryUserViewLookup(AUTHORS, 20));
+        for (int i = 0; i < posts; i++) {
+            postService.createPost(newPost(i));
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public Post getPost() {
+        return postService.getPost(randomPostId());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public Post updatePost() {
+        long id = randomPostId();
+        return postService.updatePost(id, newPost(id));
+    }
+
+    private long randomPostId() {
+        return ThreadLocalRandom.current().nextLong(1, posts + 1);
+    }
+
+    private static Post newPost(long i) {
+        return Post.builder()
+                .title("제목" + i)
+                .content("내용" + i)
+                .authorId(1 + (i % AUTHORS))
+                .build();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.postservice.benchmark;
+
+import com.example.postservice.streams.KeyOrderedExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How fast a backlog of user events drains through the {@code parallel} sink at 1, 8 and 32
+ * workers. Each write is modelled as one Postgres round trip holding a pooled connection, so the
+ * pool size caps the useful concurrency just as Hikari does in the service. Scores are events/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@OperationsPerInvocation(SinkLagDrainBenchmark.BACKLOG)
+public class SinkLagDrainBenchmark {
+
+    static final int BACKLOG = 20_000;
+    private static final int USERS = 5_000;
+
+    @Param({"1", "8", "32"})
+    public int workers;
+
+    // Hikari maximum-pool-size
+    @Param({"10", "40"})
+    public int connections;
+
+    @Param({"500"})
+    public long roundTripMicros;
+
+    private KeyOrderedExecutor executor;
+    private Semaphore connectionPool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = new KeyOrderedExecutor("bench-sink", workers, 10_000);
+        connectionPool = new Semaphore(connections);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public void drainBacklog() {
+        CompletableFuture<?>[] writes = new CompletableFuture<?>[BACKLOG];
+        for (int i = 0; i < BACKLOG; i++) {
+            long userId = 1 + (i % USERS);
+            writes[i] = executor.submit(userId, this::write);
+        }
+        CompletableFuture.allOf(writes).join();
+    }
+
+    private void write() {
+        connectionPool.acquireUninterruptibly();
+        try {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(roundTripMicros));
+        } finally {
+            connectionPool.release();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.postservice.benchmark;
+
+import com.example.postservice.domain.UserEvent;
+import com.example.postservice.serde.UserEventSerde;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-record decode cost in the streams topology: the original {@code objectMapper.readValue}
+ * on a JSON String versus {@link UserEventSerde} on binary and on legacy JSON records.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class UserEventDecodeBenchmark {
+
+    private static final String TOPIC = "user-events";
+
+    private ObjectMapper objectMapper;
+    private UserEventSerde userEventSerde;
+    private String eventJson;
+    private byte[] eventJsonBytes;
+    private byte[] eventBinary;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        userEventSerde = new UserEventSerde(objectMapper);
+
+        LocalDateTime now = LocalDateTime.now();
+        UserEvent event = UserEvent.builder()
+                .eventType("USER_UPDATED")
+                .userId(123456L)
+                .user(UserEvent.User.builder()
+                        .id(123456L)
+                        .name("사용자123456")
+                        .email("user123456@example.com")
+                        .department("개발팀")
+                        .status("ACTIVE")
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .version(4L)
+                        .build())
+                .timestamp(now)
+                .version(4L)
+                .build();
+        eventJson = objectMapper.writeValueAsString(event);
+        eventJsonBytes = eventJson.getBytes(StandardCharsets.UTF_8);
+        eventBinary = userEventSerde.serializer().serialize(TOPIC, event);
+    }
+
+    @Benchmark
+    public UserEvent jsonString() throws Exception {
+        return objectMapper.readValue(eventJson, UserEvent.class);
+    }
+
+    @Benchmark
+    public UserEvent serdeLegacyJson() {
+        return userEventSerde.deserializer().deserialize(TOPIC, eventJsonBytes);
+    }
+
+    @Benchmark
+    public UserEvent serdeBinary() {
+        return userEventSerde.deserializer().deserialize(TOPIC, eventBinary);
+    }
+}
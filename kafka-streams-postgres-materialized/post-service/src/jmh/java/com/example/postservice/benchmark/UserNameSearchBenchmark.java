@@ -0,0 +1,82 @@
+package com.example.postservice.benchmark;
+
+import com.example.postservice.streams.UserNameIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top 20 of a ranked name search over {@code users} synthetic Korean names: the n-gram
+ * {@link UserNameIndex} against a scan that tests every name, which is what {@code LIKE '%name%'}
+ * without a trigram index does.
+ * Queries go from a full name (a few matches) down to a single syllable (a large share of the users).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class UserNameSearchBenchmark {
+
+    private static final String SURNAMES = "김이박최정강조윤장임한오서신권황안송류홍";
+    private static final String SYLLABLES = "민준서연지우하은도윤시현예린수아주원건태희성진영호경";
+
+    @Param({"1000000"})
+    private int users;
+
+    @Param({"김민준", "민준", "준"})
+    private String query;
+
+    private final int limit = 20;
+
+    private UserNameIndex index;
+    private List<String> names;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        index = new UserNameIndex();
+        names = new ArrayList<>(users);
+        for (long userId = 1; userId <= users; userId++) {
+            String name = "" + SURNAMES.charAt(random.nextInt(SURNAMES.length()))
+                    + SYLLABLES.charAt(random.nextInt(SYLLABLES.length()))
+                    + SYLLABLES.charAt(random.nextInt(SYLLABLES.length()));
+            index.put(userId, name);
+            names.add(name);
+        }
+        System.out.printf("%n'%s': %d matches of %d users%n", query, scanCount(), users);
+    }
+
+    @Benchmark
+    public List<Long> index() {
+        return index.search(query, limit);
+    }
+
+    /**
+     * Every row is tested, and every match ranked, before the best {@code limit} are known.
+     */
+    @Benchmark
+    public List<Long> scan() {
+        List<long[]> matches = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            int rank = UserNameIndex.rank(name, query);
+            if (rank >= 0) {
+                matches.add(new long[]{rank, name.length(), i + 1L});
+            }
+        }
+        return matches.stream()
+                .sorted(Comparator.<long[]>comparingLong(match -> match[0])
+                        .thenComparingLong(match -> match[1])
+                        .thenComparingLong(match -> match[2]))
+                .limit(limit)
+                .map(match -> match[2])
+                .toList();
+    }
+
+    private long scanCount() {
+        return names.stream().filter(name -> name.contains(query)).count();
+    }
+}
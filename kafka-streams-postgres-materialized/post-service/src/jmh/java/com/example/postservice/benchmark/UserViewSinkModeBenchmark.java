@@ -0,0 +1,136 @@
+package com.example.postservice.benchmark;
+
+import com.example.postservice.domain.UserEvent;
+import com.example.postservice.domain.UserView;
+import com.example.postservice.repository.UserViewJdbcRepository;
+import com.example.postservice.streams.UserViewMetrics;
+import com.example.postservice.streams.UserViewSinkStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How fast a backlog of user events drains into {@code user_view} with {@code user-view.sink.mode=batch}
+ * (the real {@link UserViewSinkStore}: latest version per user, flushed at {@code batch-size} users as
+ * multi-row upserts in one transaction) against {@code single} (one autocommitted conditional upsert per
+ * event). Postgres is modelled like {@link SinkLagDrainBenchmark}: every statement and every commit costs
+ * one round trip, and every row a statement writes adds {@code rowMicros} on the server. Scores are events/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@OperationsPerInvocation(UserViewSinkModeBenchmark.BACKLOG)
+public class UserViewSinkModeBenchmark {
+
+    static final int BACKLOG = 20_000;
+    private static final int COLUMNS = 9;
+
+    @Param({"batch", "single"})
+    public String mode;
+
+    @Param({"500"})
+    public long roundTripMicros;
+
+    @Param({"10"})
+    public long rowMicros;
+
+    @Param({"500"})
+    public int batchSize;
+
+    private UserViewJdbcRepository repository;
+    private UserViewSinkStore sinkStore;
+    private UserEvent[] events;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new UserViewJdbcRepository(new RoundTripJdbcTemplate(), new TransactionTemplate(new RoundTripTransactionManager()));
+        sinkStore = new UserViewSinkStore("bench-sink", repository, List.of(), new UserViewMetrics(new SimpleMeterRegistry()));
+        LocalDateTime now = LocalDateTime.now();
+        events = new UserEvent[BACKLOG];
+        for (int i = 0; i < BACKLOG; i++) {
+            // every event a different user, so batch gains only from fewer statements, not from folding versions
+            long userId = 1 + i;
+            long version = 1;
+            events[i] = UserEvent.builder()
+                    .eventType("USER_UPDATED")
+                    .userId(userId)
+                    .user(UserEvent.User.builder()
+                            .id(userId)
+                            .name("사용자" + userId)
+                            .email("user" + userId + "@example.com")
+                            .department("개발팀")
+                            .status("ACTIVE")
+                            .createdAt(now)
+                            .updatedAt(now)
+                            .version(version)
+                            .build())
+                    .timestamp(now)
+                    .version(version)
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public void drainBacklog() {
+        if ("batch".equals(mode)) {
+            // as UserViewSinkProcessor: flush early at batch-size users, and at the commit after the backlog
+            for (UserEvent event : events) {
+                sinkStore.add(event);
+                if (sinkStore.size() >= batchSize) {
+                    sinkStore.flush();
+                }
+            }
+            sinkStore.flush();
+        } else {
+            LocalDateTime now = LocalDateTime.now();
+            for (UserEvent event : events) {
+                repository.upsertAll(List.of(UserView.from(event, now)));
+            }
+        }
+    }
+
+    private void roundTrip(int rows) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(roundTripMicros + rows * rowMicros));
+    }
+
+    private final class RoundTripJdbcTemplate extends JdbcTemplate {
+
+        @Override
+        public int update(String sql, Object... args) {
+            int rows = args.length / COLUMNS;
+            roundTrip(rows);
+            return rows;
+        }
+    }
+
+    // the statements of a transaction are sent with autocommit off; only the COMMIT adds a round trip
+    private final class RoundTripTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            roundTrip(0);
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            roundTrip(0);
+        }
+    }
+}
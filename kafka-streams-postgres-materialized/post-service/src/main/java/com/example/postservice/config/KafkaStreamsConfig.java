@@ -3,6 +3,8 @@ package com.example.postservice.config;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.errors.LogAndContinueExceptionHandler;
+import org.apache.kafka.streams.state.HostInfo;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -23,6 +25,28 @@ public class KafkaStreamsConfig {
     @Value("${spring.application.name}")
     private String applicationName;
     
+    // The batch sink flushes on every commit, so this is also its flush interval
+    @Value("${user-view.sink.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+    
+    @Value("${user-view.sink.mode:batch}")
+    private String sinkMode;
+    
+    @Value("${user-view.state-dir:/tmp/kafka-streams}")
+    private String stateDir;
+    
+    // host:port other instances use to reach this one for interactive queries
+    @Value("${user-view.query.advertised-host:${HOSTNAME:localhost}}")
+    private String advertisedHost;
+    
+    @Value("${server.port:8082}")
+    private int serverPort;
+    
+    @Bean
+    public HostInfo applicationServer() {
+        return new HostInfo(advertisedHost, serverPort);
+    }
+    
     @Bean(name = KafkaStreamsDefaultConfiguration.DEFAULT_STREAMS_CONFIG_BEAN_NAME)
     public KafkaStreamsConfiguration kStreamsConfig() {
         Map<String, Object> props = new HashMap<>();
@@ -30,10 +54,16 @@ public class KafkaStreamsConfig {
         props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.String().getClass());
         props.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, Serdes.String().getClass());
+        props.put(StreamsConfig.DEFAULT_DESERIALIZATION_EXCEPTION_HANDLER_CLASS_CONFIG, LogAndContinueExceptionHandler.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
-        props.put(StreamsConfig.STATE_DIR_CONFIG, "/tmp/kafka-streams");
-        props.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, StreamsConfig.EXACTLY_ONCE_V2);
-        props.put(StreamsConfig.COMMIT_INTERVAL_MS_CONFIG, 1000);
+        props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir);
+        props.put(StreamsConfig.APPLICATION_SERVER_CONFIG, applicationServer().host() + ":" + applicationServer().port());
+        // With the exactly-once sink, user_view is written outside the topology; what is left here (the
+        // view store and the enriched posts keyed by post id) converges on replay, so Kafka transactions
+        // would only add latency
+        props.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG,
+                "exactly-once".equals(sinkMode) ? StreamsConfig.AT_LEAST_ONCE : StreamsConfig.EXACTLY_ONCE_V2);
+        props.put(StreamsConfig.COMMIT_INTERVAL_MS_CONFIG, flushIntervalMs);
         
         return new KafkaStreamsConfiguration(props);
     }
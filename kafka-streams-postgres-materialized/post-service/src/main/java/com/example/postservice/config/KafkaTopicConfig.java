@@ -0,0 +1,102 @@
+package com.example.postservice.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import com.example.postservice.streams.AuthorDepartmentFeed;
+import com.example.postservice.streams.EnrichedPostTopology;
+import com.example.postservice.streams.UserEventRetryRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.config.TopicBuilder;
+
+import java.time.Duration;
+import java.util.stream.Stream;
+
+/**
+ * Declares {@code user-events} as a log-compacted topic keyed by user id, so a full replay reads
+ * roughly one record per live user instead of the whole history. Deleted users are removed by the
+ * tombstone published after their {@code USER_DELETED} event. user-service declares the same topic
+ * with the same properties; whichever service starts first creates it, and
+ * {@code spring.kafka.admin.modify-topic-configs} aligns the configs of an existing topic.
+ * <p>
+ * With write-time post enrichment, {@code post-events} and {@code enriched-posts} are compacted by
+ * post id the same way (a deleted post leaves a tombstone). {@code author-departments} is compacted by
+ * user id, so every instance's {@link AuthorDepartmentFeed} replays one department per user on start.
+ * <p>
+ * The retry tiers and the dead-letter topic of {@link UserEventRetryRouter} are ordinary (delete policy)
+ * topics: a retried event is only needed until it succeeds or reaches the dead-letter topic.
+ */
+@Configuration
+public class KafkaTopicConfig {
+    
+    public static final String USER_EVENTS_TOPIC = "user-events";
+    
+    // An existing topic is only ever grown; adding partitions moves existing keys to new partitions
+    @Value("${user-events.topic.partitions:6}")
+    private int partitions;
+    
+    @Value("${user-events.topic.replication-factor:1}")
+    private short replicationFactor;
+    
+    // Consumers that fall further behind than this can miss a delete entirely
+    @Value("${user-events.topic.tombstone-retention:7d}")
+    private Duration tombstoneRetention;
+    
+    // Only closed segments are compacted
+    @Value("${user-events.topic.segment-roll:1h}")
+    private Duration segmentRoll;
+    
+    // How long dead letters are kept for kafka-dlq-replay.sh
+    @Value("${user-view.retry.dlt-retention:30d}")
+    private Duration deadLetterRetention;
+    
+    @Bean
+    public NewTopic userEventsTopic() {
+        return compactedTopic(USER_EVENTS_TOPIC);
+    }
+    
+    @Bean
+    @ConditionalOnProperty(name = "post.enrichment.mode", havingValue = "write-time")
+    public NewTopic postEventsTopic() {
+        return compactedTopic(EnrichedPostTopology.POST_EVENTS_TOPIC);
+    }
+    
+    @Bean
+    @ConditionalOnProperty(name = "post.enrichment.mode", havingValue = "write-time")
+    public NewTopic enrichedPostsTopic() {
+        return compactedTopic(EnrichedPostTopology.ENRICHED_POSTS_TOPIC);
+    }
+    
+    @Bean
+    @ConditionalOnProperty(name = "post.department-feed.enabled", havingValue = "true", matchIfMissing = true)
+    public NewTopic authorDepartmentsTopic() {
+        return compactedTopic(AuthorDepartmentFeed.TOPIC);
+    }
+    
+    @Bean
+    @ConditionalOnProperty(name = "user-view.retry.enabled", havingValue = "true", matchIfMissing = true)
+    public KafkaAdmin.NewTopics userEventRetryTopics(UserEventRetryRouter retryRouter) {
+        NewTopic deadLetters = TopicBuilder.name(UserEventRetryRouter.DLT_TOPIC)
+                .partitions(partitions)
+                .replicas(replicationFactor)
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(deadLetterRetention.toMillis()))
+                .build();
+        return new KafkaAdmin.NewTopics(Stream.concat(
+                retryRouter.retryTopics().stream()
+                        .map(topic -> TopicBuilder.name(topic).partitions(partitions).replicas(replicationFactor).build()),
+                Stream.of(deadLetters)).toArray(NewTopic[]::new));
+    }
+    
+    private NewTopic compactedTopic(String name) {
+        return TopicBuilder.name(name)
+                .partitions(partitions)
+                .replicas(replicationFactor)
+                .compact()
+                .config(TopicConfig.DELETE_RETENTION_MS_CONFIG, String.valueOf(tombstoneRetention.toMillis()))
+                .config(TopicConfig.SEGMENT_MS_CONFIG, String.valueOf(segmentRoll.toMillis()))
+                .build();
+    }
+}
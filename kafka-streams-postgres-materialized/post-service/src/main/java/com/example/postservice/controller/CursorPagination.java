@@ -0,0 +1,80 @@
+package com.example.postservice.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Keyset pagination and NDJSON streaming for the list endpoints.
+ * <p>
+ * A page is still a plain JSON array; when more rows follow, the response carries
+ * {@code X-Next-Cursor} with the id to send as {@code after} for the next page. Clients that want
+ * everything ask for {@code Accept: application/x-ndjson} and get one JSON object per line,
+ * written as the rows are read.
+ */
+@Component
+@RequiredArgsConstructor
+class CursorPagination {
+    
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    
+    private final ObjectMapper objectMapper;
+    
+    @Value("${api.pagination.default-limit:1000}")
+    private int defaultLimit;
+    
+    @Value("${api.pagination.max-limit:10000}")
+    private int maxLimit;
+    
+    int limit(Integer requested) {
+        if (requested == null) {
+            return defaultLimit;
+        }
+        return Math.max(1, Math.min(requested, maxLimit));
+    }
+    
+    /**
+     * @param rows up to {@code limit + 1} rows; the extra row only signals that another page exists
+     */
+    <T> ResponseEntity<List<T>> page(List<T> rows, int limit, Function<T, Long> idOf) {
+        if (rows.size() <= limit) {
+            return ResponseEntity.ok(rows);
+        }
+        List<T> page = rows.subList(0, limit);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, String.valueOf(idOf.apply(page.get(limit - 1))))
+                .body(page);
+    }
+    
+    /**
+     * @param source passes every row to the given consumer, in order
+     */
+    <T> ResponseEntity<StreamingResponseBody> stream(Consumer<Consumer<T>> source) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                source.accept(row -> {
+                    try {
+                        generator.writeObject(row);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
@@ -3,10 +3,13 @@ package com.example.postservice.controller;
 import com.example.postservice.domain.Post;
 import com.example.postservice.domain.UserView;
 import com.example.postservice.service.PostService;
-import com.example.postservice.repository.UserViewRepository;
+import com.example.postservice.service.UserViewLookup;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -16,7 +19,11 @@ import java.util.List;
 public class PostController {
     
     private final PostService postService;
-    private final UserViewRepository userViewRepository;
+    private final UserViewLookup userViewLookup;
+    private final CursorPagination cursorPagination;
+    
+    @Value("${api.search.max-limit:100}")
+    private int maxSearchLimit;
     
     @PostMapping
     public ResponseEntity<Post> createPost(@RequestBody Post post) {
@@ -43,9 +50,16 @@ public class PostController {
     }
     
     @GetMapping
-    public ResponseEntity<List<Post>> getAllPosts() {
-        List<Post> posts = postService.getAllPosts();
-        return ResponseEntity.ok(posts);
+    public ResponseEntity<List<Post>> getAllPosts(@RequestParam(required = false) Long after,
+                                                  @RequestParam(required = false) Integer limit) {
+        int pageSize = cursorPagination.limit(limit);
+        List<Post> posts = postService.getPostsPage(after, pageSize + 1);
+        return cursorPagination.page(posts, pageSize, Post::getId);
+    }
+    
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllPosts() {
+        return cursorPagination.stream(postService::forEachPost);
     }
     
     @GetMapping("/by-department/{department}")
@@ -54,15 +68,45 @@ public class PostController {
         return ResponseEntity.ok(posts);
     }
     
+    @GetMapping("/by-author/{authorId}")
+    public ResponseEntity<List<Post>> getPostsByAuthor(@PathVariable Long authorId) {
+        List<Post> posts = postService.getPostsByAuthor(authorId);
+        return ResponseEntity.ok(posts);
+    }
+    
     @GetMapping("/users")
-    public ResponseEntity<List<UserView>> getAllUsers() {
-        List<UserView> users = userViewRepository.findAll();
-        return ResponseEntity.ok(users);
+    public ResponseEntity<List<UserView>> getAllUsers(@RequestParam(required = false) Long after,
+                                                      @RequestParam(required = false) Integer limit) {
+        int pageSize = cursorPagination.limit(limit);
+        List<UserView> users = userViewLookup.findPage(null, after, pageSize + 1);
+        return cursorPagination.page(users, pageSize, UserView::getUserId);
+    }
+    
+    @GetMapping(value = "/users", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        return cursorPagination.<UserView>stream(action -> userViewLookup.forEach(null, action));
+    }
+    
+    @GetMapping("/users/search")
+    public ResponseEntity<List<UserView>> searchUsersByName(@RequestParam String name,
+                                                            @RequestParam(defaultValue = "20") int limit) {
+        if (name.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(userViewLookup.searchByName(name, Math.max(1, Math.min(limit, maxSearchLimit))));
     }
     
     @GetMapping("/users/department/{department}")
-    public ResponseEntity<List<UserView>> getUsersByDepartment(@PathVariable String department) {
-        List<UserView> users = userViewRepository.findByDepartment(department);
-        return ResponseEntity.ok(users);
+    public ResponseEntity<List<UserView>> getUsersByDepartment(@PathVariable String department,
+                                                               @RequestParam(required = false) Long after,
+                                                               @RequestParam(required = false) Integer limit) {
+        int pageSize = cursorPagination.limit(limit);
+        List<UserView> users = userViewLookup.findPage(department, after, pageSize + 1);
+        return cursorPagination.page(users, pageSize, UserView::getUserId);
+    }
+    
+    @GetMapping(value = "/users/department/{department}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsersByDepartment(@PathVariable String department) {
+        return cursorPagination.<UserView>stream(action -> userViewLookup.forEach(department, action));
     }
 } 
\ No newline at end of file
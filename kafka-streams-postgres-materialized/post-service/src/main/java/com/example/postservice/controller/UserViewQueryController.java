@@ -0,0 +1,55 @@
+package com.example.postservice.controller;
+
+import com.example.postservice.domain.UserView;
+import com.example.postservice.streams.StateStoreUserViewLookup;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Instance-local reads of the user view state store, used by other post-service instances
+ * to route interactive queries to the owner of a key.
+ */
+@RestController
+@RequestMapping("/internal/user-views")
+@ConditionalOnProperty(name = "user-view.read-source", havingValue = "state-store", matchIfMissing = true)
+@RequiredArgsConstructor
+public class UserViewQueryController {
+    
+    private final StateStoreUserViewLookup stateStoreUserViewLookup;
+    
+    @GetMapping("/{userId}")
+    public ResponseEntity<UserView> getLocalUser(@PathVariable Long userId) {
+        return ResponseEntity.of(stateStoreUserViewLookup.findLocalById(userId));
+    }
+    
+    @PostMapping("/batch")
+    public ResponseEntity<List<UserView>> getLocalUsersById(@RequestBody List<Long> userIds) {
+        return ResponseEntity.ok(List.copyOf(stateStoreUserViewLookup.findAllLocalById(userIds).values()));
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<UserView>> getLocalUsers() {
+        return ResponseEntity.ok(stateStoreUserViewLookup.findAllLocal());
+    }
+    
+    @GetMapping("/page")
+    public ResponseEntity<List<UserView>> getLocalUserPage(@RequestParam(required = false) String department,
+                                                           @RequestParam(required = false) Long after,
+                                                           @RequestParam int limit) {
+        return ResponseEntity.ok(stateStoreUserViewLookup.findLocalPage(department, after, limit));
+    }
+    
+    @GetMapping("/search")
+    public ResponseEntity<List<UserView>> searchLocalUsersByName(@RequestParam String name, @RequestParam int limit) {
+        return ResponseEntity.ok(stateStoreUserViewLookup.findLocalByName(name, limit));
+    }
+    
+    @GetMapping("/department/{department}")
+    public ResponseEntity<List<UserView>> getLocalUsersByDepartment(@PathVariable String department) {
+        return ResponseEntity.ok(stateStoreUserViewLookup.findLocalByDepartment(department));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.postservice.controller;
+
+import com.example.postservice.domain.UserViewRebuildStatus;
+import com.example.postservice.service.UserViewRebuildService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Starts a background rebuild of the {@code user_view} projection and reports its progress.
+ * Run it on one instance at a time; the shadow tables are shared through the database.
+ */
+@RestController
+@RequestMapping("/internal/user-views/rebuild")
+@RequiredArgsConstructor
+public class UserViewRebuildController {
+
+    private final UserViewRebuildService userViewRebuildService;
+
+    @PostMapping
+    public ResponseEntity<UserViewRebuildStatus> startRebuild() {
+        HttpStatus status = userViewRebuildService.start() ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(userViewRebuildService.getStatus());
+    }
+
+    @GetMapping
+    public ResponseEntity<UserViewRebuildStatus> getRebuildStatus() {
+        return ResponseEntity.ok(userViewRebuildService.getStatus());
+    }
+}
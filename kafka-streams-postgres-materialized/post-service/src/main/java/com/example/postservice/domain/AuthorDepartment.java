@@ -0,0 +1,21 @@
+package com.example.postservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A user's department as of a user view version, as broadcast on {@code author-departments};
+ * the department is null once the user was deleted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthorDepartment {
+    
+    private String department;
+    
+    private long version;
+}
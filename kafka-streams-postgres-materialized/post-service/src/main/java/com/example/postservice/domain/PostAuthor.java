@@ -0,0 +1,30 @@
+package com.example.postservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The author fields copied onto a post by write-time enrichment.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostAuthor {
+    
+    private String name;
+    
+    private String email;
+    
+    private String department;
+    
+    public static PostAuthor from(UserView userView) {
+        return PostAuthor.builder()
+                .name(userView.getName())
+                .email(userView.getEmail())
+                .department(userView.getDepartment())
+                .build();
+    }
+}
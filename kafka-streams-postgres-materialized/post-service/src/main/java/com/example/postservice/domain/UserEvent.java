@@ -28,6 +28,19 @@ public class UserEvent {
     @JsonProperty("version")
     private Long version;
     
+    /**
+     * Delete standing in for a tombstone (null value) of the compacted {@code user-events} topic.
+     * A tombstone is always the last record of its key and carries no version, so it wins over
+     * every version of the user.
+     */
+    public static UserEvent tombstone(Long userId) {
+        return UserEvent.builder()
+                .eventType("USER_DELETED")
+                .userId(userId)
+                .version(Long.MAX_VALUE)
+                .build();
+    }
+    
     @Data
     @Builder
     @NoArgsConstructor
@@ -53,5 +66,8 @@ public class UserEvent {
         
         @JsonProperty("updatedAt")
         private LocalDateTime updatedAt;
+        
+        @JsonProperty("version")
+        private Long version;
     }
 } 
\ No newline at end of file
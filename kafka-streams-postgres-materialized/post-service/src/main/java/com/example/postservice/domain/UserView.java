@@ -43,4 +43,18 @@ public class UserView {
     
     @Column(name = "last_processed_at")
     private LocalDateTime lastProcessedAt;
-} 
\ No newline at end of file
+    
+    public static UserView from(UserEvent event, LocalDateTime processedAt) {
+        return UserView.builder()
+                .userId(event.getUserId())
+                .name(event.getUser().getName())
+                .email(event.getUser().getEmail())
+                .department(event.getUser().getDepartment())
+                .status(event.getUser().getStatus())
+                .createdAt(event.getUser().getCreatedAt())
+                .updatedAt(event.getUser().getUpdatedAt())
+                .version(event.getVersion() != null ? event.getVersion() : 0L)
+                .lastProcessedAt(processedAt)
+                .build();
+    }
+}
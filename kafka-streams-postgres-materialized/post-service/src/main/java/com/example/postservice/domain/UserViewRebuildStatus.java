@@ -0,0 +1,36 @@
+package com.example.postservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of the current or last {@code user_view} rebuild ({@code /internal/user-views/rebuild}).
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserViewRebuildStatus {
+
+    public enum Phase { IDLE, LOADING, BUILDING_TABLE, INDEXING, CATCHING_UP, SWAPPING, COMPLETED, FAILED }
+
+    private Phase phase;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    // offsets of user-events up to the end offsets captured at the start, and how many have been read
+    private long offsetsTotal;
+    private long offsetsConsumed;
+    private double percentComplete;
+    private long eventsLoaded;
+    // undecodable records and events without a user
+    private long eventsSkipped;
+    private long usersLoaded;
+    // events applied after the bulk load, while the shadow table was indexed and swapped in
+    private long catchUpEvents;
+    private long elapsedMs;
+    private String error;
+}
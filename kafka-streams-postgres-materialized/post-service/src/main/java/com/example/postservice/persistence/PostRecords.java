@@ -0,0 +1,142 @@
+package com.example.postservice.persistence;
+
+import com.example.postservice.domain.Post;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary records of the post store log and snapshots.
+ *
+ * <pre>
+ * PUT:     type(1) id [title] [content] [authorId] [authorName] [authorEmail] [authorDepartment] [createdAt] [updatedAt]
+ * DELETE:  type(2) id
+ * NEXT_ID: type(3) id      the next id to assign (snapshots only)
+ *
+ * [field]:   presence byte, then the value
+ * strings:   int byte length + UTF-8
+ * datetimes: long epoch second (as UTC) + int nano of second
+ * </pre>
+ */
+final class PostRecords {
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final byte NEXT_ID = 3;
+
+    private PostRecords() {
+    }
+
+    static byte[] put(Post post) {
+        return write(PUT, post.getId(), out -> {
+            writeString(out, post.getTitle());
+            writeString(out, post.getContent());
+            out.writeBoolean(post.getAuthorId() != null);
+            if (post.getAuthorId() != null) {
+                out.writeLong(post.getAuthorId());
+            }
+            writeString(out, post.getAuthorName());
+            writeString(out, post.getAuthorEmail());
+            writeString(out, post.getAuthorDepartment());
+            writeDateTime(out, post.getCreatedAt());
+            writeDateTime(out, post.getUpdatedAt());
+        });
+    }
+
+    static byte[] delete(long id) {
+        return write(DELETE, id, out -> {
+        });
+    }
+
+    static byte[] nextId(long id) {
+        return write(NEXT_ID, id, out -> {
+        });
+    }
+
+    static byte type(byte[] record) {
+        return record[0];
+    }
+
+    /**
+     * The id of any record: the post's, or the next id for {@link #NEXT_ID}.
+     */
+    static long id(byte[] record) {
+        long id = 0;
+        for (int i = 1; i <= Long.BYTES; i++) {
+            id = (id << 8) | (record[i] & 0xFF);
+        }
+        return id;
+    }
+
+    static Post post(byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            in.readByte();
+            Post post = new Post();
+            post.setId(in.readLong());
+            post.setTitle(readString(in));
+            post.setContent(readString(in));
+            post.setAuthorId(in.readBoolean() ? in.readLong() : null);
+            post.setAuthorName(readString(in));
+            post.setAuthorEmail(readString(in));
+            post.setAuthorDepartment(readString(in));
+            post.setCreatedAt(readDateTime(in));
+            post.setUpdatedAt(readDateTime(in));
+            return post;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt post record", e);
+        }
+    }
+
+    private static byte[] write(byte type, long id, Fields fields) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            out.writeLong(id);
+            fields.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        byte[] utf8 = new byte[in.readInt()];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        return in.readBoolean() ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC) : null;
+    }
+
+    private interface Fields {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
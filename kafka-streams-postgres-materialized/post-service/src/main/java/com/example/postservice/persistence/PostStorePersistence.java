@@ -0,0 +1,181 @@
+package com.example.postservice.persistence;
+
+import com.example.postservice.domain.Post;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the posts of {@code PostService} across restarts, the same way user-service keeps its users:
+ * every change is appended to a {@link SegmentLog} in {@code dir/log}, a background thread writes a
+ * snapshot of all posts to {@code dir/snapshots} every {@code snapshot-interval} (and on shutdown) and
+ * then deletes the log before it, and startup loads the newest snapshot with one thread per part file
+ * and replays the log after it.
+ * <p>
+ * The caller appends each change while no other change of the same post can reach the store, so the
+ * log has every post's changes in store order. Appends do not wait for the disk: with {@code fsync}
+ * the flusher's next group commit forces them shortly after.
+ */
+@Component
+@ConditionalOnProperty(name = "post-store.persistence.enabled", havingValue = "true")
+@Slf4j
+public class PostStorePersistence {
+
+    private static final int POSTS_PER_SNAPSHOT_PART = 100_000;
+    private static final int REPLAY_BATCH = 10_000;
+
+    private final SegmentLog changeLog;
+    private final SnapshotFiles snapshots;
+    private final Timer snapshotTimer;
+    private final Duration snapshotInterval;
+    private final ScheduledExecutorService snapshotter;
+    // guards snapshots against the shutdown snapshot
+    private final Object snapshotLock = new Object();
+    private Consumer<Consumer<Post>> posts;
+    private LongSupplier nextId;
+    private volatile long snapshotPosition;
+
+    public PostStorePersistence(@Value("${post-store.persistence.dir:data/post-store}") Path dir,
+                                @Value("${post-store.persistence.segment-size:64MB}") DataSize segmentSize,
+                                @Value("${post-store.persistence.fsync:true}") boolean fsync,
+                                @Value("${post-store.persistence.snapshot-interval:5m}") Duration snapshotInterval,
+                                MeterRegistry meterRegistry) {
+        this.changeLog = new SegmentLog("post store log", dir.resolve("log"), segmentSize, fsync,
+                Timer.builder("post.store.log.fsync").register(meterRegistry));
+        this.snapshots = new SnapshotFiles(dir.resolve("snapshots"));
+        this.snapshotTimer = Timer.builder("post.store.snapshot").register(meterRegistry);
+        this.snapshotInterval = snapshotInterval;
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "post-store-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads the newest snapshot and the changes logged after it into {@code store}; returns the next
+     * post id to assign, which is past every id ever logged, including those of deleted posts.
+     */
+    public long restore(ConcurrentMap<Long, Post> store) {
+        long start = System.nanoTime();
+        AtomicLong next = new AtomicLong(1);
+        try {
+            snapshotPosition = snapshots.load(record -> {
+                if (PostRecords.type(record) == PostRecords.NEXT_ID) {
+                    next.accumulateAndGet(PostRecords.id(record), Math::max);
+                } else {
+                    Post post = PostRecords.post(record);
+                    store.put(post.getId(), post);
+                }
+            }).orElse(0L);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load post store snapshot", e);
+        }
+        long position = snapshotPosition;
+        long replayed = 0;
+        SegmentLog.Batch batch;
+        do {
+            batch = changeLog.read(position, REPLAY_BATCH);
+            for (byte[] record : batch.records()) {
+                long id = PostRecords.id(record);
+                if (PostRecords.type(record) == PostRecords.DELETE) {
+                    store.remove(id);
+                } else {
+                    store.put(id, PostRecords.post(record));
+                }
+                next.accumulateAndGet(id + 1, Math::max);
+            }
+            replayed += batch.records().size();
+            position = batch.nextPosition();
+        } while (!batch.records().isEmpty());
+        store.keySet().forEach(id -> next.accumulateAndGet(id + 1, Math::max));
+        log.info("Restored {} posts in {} ms ({} changes replayed from the log)",
+                store.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), replayed);
+        return next.get();
+    }
+
+    /**
+     * Starts the periodic snapshots of the posts {@code posts} visits; {@code nextId} is the id the next
+     * post will get.
+     */
+    public void start(Consumer<Consumer<Post>> posts, LongSupplier nextId) {
+        this.posts = posts;
+        this.nextId = nextId;
+        long intervalMs = snapshotInterval.toMillis();
+        snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void appendPut(Post post) {
+        changeLog.append(PostRecords.put(post));
+    }
+
+    public void appendDelete(long id) {
+        changeLog.append(PostRecords.delete(id));
+    }
+
+    /**
+     * Writes a snapshot unless nothing was logged since the previous one, then deletes the log segments
+     * it covers; returns whether a snapshot was written.
+     */
+    public boolean snapshot() throws IOException {
+        return snapshot(changeLog.durablePosition());
+    }
+
+    private boolean snapshot(long position) throws IOException {
+        synchronized (snapshotLock) {
+            // every change logged before this position is already in the store
+            if (posts == null || position == snapshotPosition) {
+                return false;
+            }
+            long start = System.nanoTime();
+            long records = snapshots.write(position, sink -> {
+                sink.accept(PostRecords.nextId(nextId.getAsLong()));
+                posts.accept(post -> sink.accept(PostRecords.put(post)));
+            }, POSTS_PER_SNAPSHOT_PART);
+            snapshotTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            snapshotPosition = position;
+            changeLog.deleteBefore(position);
+            log.info("Wrote post store snapshot at log position {}: {} posts in {} ms",
+                    position, records - 1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return true;
+        }
+    }
+
+    /**
+     * Writes a final snapshot, so the next start has no log to replay, and closes the log. The snapshot
+     * waits for the appends still being flushed, since a snapshot only covers what is durable.
+     */
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        snapshotter.shutdownNow();
+        snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        snapshot(changeLog.sync());
+        changeLog.close();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            // the log is kept until a snapshot succeeds, so nothing is lost; startup just replays more
+            log.error("Failed to write post store snapshot", e);
+        }
+    }
+}
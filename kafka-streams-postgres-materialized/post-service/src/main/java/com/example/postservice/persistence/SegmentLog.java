@@ -0,0 +1,379 @@
+package com.example.postservice.persistence;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of byte records on local disk for the post store, like the one in user-service.
+ * <p>
+ * The log is a sequence of memory-mapped segment files named after the position of their first byte;
+ * a record is {@code length, crc32c, payload}, and a length of -1 marks the end of a segment. Positions
+ * only grow across segments.
+ * <p>
+ * With {@code fsync} a flusher thread forces the written range to disk and completes the futures of
+ * every append since its previous flush at once (group commit): under load one fsync covers many
+ * appends. On startup the last segment is scanned up to the first record that is incomplete or fails
+ * its checksum, and appending continues there.
+ */
+@Slf4j
+public class SegmentLog {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int END_OF_SEGMENT = -1;
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final String name;
+    private final Path dir;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final Timer fsyncTimer;
+
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    // guards current, its write offset and nextFlush; also signals the flusher
+    private final Object appendLock = new Object();
+    // signals readers waiting for new durable records
+    private final Object durableSignal = new Object();
+    private Segment current;
+    private CompletableFuture<Void> nextFlush = new CompletableFuture<>();
+    private volatile long writtenPosition;
+    private volatile long durablePosition;
+    private volatile boolean running = true;
+    private final Thread flusher;
+
+    /**
+     * @param name       used in thread names and log messages
+     * @param fsyncTimer records the duration of every group-committed force
+     */
+    public SegmentLog(String name, Path dir, DataSize segmentSize, boolean fsync, Timer fsyncTimer) {
+        this.name = name;
+        this.dir = dir;
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+        this.fsync = fsync;
+        this.fsyncTimer = fsyncTimer;
+        recover();
+        this.flusher = new Thread(this::flushLoop, name.replace(' ', '-') + "-flusher");
+        flusher.setDaemon(true);
+        if (fsync) {
+            flusher.start();
+        }
+    }
+
+    /**
+     * Appends the record; the future completes once it is durable (immediately without {@code fsync},
+     * when it is in the page cache and survives a crash of this process).
+     */
+    public CompletableFuture<Void> append(byte[] payload) {
+        int recordSize = HEADER_BYTES + payload.length;
+        if (recordSize + Integer.BYTES > segmentSize) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit a " + name + " segment");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        CompletableFuture<Void> durable;
+        synchronized (appendLock) {
+            if (!running) {
+                throw new IllegalStateException(name + " is closed");
+            }
+            // leave room for the end-of-segment marker
+            if (current.writeOffset + recordSize + Integer.BYTES > current.size) {
+                roll();
+            }
+            MappedByteBuffer buffer = current.buffer;
+            int offset = current.writeOffset;
+            buffer.putInt(offset + Integer.BYTES, (int) crc.getValue());
+            buffer.put(offset + HEADER_BYTES, payload);
+            buffer.putInt(offset, payload.length);
+            current.writeOffset += recordSize;
+            writtenPosition = current.base + current.writeOffset;
+            if (fsync) {
+                appendLock.notifyAll();
+                return nextFlush;
+            }
+            durablePosition = writtenPosition;
+            durable = DONE;
+        }
+        signalDurable();
+        return durable;
+    }
+
+    /**
+     * Up to {@code maxRecords} durable records from {@code from} on, and the position after the last of them.
+     */
+    public Batch read(long from, int maxRecords) {
+        long end = durablePosition;
+        Map.Entry<Long, Segment> first = segments.firstEntry();
+        long position = Math.max(from, first.getKey());
+        List<byte[]> records = new ArrayList<>();
+        while (records.size() < maxRecords && position < end) {
+            Segment segment = segments.floorEntry(position).getValue();
+            int offset = (int) (position - segment.base);
+            int length = offset + HEADER_BYTES <= segment.size ? segment.buffer.getInt(offset) : END_OF_SEGMENT;
+            if (length == END_OF_SEGMENT) {
+                position = segment.base + segment.size;
+                continue;
+            }
+            byte[] payload = new byte[length];
+            segment.buffer.get(offset + HEADER_BYTES, payload);
+            records.add(payload);
+            position += HEADER_BYTES + length;
+        }
+        return new Batch(records, position);
+    }
+
+    /**
+     * Waits up to {@code timeoutMs} for durable records beyond {@code position}; returns whether there are any.
+     */
+    public boolean awaitDurable(long position, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        synchronized (durableSignal) {
+            long remaining;
+            while (durablePosition <= position && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(durableSignal, remaining);
+            }
+        }
+        return durablePosition > position;
+    }
+
+    /**
+     * Deletes the segments that end at or before {@code position}; the segment being written is kept.
+     */
+    public void deleteBefore(long position) {
+        for (Segment segment : segments.values()) {
+            if (segment.base + segment.size > position || segment == current) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(segment.path);
+                segments.remove(segment.base);
+                log.debug("Deleted {} segment {}", name, segment.path.getFileName());
+            } catch (IOException e) {
+                log.warn("Failed to delete {} segment {}", name, segment.path, e);
+                return;
+            }
+        }
+    }
+
+    public long durablePosition() {
+        return durablePosition;
+    }
+
+    /**
+     * Waits until everything appended so far is durable, without waiting for the flusher's next wake-up;
+     * returns the position after the last of it.
+     */
+    public long sync() throws InterruptedException {
+        long target;
+        synchronized (appendLock) {
+            target = writtenPosition;
+            appendLock.notifyAll();
+        }
+        synchronized (durableSignal) {
+            while (durablePosition < target) {
+                durableSignal.wait();
+            }
+        }
+        return target;
+    }
+
+    public Path dir() {
+        return dir;
+    }
+
+    /**
+     * Stops accepting appends and waits until everything appended is flushed.
+     */
+    public void close() throws InterruptedException {
+        synchronized (appendLock) {
+            running = false;
+            appendLock.notifyAll();
+        }
+        if (fsync) {
+            flusher.join();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            Segment segment;
+            int from;
+            int to;
+            long target;
+            CompletableFuture<Void> flush;
+            synchronized (appendLock) {
+                while (running && writtenPosition == durablePosition) {
+                    try {
+                        appendLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (writtenPosition == durablePosition) {
+                    // closed and everything flushed
+                    return;
+                }
+                segment = current;
+                from = segment.flushedOffset;
+                to = segment.writeOffset;
+                target = writtenPosition;
+                flush = nextFlush;
+                nextFlush = new CompletableFuture<>();
+            }
+            long start = System.nanoTime();
+            try {
+                segment.buffer.force(from, to - from);
+                segment.flushedOffset = to;
+                fsyncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                durablePosition = target;
+                flush.complete(null);
+                signalDurable();
+            } catch (RuntimeException e) {
+                log.error("Failed to force {} to disk", name, e);
+                flush.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void signalDurable() {
+        synchronized (durableSignal) {
+            durableSignal.notifyAll();
+        }
+    }
+
+    // called with appendLock held
+    private void roll() {
+        current.buffer.putInt(current.writeOffset, END_OF_SEGMENT);
+        if (fsync) {
+            // the flusher only forces the current segment
+            current.buffer.force(current.flushedOffset, current.size - current.flushedOffset);
+            current.flushedOffset = current.size;
+        }
+        Segment next = map(current.base + current.size, segmentSize);
+        segments.put(next.base, next);
+        log.info("Rolled {} to segment {}", name, next.path.getFileName());
+        current = next;
+        writtenPosition = next.base;
+    }
+
+    private void recover() {
+        try {
+            Files.createDirectories(dir);
+            try (Stream<Path> files = Files.list(dir)) {
+                files.filter(file -> file.getFileName().toString().endsWith(".log"))
+                        .forEach(file -> {
+                            long base = Long.parseLong(file.getFileName().toString().replace(".log", ""));
+                            segments.put(base, map(base, (int) sizeOf(file)));
+                        });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open " + name + " in " + dir, e);
+        }
+        if (segments.isEmpty()) {
+            Segment first = map(0, segmentSize);
+            segments.put(first.base, first);
+        }
+        current = segments.lastEntry().getValue();
+        int end = validEnd(current);
+        if (end < 0) {
+            // rolled, but the next segment was never created
+            current = map(current.base + current.size, segmentSize);
+            segments.put(current.base, current);
+            end = 0;
+        }
+        // a torn record may be followed by older bytes that would parse once overwritten
+        byte[] zeros = new byte[64 * 1024];
+        for (int offset = end; offset < current.size; offset += zeros.length) {
+            current.buffer.put(offset, zeros, 0, Math.min(zeros.length, current.size - offset));
+        }
+        current.writeOffset = end;
+        current.flushedOffset = end;
+        writtenPosition = current.base + end;
+        durablePosition = writtenPosition;
+        log.info("Opened {} in {}: {} segments, position {}", name, dir, segments.size(), writtenPosition);
+    }
+
+    /**
+     * Offset after the last intact record, or -1 if the segment is closed by an end marker.
+     */
+    private static int validEnd(Segment segment) {
+        int offset = 0;
+        while (offset + HEADER_BYTES <= segment.size) {
+            int length = segment.buffer.getInt(offset);
+            if (length == END_OF_SEGMENT) {
+                return -1;
+            }
+            if (length <= 0 || offset + HEADER_BYTES + length > segment.size) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            segment.buffer.get(offset + HEADER_BYTES, payload);
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            if ((int) crc.getValue() != segment.buffer.getInt(offset + Integer.BYTES)) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        return offset;
+    }
+
+    private Segment map(long base, int size) {
+        Path path = dir.resolve(String.format("%020d.log", base));
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return new Segment(path, base, size, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map " + name + " segment " + path, e);
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records read from the log and the position to continue reading from.
+     */
+    public record Batch(List<byte[]> records, long nextPosition) {
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final long base;
+        private final int size;
+        private final MappedByteBuffer buffer;
+        private int writeOffset;
+        private int flushedOffset;
+
+        Segment(Path path, long base, int size, MappedByteBuffer buffer) {
+            this.path = path;
+            this.base = base;
+            this.size = size;
+            this.buffer = buffer;
+        }
+    }
+}
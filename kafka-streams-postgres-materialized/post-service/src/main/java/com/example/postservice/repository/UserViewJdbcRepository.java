@@ -0,0 +1,302 @@
+package com.example.postservice.repository;
+
+import com.example.postservice.domain.UserView;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Plain JDBC access to {@code user_view} for the write paths of the materializer.
+ * Upserts are sent as multi-row {@code INSERT ... ON CONFLICT} statements instead of one
+ * JPA {@code save()} (SELECT + INSERT/UPDATE) per event. Every write is guarded by the
+ * event version, so replayed or duplicated events are skipped without a prior read and
+ * without rewriting the row. A delete leaves its version in {@code user_view_tombstones}, and an
+ * upsert not newer than it is skipped too: once the row is gone there is no stored version to compare,
+ * so an update retried after the delete that followed it would otherwise bring the user back.
+ * <p>
+ * Large reads also go through here: keyset pages by {@code user_id} and a server-side cursor
+ * that hands rows to the caller one by one, neither of which goes through the persistence context.
+ * <p>
+ * For the {@code exactly-once} sink mode, {@code user_view_offsets} holds per consumer group and
+ * partition the offset of the next {@code user-events} record to apply, written in the same
+ * transaction as the view changes of the records before it.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class UserViewJdbcRepository {
+
+    // PostgreSQL allows at most 65535 bind parameters per statement (9 per row)
+    private static final int ROWS_PER_STATEMENT = 1000;
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO user_view (user_id, name, email, department, status, created_at, updated_at, version, last_processed_at) "
+            + "SELECT v.* FROM (VALUES ";
+
+    // typed, since VALUES outside of INSERT does not take the column types
+    private static final String ROW_PLACEHOLDER =
+            "(?::bigint, ?::varchar, ?::varchar, ?::varchar, ?::varchar, ?::timestamp, ?::timestamp, ?::bigint, ?::timestamp)";
+
+    private static final String UPSERT_SUFFIX = ") AS v(user_id, name, email, department, status, created_at, updated_at, version, last_processed_at) "
+            + "WHERE NOT EXISTS (SELECT 1 FROM user_view_tombstones t WHERE t.user_id = v.user_id AND t.version >= v.version) "
+            + "ON CONFLICT (user_id) DO UPDATE SET "
+            + "name = EXCLUDED.name, "
+            + "email = EXCLUDED.email, "
+            + "department = EXCLUDED.department, "
+            + "status = EXCLUDED.status, "
+            + "created_at = EXCLUDED.created_at, "
+            + "updated_at = EXCLUDED.updated_at, "
+            + "version = EXCLUDED.version, "
+            + "last_processed_at = EXCLUDED.last_processed_at "
+            + "WHERE user_view.version < EXCLUDED.version";
+
+    // records the delete version even when the row is already gone or newer, since an older upsert may still come
+    private static final String DELETE_SQL = "WITH d AS (SELECT * FROM unnest(?::bigint[], ?::bigint[]) AS d(user_id, version)), "
+            + "tombstones AS (INSERT INTO user_view_tombstones (user_id, version, deleted_at) "
+            + "SELECT user_id, version, now() FROM d "
+            + "ON CONFLICT (user_id) DO UPDATE SET version = EXCLUDED.version, deleted_at = EXCLUDED.deleted_at "
+            + "WHERE user_view_tombstones.version < EXCLUDED.version) "
+            + "DELETE FROM user_view uv USING d "
+            + "WHERE uv.user_id = d.user_id AND uv.version < d.version";
+
+    // never moves an offset back, e.g. for a late batch of a consumer that already lost the partition
+    private static final String UPSERT_OFFSETS_SQL = "INSERT INTO user_view_offsets (consumer_group, topic, partition, next_offset, updated_at) "
+            + "SELECT ?, ?, o.partition, o.next_offset, now() FROM unnest(?::int[], ?::bigint[]) AS o(partition, next_offset) "
+            + "ON CONFLICT (consumer_group, topic, partition) DO UPDATE SET "
+            + "next_offset = EXCLUDED.next_offset, "
+            + "updated_at = EXCLUDED.updated_at "
+            + "WHERE user_view_offsets.next_offset < EXCLUDED.next_offset";
+
+    private static final String SELECT_COLUMNS =
+            "SELECT user_id, name, email, department, status, created_at, updated_at, version, last_processed_at FROM user_view ";
+
+    // rows per round trip while streaming through a cursor
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private static final RowMapper<UserView> USER_VIEW_ROW_MAPPER = (rs, rowNum) -> UserView.builder()
+            .userId(rs.getLong("user_id"))
+            .name(rs.getString("name"))
+            .email(rs.getString("email"))
+            .department(rs.getString("department"))
+            .status(rs.getString("status"))
+            .createdAt(rs.getObject("created_at", LocalDateTime.class))
+            .updatedAt(rs.getObject("updated_at", LocalDateTime.class))
+            .version(rs.getLong("version"))
+            .lastProcessedAt(rs.getObject("last_processed_at", LocalDateTime.class))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Applies upserts and deletes in a single transaction and returns the number of rows
+     * actually changed. The two collections must not share user ids; callers are expected
+     * to have collapsed each user to its latest change.
+     *
+     * @param deletedVersions user id to the version of its delete event
+     */
+    public int applyBatch(Collection<UserView> upserts, Map<Long, Long> deletedVersions) {
+        Integer applied = transactionTemplate.execute(status ->
+                upsertAll(upserts) + deleteAll(deletedVersions));
+        return applied != null ? applied : 0;
+    }
+
+    /**
+     * Like {@link #applyBatch(Collection, Map)}, and in the same transaction records how far the
+     * consumer group got in each source partition.
+     *
+     * @param nextOffsets partition to the offset of the next record to apply
+     */
+    public int applyBatch(Collection<UserView> upserts, Map<Long, Long> deletedVersions,
+                          String consumerGroup, String topic, Map<Integer, Long> nextOffsets) {
+        Integer applied = transactionTemplate.execute(status -> {
+            int changed = upsertAll(upserts) + deleteAll(deletedVersions);
+            saveOffsets(consumerGroup, topic, nextOffsets);
+            return changed;
+        });
+        return applied != null ? applied : 0;
+    }
+
+    /**
+     * The offsets stored by {@link #applyBatch(Collection, Map, String, String, Map)} for the consumer
+     * group, by partition; partitions it never wrote are missing.
+     */
+    public Map<Integer, Long> findOffsets(String consumerGroup, String topic) {
+        Map<Integer, Long> offsets = new HashMap<>();
+        jdbcTemplate.query("SELECT partition, next_offset FROM user_view_offsets WHERE consumer_group = ? AND topic = ?",
+                (RowCallbackHandler) rs -> offsets.put(rs.getInt("partition"), rs.getLong("next_offset")),
+                consumerGroup, topic);
+        return offsets;
+    }
+
+    /**
+     * Creates {@code user_view_tombstones} in databases initialized before it was added to init.sql (or
+     * whose schema comes from Hibernate); every upsert reads it.
+     */
+    @PostConstruct
+    public void createTombstonesTableIfMissing() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS user_view_tombstones ("
+                + "user_id BIGINT PRIMARY KEY, "
+                + "version BIGINT NOT NULL, "
+                + "deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+    }
+
+    /**
+     * Creates {@code user_view_offsets} in databases initialized before it was added to init.sql.
+     */
+    public void createOffsetsTableIfMissing() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS user_view_offsets ("
+                + "consumer_group VARCHAR(255) NOT NULL, "
+                + "topic VARCHAR(255) NOT NULL, "
+                + "partition INT NOT NULL, "
+                + "next_offset BIGINT NOT NULL, "
+                + "updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+                + "PRIMARY KEY (consumer_group, topic, partition))");
+    }
+
+    /**
+     * Inserts or updates the given rows, skipping every row whose stored version or delete version is
+     * not older.
+     */
+    public int upsertAll(Collection<UserView> userViews) {
+        if (userViews.isEmpty()) {
+            return 0;
+        }
+        int applied = 0;
+        List<UserView> chunk = new ArrayList<>(Math.min(userViews.size(), ROWS_PER_STATEMENT));
+        for (UserView userView : userViews) {
+            chunk.add(userView);
+            if (chunk.size() == ROWS_PER_STATEMENT) {
+                applied += upsertChunk(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            applied += upsertChunk(chunk);
+        }
+        return applied;
+    }
+
+    /**
+     * Deletes the given users unless their stored row is already at or past the delete version, and
+     * records the delete versions for {@link #upsertAll(Collection)}.
+     */
+    public int deleteAll(Map<Long, Long> deletedVersions) {
+        if (deletedVersions.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(connection -> {
+            Array ids = connection.createArrayOf("bigint", deletedVersions.keySet().toArray());
+            Array versions = connection.createArrayOf("bigint", deletedVersions.values().toArray());
+            var statement = connection.prepareStatement(DELETE_SQL);
+            statement.setArray(1, ids);
+            statement.setArray(2, versions);
+            return statement;
+        });
+    }
+
+    private void saveOffsets(String consumerGroup, String topic, Map<Integer, Long> nextOffsets) {
+        if (nextOffsets.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(connection -> {
+            Array partitions = connection.createArrayOf("integer", nextOffsets.keySet().toArray());
+            Array offsets = connection.createArrayOf("bigint", nextOffsets.values().toArray());
+            var statement = connection.prepareStatement(UPSERT_OFFSETS_SQL);
+            statement.setString(1, consumerGroup);
+            statement.setString(2, topic);
+            statement.setArray(3, partitions);
+            statement.setArray(4, offsets);
+            return statement;
+        });
+    }
+
+    private int upsertChunk(List<UserView> chunk) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + chunk.size() * (ROW_PLACEHOLDER.length() + 2) + UPSERT_SUFFIX.length());
+        sql.append(INSERT_PREFIX);
+        Object[] args = new Object[chunk.size() * 9];
+        int i = 0;
+        for (UserView userView : chunk) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+            args[i++] = userView.getUserId();
+            args[i++] = userView.getName();
+            args[i++] = userView.getEmail();
+            args[i++] = userView.getDepartment();
+            args[i++] = userView.getStatus();
+            args[i++] = userView.getCreatedAt();
+            args[i++] = userView.getUpdatedAt();
+            args[i++] = userView.getVersion();
+            args[i++] = userView.getLastProcessedAt();
+        }
+        sql.append(UPSERT_SUFFIX);
+        return jdbcTemplate.update(sql.toString(), args);
+    }
+
+    /**
+     * Returns up to {@code limit} users with an id greater than {@code afterUserId} (from the first
+     * user when null) in id order, optionally restricted to one department.
+     */
+    public List<UserView> findPage(String department, Long afterUserId, int limit) {
+        long after = afterUserId != null ? afterUserId : Long.MIN_VALUE;
+        if (department == null) {
+            return jdbcTemplate.query(SELECT_COLUMNS + "WHERE user_id > ? ORDER BY user_id LIMIT ?",
+                    USER_VIEW_ROW_MAPPER, after, limit);
+        }
+        return jdbcTemplate.query(SELECT_COLUMNS + "WHERE department = ? AND user_id > ? ORDER BY user_id LIMIT ?",
+                USER_VIEW_ROW_MAPPER, department, after, limit);
+    }
+
+    /**
+     * Case-insensitive substring search on the name, ranked like {@code UserNameIndex}: exact name, prefix,
+     * start of a word, anywhere, then shorter names. The {@code LIKE} is served by
+     * {@code idx_user_view_name_trgm} (pg_trgm) rather than a sequential scan.
+     */
+    public List<UserView> searchByName(String name, int limit) {
+        String query = escapeLike(name.trim().toLowerCase(Locale.ROOT));
+        return jdbcTemplate.query(SELECT_COLUMNS + "WHERE lower(name) LIKE ? "
+                        + "ORDER BY CASE WHEN lower(name) LIKE ? THEN 0 WHEN lower(name) LIKE ? THEN 1 "
+                        + "WHEN lower(name) LIKE ? THEN 2 ELSE 3 END, length(name), user_id LIMIT ?",
+                USER_VIEW_ROW_MAPPER, "%" + query + "%", query, query + "%", "% " + query + "%", limit);
+    }
+
+    /**
+     * Passes every user (of one department when not null) to {@code action} in id order. The driver
+     * only uses a cursor inside a transaction, so the rows are read in one, {@value #STREAM_FETCH_SIZE}
+     * at a time, and memory stays flat regardless of the table size.
+     */
+    public void forEach(String department, Consumer<UserView> action) {
+        String sql = SELECT_COLUMNS + (department != null ? "WHERE department = ? " : "") + "ORDER BY user_id";
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            if (department != null) {
+                statement.setString(1, department);
+            }
+            return statement;
+        }, (RowCallbackHandler) rs -> action.accept(USER_VIEW_ROW_MAPPER.mapRow(rs, 0))));
+    }
+
+    // backslash is the default LIKE escape character in Postgres
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.postservice.repository;
+
+import com.example.postservice.domain.UserEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DDL and bulk loads for rebuilding {@code user_view} from scratch next to the live table.
+ * <p>
+ * Events are {@code COPY}ed as-is into an unlogged staging table with no indexes, collapsed to the
+ * latest version per user into the shadow table {@code user_view_rebuild}, and only then indexed,
+ * using the index definitions of the live table. {@link #swap} replaces the live table with the
+ * shadow one in a single transaction, so readers see either the old or the complete new view.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class UserViewRebuildRepository {
+
+    static final String EVENTS_TABLE = "user_view_rebuild_events";
+    static final String SHADOW_TABLE = "user_view_rebuild";
+    // appended to the live index names while they live on the shadow table
+    private static final String INDEX_SUFFIX = "_rebuild";
+
+    private static final String COPY_EVENTS_SQL = "COPY " + EVENTS_TABLE
+            + " (user_id, version, deleted, name, email, department, status, created_at, updated_at) FROM STDIN (FORMAT csv)";
+
+    // Latest event per user; a delete wins over an upsert of the same version
+    private static final String FILL_SHADOW_SQL = "INSERT INTO " + SHADOW_TABLE
+            + " (user_id, name, email, department, status, created_at, updated_at, version, last_processed_at) "
+            + "SELECT user_id, name, email, department, status, created_at, updated_at, version, LOCALTIMESTAMP "
+            + "FROM (SELECT DISTINCT ON (user_id) * FROM " + EVENTS_TABLE + " ORDER BY user_id, version DESC, deleted DESC) latest "
+            + "WHERE NOT deleted";
+
+    private static final String LIVE_INDEXES_SQL = "SELECT i.relname AS index_name, pg_get_indexdef(x.indexrelid) AS index_def, "
+            + "x.indisprimary AS is_primary FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid "
+            + "WHERE x.indrelid = 'user_view'::regclass";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Drops what a previous, interrupted rebuild may have left and creates an empty staging table.
+     */
+    public void prepare() {
+        dropShadowTables();
+        jdbcTemplate.execute("CREATE UNLOGGED TABLE " + EVENTS_TABLE + " ("
+                + "user_id BIGINT NOT NULL, version BIGINT NOT NULL, deleted BOOLEAN NOT NULL, "
+                + "name VARCHAR(255), email VARCHAR(255), department VARCHAR(255), status VARCHAR(50), "
+                + "created_at TIMESTAMP, updated_at TIMESTAMP)");
+    }
+
+    public void dropShadowTables() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + EVENTS_TABLE);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW_TABLE);
+    }
+
+    /**
+     * Appends the events to the staging table with one {@code COPY} and returns the number of rows written.
+     * Callers pass only creates and updates that carry a user, and deletes.
+     */
+    public long copyEvents(List<UserEvent> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        StringBuilder csv = new StringBuilder(events.size() * 128);
+        for (UserEvent event : events) {
+            appendCsvRow(csv, event);
+        }
+        Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_EVENTS_SQL, new StringReader(csv.toString()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return copied != null ? copied : 0;
+    }
+
+    /**
+     * Creates the shadow table with the columns and defaults (but no indexes) of {@code user_view},
+     * fills it with the latest state of every user still present, drops the staging table and
+     * returns the number of users.
+     */
+    public int buildShadowTable() {
+        jdbcTemplate.execute("CREATE TABLE " + SHADOW_TABLE + " (LIKE user_view INCLUDING DEFAULTS)");
+        int rows = jdbcTemplate.update(FILL_SHADOW_SQL);
+        jdbcTemplate.execute("DROP TABLE " + EVENTS_TABLE);
+        return rows;
+    }
+
+    /**
+     * Builds every index of {@code user_view}, including its primary key, on the filled shadow table.
+     */
+    public void buildIndexes() {
+        for (Map<String, Object> index : jdbcTemplate.queryForList(LIVE_INDEXES_SQL)) {
+            String name = (String) index.get("index_name");
+            String definition = ((String) index.get("index_def"))
+                    .replaceFirst(" INDEX " + name + " ON ", " INDEX " + name + INDEX_SUFFIX + " ON ")
+                    .replaceFirst(" ON (\\S+\\.)?user_view USING ", " ON $1" + SHADOW_TABLE + " USING ");
+            long start = System.nanoTime();
+            jdbcTemplate.execute(definition);
+            if (Boolean.TRUE.equals(index.get("is_primary"))) {
+                jdbcTemplate.execute("ALTER TABLE " + SHADOW_TABLE + " ADD CONSTRAINT " + name + INDEX_SUFFIX
+                        + " PRIMARY KEY USING INDEX " + name + INDEX_SUFFIX);
+            }
+            log.info("Built index {} on {} in {} ms", name + INDEX_SUFFIX, SHADOW_TABLE, (System.nanoTime() - start) / 1_000_000);
+        }
+        jdbcTemplate.execute("ANALYZE " + SHADOW_TABLE);
+    }
+
+    /**
+     * Replaces {@code user_view} with the shadow table in one transaction. The live table is locked
+     * first, so writers and readers wait for the swap instead of seeing a partial view; statements
+     * blocked on the lock resolve the name again and continue against the new table.
+     * {@code catchUp} runs after the rename, inside the same transaction and before the department
+     * statistics are recomputed, to apply the events that arrived while the shadow table was built.
+     *
+     * @param lockTimeout Postgres interval literal, e.g. {@code 10s}; the swap fails rather than queueing
+     *                    every other session behind it while a long transaction holds the table
+     */
+    public void swap(String lockTimeout, Runnable catchUp) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("SET LOCAL lock_timeout = '" + lockTimeout.replace("'", "") + "'");
+            jdbcTemplate.execute("LOCK TABLE user_view IN ACCESS EXCLUSIVE MODE");
+            List<String> indexNames = jdbcTemplate.queryForList(
+                    "SELECT i.relname FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid WHERE x.indrelid = ?::regclass",
+                    String.class, SHADOW_TABLE);
+
+            jdbcTemplate.execute("DROP TABLE user_view");
+            jdbcTemplate.execute("ALTER TABLE " + SHADOW_TABLE + " RENAME TO user_view");
+            for (String indexName : indexNames) {
+                // renaming a constraint's index renames the constraint as well
+                jdbcTemplate.execute("ALTER INDEX " + indexName + " RENAME TO "
+                        + indexName.substring(0, indexName.length() - INDEX_SUFFIX.length()));
+            }
+
+            catchUp.run();
+            jdbcTemplate.execute("SELECT attach_department_stats_triggers()");
+            jdbcTemplate.execute("SELECT rebuild_department_stats()");
+        });
+    }
+
+    private static void appendCsvRow(StringBuilder csv, UserEvent event) {
+        UserEvent.User user = event.getUser();
+        boolean deleted = "USER_DELETED".equals(event.getEventType());
+        csv.append(event.getUserId()).append(',')
+                .append(event.getVersion() != null ? event.getVersion() : 0L).append(',')
+                .append(deleted);
+        appendCsvValue(csv, deleted ? null : user.getName());
+        appendCsvValue(csv, deleted ? null : user.getEmail());
+        appendCsvValue(csv, deleted ? null : user.getDepartment());
+        appendCsvValue(csv, deleted ? null : user.getStatus());
+        appendCsvValue(csv, deleted ? null : user.getCreatedAt());
+        appendCsvValue(csv, deleted ? null : user.getUpdatedAt());
+        csv.append('\n');
+    }
+
+    // Unquoted empty is NULL in CSV COPY; everything else is quoted with embedded quotes doubled
+    private static void appendCsvValue(StringBuilder csv, Object value) {
+        csv.append(',');
+        if (value == null) {
+            return;
+        }
+        String text = value instanceof LocalDateTime dateTime ? dateTime.toString() : value.toString();
+        csv.append('"').append(text.replace("\"", "\"\"")).append('"');
+    }
+}
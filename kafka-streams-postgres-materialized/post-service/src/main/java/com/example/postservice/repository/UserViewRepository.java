@@ -16,7 +16,4 @@ public interface UserViewRepository extends JpaRepository<UserView, Long> {
     
     @Query("SELECT uv FROM UserView uv WHERE uv.status = :status")
     List<UserView> findByStatus(@Param("status") String status);
-    
-    @Query("SELECT uv FROM UserView uv WHERE uv.name LIKE %:name%")
-    List<UserView> findByNameContaining(@Param("name") String name);
 } 
\ No newline at end of file
@@ -0,0 +1,314 @@
+package com.example.postservice.serde;
+
+import com.example.postservice.domain.UserEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Serde for {@code user-events} values. Writes a compact binary encoding (see below) and reads
+ * both that encoding and the JSON records written by earlier versions, so old offsets still replay.
+ * Must stay byte-compatible with the serde of the same name in user-service.
+ *
+ * <pre>
+ * magic(0xB1) formatVersion(1) flags eventType [eventTypeName] [userId] [version] [timestamp] [user]
+ *
+ * user:      flags [id] [name] [email] [department] [status] [createdAt] [updatedAt] [version]
+ * integers:  unsigned LEB128 varints (zig-zag for signed values)
+ * strings:   varint byte length + UTF-8
+ * datetimes: zig-zag varint epoch second (as UTC) + varint nano of second
+ * </pre>
+ */
+public class UserEventSerde implements Serde<UserEvent> {
+    
+    static final byte MAGIC = (byte) 0xB1;
+    static final byte FORMAT_VERSION = 1;
+    
+    private static final String[] EVENT_TYPES = {null, "USER_CREATED", "USER_UPDATED", "USER_DELETED"};
+    
+    private static final int HAS_USER_ID = 1;
+    private static final int HAS_VERSION = 1 << 1;
+    private static final int HAS_TIMESTAMP = 1 << 2;
+    private static final int HAS_USER = 1 << 3;
+    
+    private static final int USER_HAS_ID = 1;
+    private static final int USER_ID_IS_EVENT_USER_ID = 1 << 1;
+    private static final int USER_HAS_NAME = 1 << 2;
+    private static final int USER_HAS_EMAIL = 1 << 3;
+    private static final int USER_HAS_DEPARTMENT = 1 << 4;
+    private static final int USER_HAS_STATUS = 1 << 5;
+    private static final int USER_HAS_CREATED_AT = 1 << 6;
+    private static final int USER_HAS_UPDATED_AT = 1 << 7;
+    private static final int USER_HAS_VERSION = 1 << 8;
+    
+    private final ObjectMapper objectMapper;
+    
+    /**
+     * @param objectMapper used to read legacy JSON records; must have the JSR-310 module registered
+     */
+    public UserEventSerde(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+    
+    @Override
+    public Serializer<UserEvent> serializer() {
+        return (topic, event) -> event == null ? null : encode(event);
+    }
+    
+    @Override
+    public Deserializer<UserEvent> deserializer() {
+        return (topic, bytes) -> bytes == null ? null : decode(bytes);
+    }
+    
+    public byte[] encode(UserEvent event) {
+        Output out = new Output(96);
+        out.writeByte(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        
+        int flags = (event.getUserId() != null ? HAS_USER_ID : 0)
+                | (event.getVersion() != null ? HAS_VERSION : 0)
+                | (event.getTimestamp() != null ? HAS_TIMESTAMP : 0)
+                | (event.getUser() != null ? HAS_USER : 0);
+        out.writeByte(flags);
+        
+        int eventTypeCode = Arrays.asList(EVENT_TYPES).indexOf(event.getEventType());
+        if (eventTypeCode > 0) {
+            out.writeByte(eventTypeCode);
+        } else {
+            out.writeByte(0);
+            out.writeString(event.getEventType() != null ? event.getEventType() : "");
+        }
+        if (event.getUserId() != null) {
+            out.writeSignedVarLong(event.getUserId());
+        }
+        if (event.getVersion() != null) {
+            out.writeSignedVarLong(event.getVersion());
+        }
+        if (event.getTimestamp() != null) {
+            out.writeDateTime(event.getTimestamp());
+        }
+        if (event.getUser() != null) {
+            writeUser(out, event.getUser(), event.getUserId());
+        }
+        return out.toByteArray();
+    }
+    
+    public UserEvent decode(byte[] bytes) {
+        if (bytes.length == 0 || bytes[0] != MAGIC) {
+            return decodeJson(bytes);
+        }
+        Input in = new Input(bytes);
+        in.readByte();
+        int formatVersion = in.readByte();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new SerializationException("Unsupported UserEvent format version: " + formatVersion);
+        }
+        
+        int flags = in.readByte();
+        int eventTypeCode = in.readByte();
+        UserEvent event = new UserEvent();
+        event.setEventType(eventTypeCode > 0 && eventTypeCode < EVENT_TYPES.length
+                ? EVENT_TYPES[eventTypeCode] : in.readString());
+        if ((flags & HAS_USER_ID) != 0) {
+            event.setUserId(in.readSignedVarLong());
+        }
+        if ((flags & HAS_VERSION) != 0) {
+            event.setVersion(in.readSignedVarLong());
+        }
+        if ((flags & HAS_TIMESTAMP) != 0) {
+            event.setTimestamp(in.readDateTime());
+        }
+        if ((flags & HAS_USER) != 0) {
+            event.setUser(readUser(in, event.getUserId()));
+        }
+        return event;
+    }
+    
+    private void writeUser(Output out, UserEvent.User user, Long eventUserId) {
+        boolean sameId = user.getId() != null && user.getId().equals(eventUserId);
+        int flags = (user.getId() != null ? USER_HAS_ID : 0)
+                | (sameId ? USER_ID_IS_EVENT_USER_ID : 0)
+                | (user.getName() != null ? USER_HAS_NAME : 0)
+                | (user.getEmail() != null ? USER_HAS_EMAIL : 0)
+                | (user.getDepartment() != null ? USER_HAS_DEPARTMENT : 0)
+                | (user.getStatus() != null ? USER_HAS_STATUS : 0)
+                | (user.getCreatedAt() != null ? USER_HAS_CREATED_AT : 0)
+                | (user.getUpdatedAt() != null ? USER_HAS_UPDATED_AT : 0)
+                | (user.getVersion() != null ? USER_HAS_VERSION : 0);
+        out.writeVarLong(flags);
+        if (user.getId() != null && !sameId) {
+            out.writeSignedVarLong(user.getId());
+        }
+        if (user.getName() != null) {
+            out.writeString(user.getName());
+        }
+        if (user.getEmail() != null) {
+            out.writeString(user.getEmail());
+        }
+        if (user.getDepartment() != null) {
+            out.writeString(user.getDepartment());
+        }
+        if (user.getStatus() != null) {
+            out.writeString(user.getStatus());
+        }
+        if (user.getCreatedAt() != null) {
+            out.writeDateTime(user.getCreatedAt());
+        }
+        if (user.getUpdatedAt() != null) {
+            out.writeDateTime(user.getUpdatedAt());
+        }
+        if (user.getVersion() != null) {
+            out.writeSignedVarLong(user.getVersion());
+        }
+    }
+    
+    private UserEvent.User readUser(Input in, Long eventUserId) {
+        int flags = (int) in.readVarLong();
+        UserEvent.User user = new UserEvent.User();
+        if ((flags & USER_ID_IS_EVENT_USER_ID) != 0) {
+            user.setId(eventUserId);
+        } else if ((flags & USER_HAS_ID) != 0) {
+            user.setId(in.readSignedVarLong());
+        }
+        if ((flags & USER_HAS_NAME) != 0) {
+            user.setName(in.readString());
+        }
+        if ((flags & USER_HAS_EMAIL) != 0) {
+            user.setEmail(in.readString());
+        }
+        if ((flags & USER_HAS_DEPARTMENT) != 0) {
+            user.setDepartment(in.readString());
+        }
+        if ((flags & USER_HAS_STATUS) != 0) {
+            user.setStatus(in.readString());
+        }
+        if ((flags & USER_HAS_CREATED_AT) != 0) {
+            user.setCreatedAt(in.readDateTime());
+        }
+        if ((flags & USER_HAS_UPDATED_AT) != 0) {
+            user.setUpdatedAt(in.readDateTime());
+        }
+        if ((flags & USER_HAS_VERSION) != 0) {
+            user.setVersion(in.readSignedVarLong());
+        }
+        return user;
+    }
+    
+    private UserEvent decodeJson(byte[] bytes) {
+        try {
+            return objectMapper.readValue(bytes, UserEvent.class);
+        } catch (Exception e) {
+            throw new SerializationException("Cannot decode user event", e);
+        }
+    }
+    
+    private static final class Output {
+        
+        private byte[] buffer;
+        private int position;
+        
+        Output(int initialCapacity) {
+            buffer = new byte[initialCapacity];
+        }
+        
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+        
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+        
+        void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+        
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(utf8.length);
+            ensureCapacity(utf8.length);
+            System.arraycopy(utf8, 0, buffer, position, utf8.length);
+            position += utf8.length;
+        }
+        
+        void writeDateTime(LocalDateTime value) {
+            writeSignedVarLong(value.toEpochSecond(ZoneOffset.UTC));
+            writeVarLong(value.getNano());
+        }
+        
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+        
+        private void ensureCapacity(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+    
+    private static final class Input {
+        
+        private final byte[] buffer;
+        private int position;
+        
+        Input(byte[] buffer) {
+            this.buffer = buffer;
+        }
+        
+        int readByte() {
+            checkAvailable(1);
+            return buffer[position++] & 0xFF;
+        }
+        
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Malformed varint in user event");
+        }
+        
+        long readSignedVarLong() {
+            long raw = readVarLong();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+        
+        String readString() {
+            int length = (int) readVarLong();
+            checkAvailable(length);
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+        
+        LocalDateTime readDateTime() {
+            long epochSecond = readSignedVarLong();
+            int nano = (int) readVarLong();
+            return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+        }
+        
+        private void checkAvailable(int length) {
+            if (length < 0 || position + length > buffer.length) {
+                throw new SerializationException("Truncated user event");
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.postservice.service;
+
+import com.example.postservice.domain.Post;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Posts enriched with their author at write time ({@code post.enrichment.mode=write-time}). Changes are
+ * published as they are made and come back enriched once the streams topology has joined them, so
+ * reads may briefly see an older copy or none at all.
+ */
+public interface EnrichedPostProjection {
+    
+    void publish(Post post);
+    
+    void publishDelete(Long postId);
+    
+    /**
+     * Enriched copies of the posts that have been projected; others are absent from the returned map.
+     */
+    Map<Long, Post> findAllById(Collection<Long> postIds);
+}
@@ -0,0 +1,100 @@
+package com.example.postservice.service;
+
+import com.example.postservice.domain.Post;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Secondary indexes of the post store: author id → posts and department → posts, each in id order,
+ * so filtered queries cost time proportional to their result instead of the number of posts. The
+ * entries hold the posts themselves, so a query does not go back to the post store per id.
+ * <p>
+ * A post's department is its author's, so departments are tracked per author together with the user
+ * view version they were seen at; a newer version with another department moves all of the author's
+ * posts at once. All changes for one author run inside {@code authors.compute} for that author, which
+ * serializes them without a global lock.
+ */
+final class PostIndex {
+
+    private final ConcurrentMap<Long, ConcurrentNavigableMap<Long, Post>> postsByAuthor = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentNavigableMap<Long, Post>> postsByDepartment = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, AuthorDepartment> authors = new ConcurrentHashMap<>();
+
+    void add(Post post) {
+        if (post.getAuthorId() == null) {
+            return;
+        }
+        authors.compute(post.getAuthorId(), (authorId, author) -> {
+            postsByAuthor.computeIfAbsent(authorId, key -> new ConcurrentSkipListMap<>()).put(post.getId(), post);
+            if (author != null && author.department() != null) {
+                departmentPosts(author.department()).put(post.getId(), post);
+            }
+            return author;
+        });
+    }
+
+    void remove(Post post) {
+        if (post.getAuthorId() == null) {
+            return;
+        }
+        authors.compute(post.getAuthorId(), (authorId, author) -> {
+            Map<Long, Post> authorPosts = postsByAuthor.get(authorId);
+            if (authorPosts != null) {
+                authorPosts.remove(post.getId());
+            }
+            if (author != null && author.department() != null) {
+                departmentPosts(author.department()).remove(post.getId());
+            }
+            return author;
+        });
+    }
+
+    /**
+     * Records the author's department as of {@code version} (null when the author was deleted),
+     * ignoring versions older than the one already recorded.
+     */
+    void updateAuthor(Long authorId, String department, Long version) {
+        long newVersion = version != null ? version : 0L;
+        authors.compute(authorId, (id, author) -> {
+            if (author != null && author.version() > newVersion) {
+                return author;
+            }
+            String previous = author != null ? author.department() : null;
+            if (!Objects.equals(previous, department)) {
+                for (Post post : postsByAuthor(id)) {
+                    if (previous != null) {
+                        departmentPosts(previous).remove(post.getId());
+                    }
+                    if (department != null) {
+                        departmentPosts(department).put(post.getId(), post);
+                    }
+                }
+            }
+            return new AuthorDepartment(department, newVersion);
+        });
+    }
+
+    Collection<Post> postsByAuthor(Long authorId) {
+        Map<Long, Post> posts = postsByAuthor.get(authorId);
+        return posts != null ? posts.values() : List.of();
+    }
+
+    Collection<Post> postsByDepartment(String department) {
+        Map<Long, Post> posts = postsByDepartment.get(department);
+        return posts != null ? posts.values() : List.of();
+    }
+
+    private Map<Long, Post> departmentPosts(String department) {
+        return postsByDepartment.computeIfAbsent(department, key -> new ConcurrentSkipListMap<>());
+    }
+
+    private record AuthorDepartment(String department, long version) {
+    }
+}
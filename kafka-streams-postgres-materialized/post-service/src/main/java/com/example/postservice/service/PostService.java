@@ -2,27 +2,86 @@ package com.example.postservice.service;
 
 import com.example.postservice.domain.Post;
 import com.example.postservice.domain.UserView;
-import com.example.postservice.repository.UserViewRepository;
-import lombok.RequiredArgsConstructor;
+import com.example.postservice.persistence.PostStorePersistence;
+import com.example.postservice.streams.AuthorDepartmentFeed;
+import com.example.postservice.streams.AuthorDepartmentListener;
+import com.example.postservice.streams.UserViewProjectionListener;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/**
+ * In-memory post store. Author and department queries go through {@link PostIndex}; the department
+ * of each author's posts follows the user view, from the department changes every instance receives
+ * through {@link AuthorDepartmentFeed}, from projected {@code user-events} and from the authors resolved
+ * while serving posts.
+ * <p>
+ * With an {@link EnrichedPostProjection} (write-time enrichment) every change is also published, and
+ * reads return the projected copies, falling back to read-time enrichment for posts whose current
+ * version has not been projected yet.
+ * <p>
+ * With {@link PostStorePersistence} the posts survive restarts: they are restored before the service
+ * is used, and every change is logged under the post's write lock, which also keeps concurrent changes
+ * of one post from interleaving between the store and the index.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
-public class PostService {
+public class PostService implements UserViewProjectionListener, AuthorDepartmentListener {
     
-    private final UserViewRepository userViewRepository;
-    private final Map<Long, Post> postStore = new ConcurrentHashMap<>();
+    private final UserViewLookup userViewLookup;
+    // null with read-time enrichment
+    private final EnrichedPostProjection enrichedPostProjection;
+    // ordered by id so list endpoints can page with a keyset cursor
+    private final ConcurrentNavigableMap<Long, Post> postStore = new ConcurrentSkipListMap<>();
+    private final PostIndex postIndex = new PostIndex();
     private final AtomicLong idGenerator = new AtomicLong(1);
+    // null when posts are kept in memory only
+    private final PostStorePersistence persistence;
+    private final Object[] writeLocks = new Object[WRITE_LOCK_STRIPES];
+    
+    private static final int STREAM_PAGE_SIZE = 1000;
+    private static final int WRITE_LOCK_STRIPES = 256;
+    
+    @Autowired
+    public PostService(UserViewLookup userViewLookup,
+                       Optional<EnrichedPostProjection> enrichedPostProjection,
+                       Optional<PostStorePersistence> persistence) {
+        this.userViewLookup = userViewLookup;
+        this.enrichedPostProjection = enrichedPostProjection.orElse(null);
+        this.persistence = persistence.orElse(null);
+        for (int i = 0; i < writeLocks.length; i++) {
+            writeLocks[i] = new Object();
+        }
+        if (this.persistence != null) {
+            restore();
+            this.persistence.start(action -> postStore.values().forEach(action), idGenerator::get);
+        }
+    }
+    
+    public PostService(UserViewLookup userViewLookup, Optional<EnrichedPostProjection> enrichedPostProjection) {
+        this(userViewLookup, enrichedPostProjection, Optional.empty());
+    }
+    
+    /**
+     * Read-time enrichment only.
+     */
+    public PostService(UserViewLookup userViewLookup) {
+        this(userViewLookup, Optional.empty());
+    }
     
     public Post createPost(Post post) {
         Long id = idGenerator.getAndIncrement();
@@ -31,35 +90,67 @@ public class PostService {
         post.setUpdatedAt(LocalDateTime.now());
         
         // Enrich with user information from materialized view
-        enrichPostWithUserInfo(post);
+        observeAuthor(enrichPostWithUserInfo(post));
         
-        postStore.put(id, post);
+        synchronized (writeLock(id)) {
+            postStore.put(id, post);
+            postIndex.add(post);
+            if (persistence != null) {
+                persistence.appendPut(post);
+            }
+        }
+        if (enrichedPostProjection != null) {
+            enrichedPostProjection.publish(post);
+        }
         log.info("Post created: {}", post);
         return post;
     }
     
     public Post updatePost(Long id, Post updatePost) {
-        Post existingPost = postStore.get(id);
-        if (existingPost == null) {
+        if (!postStore.containsKey(id)) {
             throw new RuntimeException("Post not found: " + id);
         }
         
         updatePost.setId(id);
-        updatePost.setCreatedAt(existingPost.getCreatedAt());
         updatePost.setUpdatedAt(LocalDateTime.now());
         
         // Enrich with user information from materialized view
-        enrichPostWithUserInfo(updatePost);
+        observeAuthor(enrichPostWithUserInfo(updatePost));
         
-        postStore.put(id, updatePost);
+        synchronized (writeLock(id)) {
+            // looked up again: the post may have been deleted during the enrichment
+            Post existingPost = postStore.get(id);
+            if (existingPost == null) {
+                throw new RuntimeException("Post not found: " + id);
+            }
+            updatePost.setCreatedAt(existingPost.getCreatedAt());
+            postStore.put(id, updatePost);
+            postIndex.remove(existingPost);
+            postIndex.add(updatePost);
+            if (persistence != null) {
+                persistence.appendPut(updatePost);
+            }
+        }
+        if (enrichedPostProjection != null) {
+            enrichedPostProjection.publish(updatePost);
+        }
         log.info("Post updated: {}", updatePost);
         return updatePost;
     }
     
     public void deletePost(Long id) {
-        Post post = postStore.remove(id);
-        if (post == null) {
-            throw new RuntimeException("Post not found: " + id);
+        synchronized (writeLock(id)) {
+            Post post = postStore.remove(id);
+            if (post == null) {
+                throw new RuntimeException("Post not found: " + id);
+            }
+            postIndex.remove(post);
+            if (persistence != null) {
+                persistence.appendDelete(id);
+            }
+        }
+        if (enrichedPostProjection != null) {
+            enrichedPostProjection.publishDelete(id);
         }
         log.info("Post deleted: {}", id);
     }
@@ -70,45 +161,182 @@ public class PostService {
             throw new RuntimeException("Post not found: " + id);
         }
         
+        if (enrichedPostProjection != null) {
+            return resolve(List.of(post)).get(0);
+        }
+        
         // Refresh user information from materialized view
-        enrichPostWithUserInfo(post);
+        observeAuthor(enrichPostWithUserInfo(post));
         return post;
     }
     
     public List<Post> getAllPosts() {
-        return postStore.values().stream()
-                .map(post -> {
-                    // Refresh user information from materialized view
-                    enrichPostWithUserInfo(post);
-                    return post;
-                })
-                .collect(Collectors.toList());
+        return resolve(List.copyOf(postStore.values()));
+    }
+    
+    /**
+     * Up to {@code limit} posts with an id greater than {@code afterId} (from the first post when null), in id order.
+     */
+    public List<Post> getPostsPage(Long afterId, int limit) {
+        Map<Long, Post> tail = afterId != null ? postStore.tailMap(afterId, false) : postStore;
+        List<Post> posts = tail.values().stream()
+                .limit(limit)
+                .toList();
+        return resolve(posts);
+    }
+    
+    /**
+     * Visits every post in id order, enriching one page at a time instead of copying the whole store.
+     */
+    public void forEachPost(Consumer<Post> action) {
+        Long after = null;
+        List<Post> page;
+        do {
+            page = getPostsPage(after, STREAM_PAGE_SIZE);
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+    
+    /**
+     * Posts of one author in id order.
+     */
+    public List<Post> getPostsByAuthor(Long authorId) {
+        List<Post> posts = List.copyOf(postIndex.postsByAuthor(authorId));
+        if (enrichedPostProjection != null) {
+            return resolve(posts);
+        }
+        if (!posts.isEmpty()) {
+            UserView author = userViewLookup.findById(authorId).orElse(null);
+            observeAuthor(author);
+            posts.forEach(post -> applyUserInfo(post, author));
+        }
+        return posts;
     }
     
+    /**
+     * Posts whose author is in the department, in id order. Candidates come from the department index,
+     * which learns moves on every instance from {@link AuthorDepartmentFeed}, and are checked against the
+     * authors' current view, which drops authors who moved out before the feed caught up and corrects the
+     * index for them.
+     */
     public List<Post> getPostsByDepartment(String department) {
-        List<UserView> users = userViewRepository.findByDepartment(department);
-        List<Long> userIds = users.stream().map(UserView::getUserId).collect(Collectors.toList());
-        
-        return postStore.values().stream()
-                .filter(post -> userIds.contains(post.getAuthorId()))
-                .map(post -> {
-                    enrichPostWithUserInfo(post);
-                    return post;
+        List<Post> candidates = List.copyOf(postIndex.postsByDepartment(department));
+        if (enrichedPostProjection != null) {
+            return resolve(candidates).stream()
+                    .filter(post -> department.equals(post.getAuthorDepartment()))
+                    .collect(Collectors.toList());
+        }
+        Map<Long, UserView> authors = enrichAll(candidates);
+        authors.values().stream()
+                .filter(author -> !department.equals(author.getDepartment()))
+                .forEach(this::observeAuthor);
+        return candidates.stream()
+                .filter(post -> {
+                    UserView author = authors.get(post.getAuthorId());
+                    return author != null && department.equals(author.getDepartment());
                 })
                 .collect(Collectors.toList());
     }
     
-    private void enrichPostWithUserInfo(Post post) {
-        if (post.getAuthorId() != null) {
-            Optional<UserView> userView = userViewRepository.findById(post.getAuthorId());
-            if (userView.isPresent()) {
-                UserView user = userView.get();
-                post.setAuthorName(user.getName());
-                post.setAuthorEmail(user.getEmail());
-                post.setAuthorDepartment(user.getDepartment());
+    @Override
+    public void onUpserted(UserView userView) {
+        observeAuthor(userView);
+    }
+    
+    @Override
+    public void onDeleted(Long userId, long version) {
+        postIndex.updateAuthor(userId, null, version);
+    }
+    
+    @Override
+    public void onAuthorDepartment(Long authorId, String department, long version) {
+        postIndex.updateAuthor(authorId, department, version);
+    }
+    
+    /**
+     * Loads the persisted posts and rebuilds the index; authors' departments start from the ones stored
+     * with their posts, and any user view version replaces them.
+     */
+    private void restore() {
+        idGenerator.set(persistence.restore(postStore));
+        Map<Long, String> departments = new HashMap<>();
+        for (Post post : postStore.values()) {
+            postIndex.add(post);
+            if (post.getAuthorId() != null && post.getAuthorDepartment() != null) {
+                departments.put(post.getAuthorId(), post.getAuthorDepartment());
+            }
+        }
+        departments.forEach((authorId, department) -> postIndex.updateAuthor(authorId, department, 0L));
+    }
+    
+    private Object writeLock(long id) {
+        return writeLocks[(int) (id & (WRITE_LOCK_STRIPES - 1))];
+    }
+    
+    private void observeAuthor(UserView author) {
+        if (author != null) {
+            postIndex.updateAuthor(author.getUserId(), author.getDepartment(), author.getVersion());
+        }
+    }
+    
+    /**
+     * The posts with their author fields: the write-time enriched copies where they match the stored
+     * version, the stored posts enriched here with one batched user lookup otherwise.
+     */
+    private List<Post> resolve(List<Post> posts) {
+        if (enrichedPostProjection == null) {
+            enrichAll(posts);
+            return posts;
+        }
+        Map<Long, Post> projected = enrichedPostProjection.findAllById(posts.stream().map(Post::getId).toList());
+        List<Post> resolved = new ArrayList<>(posts.size());
+        List<Post> notProjected = new ArrayList<>();
+        for (Post post : posts) {
+            Post copy = projected.get(post.getId());
+            if (copy != null && Objects.equals(copy.getUpdatedAt(), post.getUpdatedAt())) {
+                resolved.add(copy);
             } else {
-                log.warn("User not found in materialized view: {}", post.getAuthorId());
+                resolved.add(post);
+                notProjected.add(post);
             }
         }
+        if (!notProjected.isEmpty()) {
+            enrichAll(notProjected);
+        }
+        return resolved;
+    }
+    
+    private Map<Long, UserView> enrichAll(List<Post> posts) {
+        // Resolve every distinct author once instead of one lookup per post
+        Set<Long> authorIds = posts.stream()
+                .map(Post::getAuthorId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, UserView> authors = userViewLookup.findAllById(authorIds);
+        
+        posts.forEach(post -> applyUserInfo(post, authors.get(post.getAuthorId())));
+        return authors;
+    }
+    
+    private UserView enrichPostWithUserInfo(Post post) {
+        if (post.getAuthorId() == null) {
+            return null;
+        }
+        UserView author = userViewLookup.findById(post.getAuthorId()).orElse(null);
+        applyUserInfo(post, author);
+        return author;
+    }
+    
+    private void applyUserInfo(Post post, UserView user) {
+        if (user != null) {
+            post.setAuthorName(user.getName());
+            post.setAuthorEmail(user.getEmail());
+            post.setAuthorDepartment(user.getDepartment());
+        } else if (post.getAuthorId() != null) {
+            log.debug("User not found in materialized view: {}", post.getAuthorId());
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package com.example.postservice.service;
+
+import com.example.postservice.domain.UserView;
+import com.example.postservice.repository.UserViewJdbcRepository;
+import com.example.postservice.repository.UserViewRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+@Service
+@ConditionalOnProperty(name = "user-view.read-source", havingValue = "postgres")
+@RequiredArgsConstructor
+public class PostgresUserViewLookup implements UserViewLookup {
+    
+    private final UserViewRepository userViewRepository;
+    private final UserViewJdbcRepository userViewJdbcRepository;
+    private final UserViewCache userViewCache;
+    
+    @Override
+    public Optional<UserView> findById(Long userId) {
+        return userViewCache.findById(userId);
+    }
+    
+    @Override
+    public Map<Long, UserView> findAllById(Collection<Long> userIds) {
+        return userViewCache.findAllById(userIds);
+    }
+    
+    @Override
+    public List<UserView> findAll() {
+        return userViewRepository.findAll();
+    }
+    
+    @Override
+    public List<UserView> findByDepartment(String department) {
+        return userViewRepository.findByDepartment(department);
+    }
+    
+    @Override
+    public List<UserView> findPage(String department, Long afterUserId, int limit) {
+        return userViewJdbcRepository.findPage(department, afterUserId, limit);
+    }
+    
+    @Override
+    public List<UserView> searchByName(String name, int limit) {
+        return userViewJdbcRepository.searchByName(name, limit);
+    }
+    
+    @Override
+    public void forEach(String department, Consumer<UserView> action) {
+        // one server-side cursor instead of a query per page
+        userViewJdbcRepository.forEach(department, action);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.postservice.service;
+
+import com.example.postservice.domain.UserView;
+import com.example.postservice.repository.UserViewRepository;
+import com.example.postservice.streams.UserViewProjectionListener;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Bounded (W-TinyLFU) near-cache in front of {@link UserViewRepository#findById}. Missing users are
+ * cached as well, with a shorter TTL. The streams processor refreshes updated entries in place and
+ * evicts deleted ones after each projection commit, so hot authors are not reloaded from Postgres
+ * just because they changed; the TTL only bounds staleness for changes applied by other instances.
+ * Hit/miss/eviction metrics are published as {@code cache.*{cache=userView}}.
+ */
+@Component
+@Slf4j
+public class UserViewCache implements UserViewProjectionListener {
+    
+    // Ids per IN (...) query when loading misses in bulk
+    private static final int LOAD_CHUNK_SIZE = 1000;
+    
+    private final UserViewRepository userViewRepository;
+    private final Cache<Long, Optional<UserView>> cache;
+    
+    public UserViewCache(UserViewRepository userViewRepository,
+                         MeterRegistry meterRegistry,
+                         @Value("${user-view.cache.maximum-size:100000}") long maximumSize,
+                         @Value("${user-view.cache.expire-after-write:5m}") Duration expireAfterWrite,
+                         @Value("${user-view.cache.negative-ttl:30s}") Duration negativeTtl) {
+        this.userViewRepository = userViewRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new PresenceExpiry(expireAfterWrite.toNanos(), negativeTtl.toNanos()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userView");
+    }
+    
+    public Optional<UserView> findById(Long userId) {
+        return cache.get(userId, this::load);
+    }
+    
+    /**
+     * Returns the cached users and loads all misses with chunked {@code findAllById} queries.
+     */
+    public Map<Long, UserView> findAllById(Collection<Long> userIds) {
+        Map<Long, UserView> users = new HashMap<>(userIds.size() * 2);
+        cache.getAll(userIds, this::loadAll).forEach((userId, userView) ->
+                userView.ifPresent(user -> users.put(userId, user)));
+        return users;
+    }
+    
+    @Override
+    public void onUpserted(UserView userView) {
+        cache.asMap().computeIfPresent(userView.getUserId(), (userId, cached) ->
+                cachedVersion(cached) < userView.getVersion() ? Optional.of(userView) : cached);
+    }
+    
+    @Override
+    public void onDeleted(Long userId, long version) {
+        // Dropped rather than cached as absent; the next read reloads the committed row state
+        cache.invalidate(userId);
+    }
+    
+    @Override
+    public void onRebuilt() {
+        cache.invalidateAll();
+    }
+    
+    private Optional<UserView> load(Long userId) {
+        Optional<UserView> userView = userViewRepository.findById(userId);
+        if (userView.isEmpty()) {
+            log.warn("User not found in materialized view: {}", userId);
+        }
+        return userView;
+    }
+    
+    private Map<Long, Optional<UserView>> loadAll(Set<? extends Long> userIds) {
+        Map<Long, Optional<UserView>> loaded = new HashMap<>(userIds.size() * 2);
+        List<Long> chunk = new ArrayList<>(Math.min(userIds.size(), LOAD_CHUNK_SIZE));
+        for (Long userId : userIds) {
+            loaded.put(userId, Optional.empty());
+            chunk.add(userId);
+            if (chunk.size() == LOAD_CHUNK_SIZE) {
+                loadChunk(chunk, loaded);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            loadChunk(chunk, loaded);
+        }
+        return loaded;
+    }
+    
+    private void loadChunk(List<Long> userIds, Map<Long, Optional<UserView>> loaded) {
+        for (UserView userView : userViewRepository.findAllById(userIds)) {
+            loaded.put(userView.getUserId(), Optional.of(userView));
+        }
+    }
+    
+    private static long cachedVersion(Optional<UserView> cached) {
+        return cached.map(UserView::getVersion).orElse(-1L);
+    }
+    
+    private record PresenceExpiry(long presentTtlNanos, long absentTtlNanos) implements Expiry<Long, Optional<UserView>> {
+        
+        @Override
+        public long expireAfterCreate(Long userId, Optional<UserView> value, long currentTime) {
+            return value.isPresent() ? presentTtlNanos : absentTtlNanos;
+        }
+        
+        @Override
+        public long expireAfterUpdate(Long userId, Optional<UserView> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(userId, value, currentTime);
+        }
+        
+        @Override
+        public long expireAfterRead(Long userId, Optional<UserView> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
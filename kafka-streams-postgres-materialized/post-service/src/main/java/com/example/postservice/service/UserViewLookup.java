@@ -0,0 +1,58 @@
+package com.example.postservice.service;
+
+import com.example.postservice.domain.UserView;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Read access to the materialized user view. Backed either by the Kafka Streams state store
+ * ({@code user-view.read-source=state-store}) or by the Postgres projection ({@code postgres}).
+ */
+public interface UserViewLookup {
+    
+    // page size of the default forEach
+    int STREAM_PAGE_SIZE = 1000;
+    
+    Optional<UserView> findById(Long userId);
+    
+    /**
+     * Resolves many users at once; users that do not exist are absent from the returned map.
+     */
+    Map<Long, UserView> findAllById(Collection<Long> userIds);
+    
+    List<UserView> findAll();
+    
+    List<UserView> findByDepartment(String department);
+    
+    /**
+     * Keyset page in user id order: up to {@code limit} users with an id greater than
+     * {@code afterUserId} (from the start when null), of one department when it is not null.
+     */
+    List<UserView> findPage(String department, Long afterUserId, int limit);
+    
+    /**
+     * Up to {@code limit} users whose name contains {@code name} (case-insensitive), best match first:
+     * exact name, prefix, start of a word, anywhere, then shorter names and lower ids.
+     */
+    List<UserView> searchByName(String name, int limit);
+    
+    /**
+     * Visits every user (of one department when not null) in user id order without collecting
+     * them; the default walks {@link #findPage} one page at a time.
+     */
+    default void forEach(String department, Consumer<UserView> action) {
+        Long after = null;
+        List<UserView> page;
+        do {
+            page = findPage(department, after, STREAM_PAGE_SIZE);
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getUserId();
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+}
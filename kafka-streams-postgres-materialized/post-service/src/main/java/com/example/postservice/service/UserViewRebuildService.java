@@ -0,0 +1,318 @@
+package com.example.postservice.service;
+
+import com.example.postservice.domain.UserEvent;
+import com.example.postservice.domain.UserView;
+import com.example.postservice.domain.UserViewRebuildStatus;
+import com.example.postservice.domain.UserViewRebuildStatus.Phase;
+import com.example.postservice.repository.UserViewJdbcRepository;
+import com.example.postservice.repository.UserViewRebuildRepository;
+import com.example.postservice.serde.UserEventSerde;
+import com.example.postservice.streams.UserViewProjectionListener;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Rebuilds the {@code user_view} projection from {@code user-events} without resetting the
+ * streams consumer group and without exposing a half-populated table.
+ * <p>
+ * A standalone consumer (no group, so no committed offsets are touched) reads every partition
+ * from the beginning up to the end offsets captured at the start, and the events are bulk loaded
+ * into a shadow table that is indexed only once it is full (see {@link UserViewRebuildRepository}).
+ * Events that arrive meanwhile are read in a catch-up pass, and the last few while the live table
+ * is locked for the swap, so the new table contains everything up to the end of the log at swap time.
+ * <p>
+ * The streams pipeline keeps running from its own committed offsets throughout. Whatever it
+ * writes after the swap is either newer than the rebuilt rows or skipped by the version guard,
+ * so the overlap is harmless.
+ */
+@Service
+@Slf4j
+public class UserViewRebuildService {
+
+    static final String TOPIC = "user-events";
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final UserViewRebuildRepository rebuildRepository;
+    private final UserViewJdbcRepository userViewJdbcRepository;
+    private final List<UserViewProjectionListener> projectionListeners;
+    private final UserEventSerde userEventSerde;
+    private final Supplier<Consumer<String, byte[]>> consumerFactory;
+    private final int copyBatchSize;
+    private final String lockTimeout;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "user-view-rebuild"));
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile UserViewRebuildStatus status = UserViewRebuildStatus.builder().phase(Phase.IDLE).build();
+
+    @Autowired
+    public UserViewRebuildService(UserViewRebuildRepository rebuildRepository,
+                                  UserViewJdbcRepository userViewJdbcRepository,
+                                  List<UserViewProjectionListener> projectionListeners,
+                                  ObjectMapper objectMapper,
+                                  @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+                                  @Value("${user-view.rebuild.copy-batch-size:50000}") int copyBatchSize,
+                                  @Value("${user-view.rebuild.lock-timeout:10s}") String lockTimeout) {
+        this(rebuildRepository, userViewJdbcRepository, projectionListeners, new UserEventSerde(objectMapper),
+                () -> new KafkaConsumer<>(consumerProperties(bootstrapServers, copyBatchSize),
+                        new StringDeserializer(), new ByteArrayDeserializer()),
+                copyBatchSize, lockTimeout);
+    }
+
+    UserViewRebuildService(UserViewRebuildRepository rebuildRepository,
+                           UserViewJdbcRepository userViewJdbcRepository,
+                           List<UserViewProjectionListener> projectionListeners,
+                           UserEventSerde userEventSerde,
+                           Supplier<Consumer<String, byte[]>> consumerFactory,
+                           int copyBatchSize,
+                           String lockTimeout) {
+        this.rebuildRepository = rebuildRepository;
+        this.userViewJdbcRepository = userViewJdbcRepository;
+        this.projectionListeners = projectionListeners;
+        this.userEventSerde = userEventSerde;
+        this.consumerFactory = consumerFactory;
+        this.copyBatchSize = copyBatchSize;
+        this.lockTimeout = lockTimeout;
+    }
+
+    /**
+     * Starts a rebuild in the background and returns false if one is already running.
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        status = UserViewRebuildStatus.builder().phase(Phase.LOADING).startedAt(LocalDateTime.now()).build();
+        executor.execute(() -> {
+            try (Consumer<String, byte[]> consumer = consumerFactory.get()) {
+                rebuild(consumer);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Returns a snapshot of the progress of the running rebuild, or the outcome of the last one.
+     */
+    public UserViewRebuildStatus getStatus() {
+        UserViewRebuildStatus snapshot = status.toBuilder().build();
+        if (snapshot.getStartedAt() != null) {
+            LocalDateTime end = snapshot.getFinishedAt() != null ? snapshot.getFinishedAt() : LocalDateTime.now();
+            snapshot.setElapsedMs(Duration.between(snapshot.getStartedAt(), end).toMillis());
+        }
+        return snapshot;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    void rebuild(Consumer<String, byte[]> consumer) {
+        // start() has already published the status; direct callers get a fresh one
+        UserViewRebuildStatus progress = status.getPhase() == Phase.LOADING ? status
+                : UserViewRebuildStatus.builder().phase(Phase.LOADING).startedAt(LocalDateTime.now()).build();
+        status = progress;
+        try {
+            List<TopicPartition> partitions = consumer.partitionsFor(TOPIC).stream()
+                    .map(info -> new TopicPartition(TOPIC, info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> beginningOffsets = consumer.beginningOffsets(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            progress.setOffsetsTotal(endOffsets.entrySet().stream()
+                    .mapToLong(end -> end.getValue() - beginningOffsets.get(end.getKey()))
+                    .sum());
+            log.info("Rebuilding user_view from {} offsets of {} ({} partitions)", progress.getOffsetsTotal(), TOPIC, partitions.size());
+
+            rebuildRepository.prepare();
+            load(consumer, beginningOffsets, endOffsets, progress);
+
+            progress.setPhase(Phase.BUILDING_TABLE);
+            progress.setUsersLoaded(rebuildRepository.buildShadowTable());
+            log.info("Shadow table filled with {} users", progress.getUsersLoaded());
+
+            progress.setPhase(Phase.INDEXING);
+            rebuildRepository.buildIndexes();
+
+            // Read most of what arrived during the load without the lock, and only the rest under it
+            progress.setPhase(Phase.CATCHING_UP);
+            Map<Long, UserEvent> pending = new HashMap<>();
+            consumeUntil(consumer, consumer.endOffsets(partitions), event -> collapse(pending, event), progress);
+
+            progress.setPhase(Phase.SWAPPING);
+            rebuildRepository.swap(lockTimeout, () -> {
+                consumeUntil(consumer, consumer.endOffsets(partitions), event -> collapse(pending, event), progress);
+                applyCatchUp(pending);
+            });
+            projectionListeners.forEach(UserViewProjectionListener::onRebuilt);
+
+            progress.setPhase(Phase.COMPLETED);
+            progress.setFinishedAt(LocalDateTime.now());
+            log.info("user_view rebuilt: {} users from {} events ({} catch-up) in {} ms", progress.getUsersLoaded(),
+                    progress.getEventsLoaded(), progress.getCatchUpEvents(), getStatus().getElapsedMs());
+        } catch (RuntimeException e) {
+            log.error("user_view rebuild failed in phase {}", progress.getPhase(), e);
+            progress.setError(e.getMessage());
+            progress.setPhase(Phase.FAILED);
+            progress.setFinishedAt(LocalDateTime.now());
+            try {
+                rebuildRepository.dropShadowTables();
+            } catch (RuntimeException cleanupFailure) {
+                log.warn("Could not drop the rebuild tables", cleanupFailure);
+            }
+        }
+    }
+
+    private void load(Consumer<String, byte[]> consumer, Map<TopicPartition, Long> beginningOffsets,
+                      Map<TopicPartition, Long> endOffsets, UserViewRebuildStatus progress) {
+        List<UserEvent> batch = new ArrayList<>(copyBatchSize);
+        while (!reached(consumer, endOffsets)) {
+            for (ConsumerRecord<String, byte[]> record : consumer.poll(POLL_TIMEOUT)) {
+                UserEvent event = decode(record, progress);
+                if (event != null) {
+                    batch.add(event);
+                }
+            }
+            if (batch.size() >= copyBatchSize) {
+                copy(batch, progress);
+            }
+            progress.setOffsetsConsumed(consumed(consumer, beginningOffsets, endOffsets));
+            progress.setPercentComplete(progress.getOffsetsTotal() == 0 ? 100.0
+                    : Math.min(100.0, progress.getOffsetsConsumed() * 100.0 / progress.getOffsetsTotal()));
+        }
+        copy(batch, progress);
+        log.info("Loaded {} events ({} skipped) into the staging table", progress.getEventsLoaded(), progress.getEventsSkipped());
+    }
+
+    private void copy(List<UserEvent> batch, UserViewRebuildStatus progress) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        progress.setEventsLoaded(progress.getEventsLoaded() + rebuildRepository.copyEvents(batch));
+        batch.clear();
+        log.info("Rebuild progress: {} / {} offsets ({}%)", progress.getOffsetsConsumed(), progress.getOffsetsTotal(),
+                String.format("%.1f", progress.getPercentComplete()));
+    }
+
+    private void consumeUntil(Consumer<String, byte[]> consumer, Map<TopicPartition, Long> endOffsets,
+                              java.util.function.Consumer<UserEvent> action, UserViewRebuildStatus progress) {
+        while (!reached(consumer, endOffsets)) {
+            for (ConsumerRecord<String, byte[]> record : consumer.poll(POLL_TIMEOUT)) {
+                UserEvent event = decode(record, progress);
+                if (event != null) {
+                    action.accept(event);
+                    progress.setCatchUpEvents(progress.getCatchUpEvents() + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the event if it can be applied to the view (tombstones as deletes), or null (counted as
+     * skipped) for undecodable records and events of unknown types or without a user.
+     */
+    private UserEvent decode(ConsumerRecord<String, byte[]> record, UserViewRebuildStatus progress) {
+        UserEvent event = null;
+        try {
+            if (record.value() != null) {
+                event = userEventSerde.decode(record.value());
+            } else if (record.key() != null) {
+                event = UserEvent.tombstone(Long.valueOf(record.key()));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Skipping undecodable record {}-{}@{}", record.topic(), record.partition(), record.offset(), e);
+        }
+        if (event == null || event.getUserId() == null || !isApplicable(event)) {
+            progress.setEventsSkipped(progress.getEventsSkipped() + 1);
+            return null;
+        }
+        return event;
+    }
+
+    private static boolean isApplicable(UserEvent event) {
+        if ("USER_DELETED".equals(event.getEventType())) {
+            return true;
+        }
+        return ("USER_CREATED".equals(event.getEventType()) || "USER_UPDATED".equals(event.getEventType()))
+                && event.getUser() != null;
+    }
+
+    // Highest version wins; on equal versions a delete wins, as in the bulk load
+    private static void collapse(Map<Long, UserEvent> pending, UserEvent event) {
+        pending.merge(event.getUserId(), event, (current, next) -> {
+            long currentVersion = versionOf(current);
+            long nextVersion = versionOf(next);
+            if (nextVersion != currentVersion) {
+                return nextVersion > currentVersion ? next : current;
+            }
+            return "USER_DELETED".equals(next.getEventType()) ? next : current;
+        });
+    }
+
+    private void applyCatchUp(Map<Long, UserEvent> pending) {
+        LocalDateTime now = LocalDateTime.now();
+        List<UserView> upserts = new ArrayList<>();
+        Map<Long, Long> deletes = new HashMap<>();
+        for (UserEvent event : pending.values()) {
+            if ("USER_DELETED".equals(event.getEventType())) {
+                deletes.put(event.getUserId(), versionOf(event));
+            } else {
+                upserts.add(UserView.from(event, now));
+            }
+        }
+        int applied = userViewJdbcRepository.applyBatch(upserts, deletes);
+        log.info("Applied {} catch-up changes ({} rows changed) before the swap", pending.size(), applied);
+    }
+
+    private static boolean reached(Consumer<String, byte[]> consumer, Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream().allMatch(end -> consumer.position(end.getKey()) >= end.getValue());
+    }
+
+    private static long consumed(Consumer<String, byte[]> consumer, Map<TopicPartition, Long> beginningOffsets,
+                                 Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream()
+                .mapToLong(end -> Math.min(consumer.position(end.getKey()), end.getValue()) - beginningOffsets.get(end.getKey()))
+                .sum();
+    }
+
+    private static long versionOf(UserEvent event) {
+        return event.getVersion() != null ? event.getVersion() : 0L;
+    }
+
+    private static Map<String, Object> consumerProperties(String bootstrapServers, int maxPollRecords) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.CLIENT_ID_CONFIG, "user-view-rebuild");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // Only what the producer committed, like the exactly-once streams consumer
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        props.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, 8 * 1024 * 1024);
+        return props;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.AuthorDepartment;
+import com.example.postservice.domain.UserEvent;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+import java.util.Objects;
+
+/**
+ * Narrows user events to department changes for {@code author-departments}: the department and version
+ * last seen per user are kept, stale events are dropped, and an event is forwarded only when it moves
+ * the user to another department (a deleted user moves to null).
+ */
+public class AuthorDepartmentChangeProcessor implements FixedKeyProcessor<String, UserEvent, AuthorDepartment> {
+
+    private final String storeName;
+    private FixedKeyProcessorContext<String, AuthorDepartment> context;
+    private KeyValueStore<String, AuthorDepartment> lastSeen;
+
+    public AuthorDepartmentChangeProcessor(String storeName) {
+        this.storeName = storeName;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<String, AuthorDepartment> context) {
+        this.context = context;
+        this.lastSeen = context.getStateStore(storeName);
+    }
+
+    @Override
+    public void process(FixedKeyRecord<String, UserEvent> record) {
+        UserEvent event = record.value();
+        long version = event.getVersion() != null ? event.getVersion() : 0L;
+        AuthorDepartment last = lastSeen.get(record.key());
+        if (last != null && last.getVersion() >= version) {
+            return;
+        }
+        String department;
+        switch (event.getEventType()) {
+            case "USER_CREATED":
+            case "USER_UPDATED":
+                department = event.getUser() != null ? event.getUser().getDepartment() : null;
+                break;
+            case "USER_DELETED":
+                department = null;
+                break;
+            default:
+                return;
+        }
+        AuthorDepartment current = new AuthorDepartment(department, version);
+        lastSeen.put(record.key(), current);
+        String previous = last != null ? last.getDepartment() : null;
+        if (!Objects.equals(previous, department)) {
+            context.forward(record.withValue(current));
+        }
+    }
+}
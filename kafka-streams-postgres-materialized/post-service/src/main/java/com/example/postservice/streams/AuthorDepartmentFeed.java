@@ -0,0 +1,166 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.AuthorDepartment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Delivers the department changes of {@code author-departments} to every instance. User events are
+ * projected only by the instance that owns their partition, so without this the other instances would
+ * not learn that an author moved into a department until they read the author again.
+ * <p>
+ * The consumer has no group: it is assigned every partition and reads the compacted topic from the
+ * beginning on each start, then follows it. A user's changes are keyed by user id and so arrive in order,
+ * but they arrive again after a restart, which {@link AuthorDepartmentListener}s absorb by comparing versions.
+ */
+@Component
+@ConditionalOnProperty(name = "post.department-feed.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class AuthorDepartmentFeed {
+
+    public static final String TOPIC = "author-departments";
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final List<AuthorDepartmentListener> listeners;
+    private final Deserializer<AuthorDepartment> deserializer;
+    private final Supplier<Consumer<String, byte[]>> consumerFactory;
+    private final Thread thread = new Thread(this::run, TOPIC + "-feed");
+    private volatile Consumer<String, byte[]> consumer;
+    private volatile boolean running = true;
+
+    @Autowired
+    public AuthorDepartmentFeed(List<AuthorDepartmentListener> listeners,
+                                ObjectMapper objectMapper,
+                                @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+                                @Value("${spring.application.name}") String applicationName) {
+        this(listeners, objectMapper,
+                () -> new KafkaConsumer<>(consumerProperties(bootstrapServers, applicationName + "-" + TOPIC),
+                        new StringDeserializer(), new ByteArrayDeserializer()));
+    }
+
+    AuthorDepartmentFeed(List<AuthorDepartmentListener> listeners, ObjectMapper objectMapper,
+                         Supplier<Consumer<String, byte[]>> consumerFactory) {
+        this.listeners = listeners;
+        this.deserializer = new JsonDeserializer<>(AuthorDepartment.class, objectMapper, false);
+        this.consumerFactory = consumerFactory;
+    }
+
+    @PostConstruct
+    public void start() {
+        thread.start();
+        log.info("Author department feed started for {} listeners", listeners.size());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Consumer<String, byte[]> current = consumer;
+        if (current != null) {
+            current.wakeup();
+        }
+        thread.join(POLL_TIMEOUT.toMillis() + 5_000);
+    }
+
+    private void run() {
+        while (running) {
+            Consumer<String, byte[]> current = consumerFactory.get();
+            consumer = current;
+            try {
+                if (!running) {
+                    return;
+                }
+                if (!assignAll(current)) {
+                    // KafkaTopicConfig creates the topic once the context has started
+                    backOff();
+                    continue;
+                }
+                while (running) {
+                    pollOnce(current);
+                }
+            } catch (WakeupException e) {
+                log.info("Author department feed stopped");
+            } catch (RuntimeException e) {
+                // replayed from the beginning by the next consumer; listeners ignore what they already have
+                log.error("Author department feed failed, restarting", e);
+                backOff();
+            } finally {
+                current.close();
+            }
+        }
+    }
+
+    /**
+     * Assigns every partition of the topic and rewinds them to the beginning; false if the topic does
+     * not exist yet.
+     */
+    boolean assignAll(Consumer<String, byte[]> consumer) {
+        List<TopicPartition> partitions = consumer.partitionsFor(TOPIC).stream()
+                .map(info -> new TopicPartition(info.topic(), info.partition()))
+                .toList();
+        if (partitions.isEmpty()) {
+            return false;
+        }
+        consumer.assign(partitions);
+        consumer.seekToBeginning(partitions);
+        return true;
+    }
+
+    void pollOnce(Consumer<String, byte[]> consumer) {
+        for (ConsumerRecord<String, byte[]> record : consumer.poll(POLL_TIMEOUT)) {
+            AuthorDepartment change;
+            try {
+                change = record.value() != null ? deserializer.deserialize(record.topic(), record.value()) : null;
+            } catch (RuntimeException e) {
+                log.warn("Skipping undecodable author department record {}-{}@{}",
+                        record.topic(), record.partition(), record.offset(), e);
+                continue;
+            }
+            if (change == null || record.key() == null) {
+                continue;
+            }
+            Long authorId = Long.valueOf(record.key());
+            listeners.forEach(listener -> listener.onAuthorDepartment(authorId, change.getDepartment(), change.getVersion()));
+        }
+    }
+
+    private void backOff() {
+        try {
+            Thread.sleep(POLL_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static Map<String, Object> consumerProperties(String bootstrapServers, String clientId) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.CLIENT_ID_CONFIG, clientId);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // Only what the streams producer committed
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        return props;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.postservice.streams;
+
+/**
+ * Notified of the department changes broadcast by {@link AuthorDepartmentFeed}, on every instance.
+ * Changes can arrive again after a restart, so implementations should compare versions themselves.
+ */
+public interface AuthorDepartmentListener {
+    
+    void onAuthorDepartment(Long authorId, String department, long version);
+}
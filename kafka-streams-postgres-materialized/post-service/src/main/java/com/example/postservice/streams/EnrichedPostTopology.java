@@ -0,0 +1,81 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.Post;
+import com.example.postservice.domain.PostAuthor;
+import com.example.postservice.domain.UserView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.KTable;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
+import org.springframework.kafka.support.serializer.JsonSerde;
+
+/**
+ * Write-time enrichment of posts: the {@code post-events} table is joined on its author id against the
+ * authors of the {@code user-view-store} table (a foreign-key join), and the result is written to
+ * {@code enriched-posts} and read back as a global table, so every instance answers post reads with a
+ * local key lookup. A change of an author's name, email or department re-emits all of that author's posts.
+ */
+public final class EnrichedPostTopology {
+    
+    public static final String POST_EVENTS_TOPIC = "post-events";
+    public static final String ENRICHED_POSTS_TOPIC = "enriched-posts";
+    public static final String ENRICHED_POST_STORE_NAME = "enriched-post-store";
+    static final String POST_STORE_NAME = "post-store";
+    static final String AUTHOR_STORE_NAME = "post-author-store";
+    static final String AUTHOR_CHANGES_STORE_NAME = "post-author-changes";
+    
+    private EnrichedPostTopology() {
+    }
+    
+    static void build(StreamsBuilder streamsBuilder, KTable<String, UserView> userViews, ObjectMapper objectMapper) {
+        JsonSerde<Post> postSerde = new JsonSerde<>(Post.class, objectMapper).noTypeInfo();
+        JsonSerde<PostAuthor> authorSerde = new JsonSerde<>(PostAuthor.class, objectMapper).noTypeInfo();
+        
+        streamsBuilder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(AUTHOR_CHANGES_STORE_NAME), new UserIdSerde(), authorSerde));
+        KTable<String, PostAuthor> authors = userViews.toStream()
+                .processValues(() -> new PostAuthorChangeProcessor(AUTHOR_CHANGES_STORE_NAME), AUTHOR_CHANGES_STORE_NAME)
+                .toTable(Materialized.<String, PostAuthor, KeyValueStore<Bytes, byte[]>>as(AUTHOR_STORE_NAME)
+                        .withKeySerde(new UserIdSerde())
+                        .withValueSerde(authorSerde));
+        
+        KTable<String, Post> posts = streamsBuilder.table(POST_EVENTS_TOPIC, Consumed.with(Serdes.String(), postSerde),
+                Materialized.<String, Post, KeyValueStore<Bytes, byte[]>>as(POST_STORE_NAME)
+                        .withKeySerde(Serdes.String())
+                        .withValueSerde(postSerde));
+        
+        // left join: posts of unknown or deleted authors are kept, without author fields
+        posts.leftJoin(authors, EnrichedPostTopology::authorKey, EnrichedPostTopology::enrich)
+                .toStream()
+                .to(ENRICHED_POSTS_TOPIC, Produced.with(Serdes.String(), postSerde));
+        
+        streamsBuilder.globalTable(ENRICHED_POSTS_TOPIC, Consumed.with(Serdes.String(), postSerde),
+                Materialized.<String, Post, KeyValueStore<Bytes, byte[]>>as(ENRICHED_POST_STORE_NAME)
+                        .withKeySerde(Serdes.String())
+                        .withValueSerde(postSerde));
+    }
+    
+    private static String authorKey(Post post) {
+        return post.getAuthorId() != null ? post.getAuthorId().toString() : null;
+    }
+    
+    private static Post enrich(Post post, PostAuthor author) {
+        return Post.builder()
+                .id(post.getId())
+                .title(post.getTitle())
+                .content(post.getContent())
+                .authorId(post.getAuthorId())
+                .authorName(author != null ? author.getName() : null)
+                .authorEmail(author != null ? author.getEmail() : null)
+                .authorDepartment(author != null ? author.getDepartment() : null)
+                .createdAt(post.getCreatedAt())
+                .updatedAt(post.getUpdatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.Post;
+import com.example.postservice.service.EnrichedPostProjection;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Publishes post changes to {@code post-events} and reads the enriched posts from the global
+ * {@code enriched-post-store}, which every instance holds in full. While the store is not queryable
+ * (startup, restore) nothing is found and callers enrich at read time.
+ */
+@Component
+@ConditionalOnProperty(name = "post.enrichment.mode", havingValue = "write-time")
+@RequiredArgsConstructor
+@Slf4j
+public class KafkaEnrichedPostProjection implements EnrichedPostProjection {
+    
+    private final KafkaTemplate<String, Post> kafkaTemplate;
+    private final StreamsBuilderFactoryBean streamsBuilderFactoryBean;
+    
+    @Override
+    public void publish(Post post) {
+        send(post.getId(), post);
+    }
+    
+    @Override
+    public void publishDelete(Long postId) {
+        send(postId, null);
+    }
+    
+    @Override
+    public Map<Long, Post> findAllById(Collection<Long> postIds) {
+        Map<Long, Post> posts = new HashMap<>(postIds.size() * 2);
+        try {
+            ReadOnlyKeyValueStore<String, Post> store = store();
+            for (Long postId : postIds) {
+                Post post = store.get(postId.toString());
+                if (post != null) {
+                    posts.put(postId, post);
+                }
+            }
+        } catch (InvalidStateStoreException e) {
+            log.debug("Enriched post store not queryable: {}", e.getMessage());
+        }
+        return posts;
+    }
+    
+    private void send(Long postId, Post post) {
+        kafkaTemplate.send(EnrichedPostTopology.POST_EVENTS_TOPIC, postId.toString(), post)
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        log.error("Failed to publish post {} to {}", postId, EnrichedPostTopology.POST_EVENTS_TOPIC, e);
+                    }
+                });
+    }
+    
+    private ReadOnlyKeyValueStore<String, Post> store() {
+        KafkaStreams kafkaStreams = streamsBuilderFactoryBean.getKafkaStreams();
+        if (kafkaStreams == null) {
+            throw new InvalidStateStoreException("Kafka Streams is not started");
+        }
+        return kafkaStreams.store(StoreQueryParameters.fromNameAndType(
+                EnrichedPostTopology.ENRICHED_POST_STORE_NAME, QueryableStoreTypes.keyValueStore()));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.postservice.streams;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks on a fixed number of single-threaded lanes, choosing the lane from the task key.
+ * Tasks with the same key therefore run one after another in submission order, while different
+ * keys run concurrently. At most {@code maxPending} tasks are queued or running; {@link #submit}
+ * blocks the caller beyond that.
+ */
+@Slf4j
+public class KeyOrderedExecutor implements AutoCloseable {
+
+    private final ExecutorService[] lanes;
+    private final Semaphore capacity;
+
+    public KeyOrderedExecutor(String threadNamePrefix, int workers, int maxPending) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be positive: " + workers);
+        }
+        this.lanes = new ExecutorService[workers];
+        AtomicInteger threadNumber = new AtomicInteger();
+        for (int i = 0; i < workers; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadNamePrefix + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.capacity = new Semaphore(maxPending);
+    }
+
+    public CompletableFuture<Void> submit(long key, Runnable task) {
+        capacity.acquireUninterruptibly();
+        try {
+            return CompletableFuture.runAsync(task, lanes[lane(key)])
+                    .whenComplete((result, ex) -> capacity.release());
+        } catch (RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+    }
+
+    public int workers() {
+        return lanes.length;
+    }
+
+    private int lane(long key) {
+        return Math.floorMod(Long.hashCode(key), lanes.length);
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            for (ExecutorService lane : lanes) {
+                if (!lane.awaitTermination(30, TimeUnit.SECONDS)) {
+                    log.warn("Key ordered executor lane did not finish within 30s");
+                    lane.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.PostAuthor;
+import com.example.postservice.domain.UserView;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+import java.util.Objects;
+
+/**
+ * Narrows user view changes to the fields posts carry (name, email, department) and forwards only
+ * actual changes of those, so status or version-only updates of a user do not re-emit every post
+ * of the user through the foreign-key join. A deleted user is forwarded as null.
+ */
+public class PostAuthorChangeProcessor implements FixedKeyProcessor<String, UserView, PostAuthor> {
+
+    private final String storeName;
+    private FixedKeyProcessorContext<String, PostAuthor> context;
+    private KeyValueStore<String, PostAuthor> lastForwarded;
+
+    public PostAuthorChangeProcessor(String storeName) {
+        this.storeName = storeName;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<String, PostAuthor> context) {
+        this.context = context;
+        this.lastForwarded = context.getStateStore(storeName);
+    }
+
+    @Override
+    public void process(FixedKeyRecord<String, UserView> record) {
+        PostAuthor author = record.value() != null ? PostAuthor.from(record.value()) : null;
+        if (Objects.equals(lastForwarded.get(record.key()), author)) {
+            return;
+        }
+        if (author != null) {
+            lastForwarded.put(record.key(), author);
+        } else {
+            lastForwarded.delete(record.key());
+        }
+        context.forward(record.withValue(author));
+    }
+}
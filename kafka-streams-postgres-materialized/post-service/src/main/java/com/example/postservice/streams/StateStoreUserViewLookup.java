@@ -0,0 +1,263 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserView;
+import com.example.postservice.repository.UserViewJdbcRepository;
+import com.example.postservice.repository.UserViewRepository;
+import com.example.postservice.service.UserViewCache;
+import com.example.postservice.service.UserViewLookup;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyQueryMetadata;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.StreamsMetadata;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Serves user lookups from the local {@code user-view-store} (RocksDB) through interactive queries.
+ * Keys owned by another instance are fetched from that instance; list queries are scattered to
+ * every instance hosting the store, and name searches go to every instance's {@link UserNameIndex}. While the store is not queryable (startup, rebalance) reads
+ * fall back to the Postgres projection when it is enabled.
+ */
+@Service
+@ConditionalOnProperty(name = "user-view.read-source", havingValue = "state-store", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class StateStoreUserViewLookup implements UserViewLookup {
+    
+    private final StreamsBuilderFactoryBean streamsBuilderFactoryBean;
+    private final UserViewRemoteClient userViewRemoteClient;
+    private final HostInfo applicationServer;
+    private final UserViewRepository userViewRepository;
+    private final UserViewJdbcRepository userViewJdbcRepository;
+    private final UserViewCache userViewCache;
+    private final UserNameIndex userNameIndex;
+    
+    @Value("${user-view.projection.enabled:true}")
+    private boolean projectionEnabled;
+    
+    @Value("${user-view.name-index.enabled:true}")
+    private boolean nameIndexEnabled;
+    
+    @Override
+    public Optional<UserView> findById(Long userId) {
+        try {
+            KeyQueryMetadata metadata = kafkaStreams().queryMetadataForKey(
+                    UserViewStreamsProcessor.USER_VIEW_STORE_NAME, userId.toString(), Serdes.String().serializer());
+            if (metadata == null || KeyQueryMetadata.NOT_AVAILABLE.equals(metadata)) {
+                throw new InvalidStateStoreException("No metadata for user: " + userId);
+            }
+            if (applicationServer.equals(metadata.activeHost())) {
+                return findLocalById(userId);
+            }
+            return userViewRemoteClient.findById(metadata.activeHost(), userId);
+        } catch (InvalidStateStoreException | RestClientException e) {
+            return fallback(e, () -> userViewCache.findById(userId));
+        }
+    }
+    
+    @Override
+    public Map<Long, UserView> findAllById(Collection<Long> userIds) {
+        try {
+            KafkaStreams kafkaStreams = kafkaStreams();
+            List<Long> localIds = new ArrayList<>();
+            Map<HostInfo, List<Long>> remoteIds = new HashMap<>();
+            for (Long userId : userIds) {
+                KeyQueryMetadata metadata = kafkaStreams.queryMetadataForKey(
+                        UserViewStreamsProcessor.USER_VIEW_STORE_NAME, userId.toString(), Serdes.String().serializer());
+                if (metadata == null || KeyQueryMetadata.NOT_AVAILABLE.equals(metadata)) {
+                    throw new InvalidStateStoreException("No metadata for user: " + userId);
+                }
+                if (applicationServer.equals(metadata.activeHost())) {
+                    localIds.add(userId);
+                } else {
+                    remoteIds.computeIfAbsent(metadata.activeHost(), host -> new ArrayList<>()).add(userId);
+                }
+            }
+            
+            // One request per owning instance rather than one per user
+            Map<Long, UserView> users = findAllLocalById(localIds);
+            remoteIds.forEach((host, ids) ->
+                    userViewRemoteClient.findAllById(host, ids).forEach(user -> users.put(user.getUserId(), user)));
+            return users;
+        } catch (InvalidStateStoreException | RestClientException e) {
+            return fallback(e, () -> userViewCache.findAllById(userIds));
+        }
+    }
+    
+    @Override
+    public List<UserView> findAll() {
+        try {
+            List<UserView> users = findAllLocal();
+            for (HostInfo host : remoteHosts()) {
+                users.addAll(userViewRemoteClient.findAll(host));
+            }
+            return users;
+        } catch (InvalidStateStoreException | RestClientException e) {
+            return fallback(e, userViewRepository::findAll);
+        }
+    }
+    
+    @Override
+    public List<UserView> findByDepartment(String department) {
+        try {
+            List<UserView> users = findLocalByDepartment(department);
+            for (HostInfo host : remoteHosts()) {
+                users.addAll(userViewRemoteClient.findByDepartment(host, department));
+            }
+            return users;
+        } catch (InvalidStateStoreException | RestClientException e) {
+            return fallback(e, () -> userViewRepository.findByDepartment(department));
+        }
+    }
+    
+    @Override
+    public List<UserView> findPage(String department, Long afterUserId, int limit) {
+        try {
+            // every instance returns its own first page; the global page is the smallest ids of their union
+            List<UserView> users = findLocalPage(department, afterUserId, limit);
+            for (HostInfo host : remoteHosts()) {
+                users.addAll(userViewRemoteClient.findPage(host, department, afterUserId, limit));
+            }
+            users.sort(Comparator.comparing(UserView::getUserId));
+            return users.size() > limit ? new ArrayList<>(users.subList(0, limit)) : users;
+        } catch (InvalidStateStoreException | RestClientException e) {
+            return fallback(e, () -> userViewJdbcRepository.findPage(department, afterUserId, limit));
+        }
+    }
+    
+    @Override
+    public List<UserView> searchByName(String name, int limit) {
+        if (!nameIndexEnabled) {
+            return userViewJdbcRepository.searchByName(name, limit);
+        }
+        try {
+            // every instance returns its own best matches; the global result is the best of their union
+            List<UserView> users = findLocalByName(name, limit);
+            for (HostInfo host : remoteHosts()) {
+                users.addAll(userViewRemoteClient.searchByName(host, name, limit));
+            }
+            users.sort(UserNameIndex.ranking(name));
+            return users.size() > limit ? new ArrayList<>(users.subList(0, limit)) : users;
+        } catch (InvalidStateStoreException | RestClientException e) {
+            return fallback(e, () -> userViewJdbcRepository.searchByName(name, limit));
+        }
+    }
+    
+    public Optional<UserView> findLocalById(Long userId) {
+        return Optional.ofNullable(localStore().get(userId.toString()));
+    }
+    
+    public Map<Long, UserView> findAllLocalById(Collection<Long> userIds) {
+        ReadOnlyKeyValueStore<String, UserView> store = localStore();
+        Map<Long, UserView> users = new HashMap<>(userIds.size() * 2);
+        for (Long userId : userIds) {
+            UserView userView = store.get(userId.toString());
+            if (userView != null) {
+                users.put(userId, userView);
+            }
+        }
+        return users;
+    }
+    
+    public List<UserView> findAllLocal() {
+        return scanLocal(userView -> true);
+    }
+    
+    public List<UserView> findLocalByDepartment(String department) {
+        return scanLocal(userView -> department.equals(userView.getDepartment()));
+    }
+    
+    /**
+     * Range scan from {@code afterUserId + 1}; store keys are ordered numerically by {@link UserIdSerde}.
+     */
+    public List<UserView> findLocalPage(String department, Long afterUserId, int limit) {
+        String from = afterUserId != null ? String.valueOf(afterUserId + 1) : null;
+        List<UserView> users = new ArrayList<>(Math.min(limit, 1024));
+        try (KeyValueIterator<String, UserView> iterator = localStore().range(from, null)) {
+            while (iterator.hasNext() && users.size() < limit) {
+                UserView userView = iterator.next().value;
+                if (department == null || department.equals(userView.getDepartment())) {
+                    users.add(userView);
+                }
+            }
+        }
+        return users;
+    }
+    
+    /**
+     * Best matches among the users owned by this instance, from the in-memory name index.
+     */
+    public List<UserView> findLocalByName(String name, int limit) {
+        List<Long> userIds = userNameIndex.search(name, limit);
+        Map<Long, UserView> users = findAllLocalById(userIds);
+        List<UserView> matches = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            UserView userView = users.get(userId);
+            if (userView != null) {
+                matches.add(userView);
+            }
+        }
+        return matches;
+    }
+    
+    private List<UserView> scanLocal(Predicate<UserView> filter) {
+        List<UserView> users = new ArrayList<>();
+        try (KeyValueIterator<String, UserView> iterator = localStore().all()) {
+            iterator.forEachRemaining(entry -> {
+                if (filter.test(entry.value)) {
+                    users.add(entry.value);
+                }
+            });
+        }
+        return users;
+    }
+    
+    private List<HostInfo> remoteHosts() {
+        return kafkaStreams().streamsMetadataForStore(UserViewStreamsProcessor.USER_VIEW_STORE_NAME).stream()
+                .map(StreamsMetadata::hostInfo)
+                .filter(host -> !applicationServer.equals(host))
+                .toList();
+    }
+    
+    private ReadOnlyKeyValueStore<String, UserView> localStore() {
+        return kafkaStreams().store(StoreQueryParameters.fromNameAndType(
+                UserViewStreamsProcessor.USER_VIEW_STORE_NAME, QueryableStoreTypes.keyValueStore()));
+    }
+    
+    private KafkaStreams kafkaStreams() {
+        KafkaStreams kafkaStreams = streamsBuilderFactoryBean.getKafkaStreams();
+        if (kafkaStreams == null) {
+            throw new InvalidStateStoreException("Kafka Streams is not started");
+        }
+        return kafkaStreams;
+    }
+    
+    private <T> T fallback(RuntimeException cause, Supplier<T> postgresQuery) {
+        if (!projectionEnabled) {
+            throw cause;
+        }
+        log.warn("User view store not queryable ({}), reading from Postgres", cause.getMessage());
+        return postgresQuery.get();
+    }
+}
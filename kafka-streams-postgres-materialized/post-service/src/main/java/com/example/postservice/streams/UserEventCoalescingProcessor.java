@@ -0,0 +1,85 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds back user events and forwards only the latest one per user once per window, so a user
+ * updated many times in a row costs one {@code user_view} write (and one department_stats
+ * trigger run) per window instead of one per update. The newest version wins, and a delete wins
+ * over an upsert of the same version. Pending events live in a change-logged store, so events
+ * whose offsets were committed before they were forwarded survive a restart or rebalance.
+ */
+@Slf4j
+public class UserEventCoalescingProcessor implements Processor<String, UserEvent, String, UserEvent> {
+
+    private final String storeName;
+    private final Duration window;
+    private final UserViewMetrics metrics;
+    private ProcessorContext<String, UserEvent> context;
+    private KeyValueStore<String, UserEvent> pending;
+
+    public UserEventCoalescingProcessor(String storeName, Duration window, UserViewMetrics metrics) {
+        this.storeName = storeName;
+        this.window = window;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void init(ProcessorContext<String, UserEvent> context) {
+        this.context = context;
+        this.pending = context.getStateStore(storeName);
+        // wall clock, so a quiet partition still emits what it holds
+        context.schedule(window, PunctuationType.WALL_CLOCK_TIME, timestamp -> emitPending());
+    }
+
+    @Override
+    public void process(Record<String, UserEvent> record) {
+        UserEvent event = record.value();
+        UserEvent current = pending.get(record.key());
+        if (current != null) {
+            // one of the two is never written
+            metrics.recordCoalesced();
+            if (!supersedes(event, current)) {
+                return;
+            }
+        }
+        pending.put(record.key(), event);
+    }
+
+    private static boolean supersedes(UserEvent event, UserEvent current) {
+        long version = event.getVersion() != null ? event.getVersion() : 0L;
+        long currentVersion = current.getVersion() != null ? current.getVersion() : 0L;
+        if (version != currentVersion) {
+            return version > currentVersion;
+        }
+        return "USER_DELETED".equals(event.getEventType());
+    }
+
+    private void emitPending() {
+        List<KeyValue<String, UserEvent>> events = new ArrayList<>();
+        try (KeyValueIterator<String, UserEvent> iterator = pending.all()) {
+            iterator.forEachRemaining(events::add);
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        long now = context.currentSystemTimeMs();
+        for (KeyValue<String, UserEvent> entry : events) {
+            context.forward(new Record<>(entry.key, entry.value, now));
+            pending.delete(entry.key);
+        }
+        log.debug("Forwarded {} coalesced user events", events.size());
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserEvent;
+import com.example.postservice.repository.UserViewJdbcRepository;
+import com.example.postservice.serde.UserEventSerde;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Consumes the retry tiers of {@link UserEventRetryRouter}, one consumer thread per tier, and applies each
+ * record to {@code user_view} once its {@code retry-due-at} has passed.
+ * <p>
+ * A partition whose next record is not due yet is paused until it is, so waiting never blocks the poll
+ * loop or the other partitions and tiers; the records of a tier become due in the order they were written.
+ * A record that fails again moves to the next tier (or the dead-letter topic), and its offset is committed
+ * once the router has it. If Postgres itself is down the record stays where it is and the partition is
+ * paused for the tier's delay, instead of draining every tier into the dead-letter topic.
+ */
+@Component
+@ConditionalOnProperty(name = "user-view.retry.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class UserEventRetryConsumer {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final UserEventRetryRouter router;
+    private final UserViewEventWriter writer;
+    private final Deserializer<UserEvent> deserializer;
+    private final Function<String, Consumer<String, byte[]>> consumerFactory;
+    private final Map<TopicPartition, Long> pausedUntil = new ConcurrentHashMap<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final List<Consumer<String, byte[]>> consumers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    @Autowired
+    public UserEventRetryConsumer(UserEventRetryRouter router,
+                                  UserViewJdbcRepository userViewJdbcRepository,
+                                  List<UserViewProjectionListener> projectionListeners,
+                                  UserViewMetrics metrics,
+                                  ObjectMapper objectMapper,
+                                  @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+                                  @Value("${spring.application.name}") String applicationName) {
+        this(router, new UserViewEventWriter(userViewJdbcRepository, projectionListeners, metrics, "retry"), metrics,
+                new UserEventSerde(objectMapper),
+                topic -> new KafkaConsumer<>(consumerProperties(bootstrapServers, applicationName + "-" + topic),
+                        new StringDeserializer(), new ByteArrayDeserializer()));
+    }
+
+    UserEventRetryConsumer(UserEventRetryRouter router, UserViewEventWriter writer, UserViewMetrics metrics,
+                           UserEventSerde userEventSerde, Function<String, Consumer<String, byte[]>> consumerFactory) {
+        this.router = router;
+        this.writer = writer;
+        this.deserializer = metrics.timed(userEventSerde).deserializer();
+        this.consumerFactory = consumerFactory;
+    }
+
+    @PostConstruct
+    public void start() {
+        for (String topic : router.retryTopics()) {
+            Thread thread = new Thread(() -> run(topic), topic + "-consumer");
+            threads.add(thread);
+            thread.start();
+        }
+        log.info("User event retry consumers started for {}", router.retryTopics());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        synchronized (consumers) {
+            consumers.forEach(Consumer::wakeup);
+        }
+        for (Thread thread : threads) {
+            thread.join(POLL_TIMEOUT.toMillis() + 5_000);
+        }
+    }
+
+    private void run(String topic) {
+        while (running) {
+            Consumer<String, byte[]> consumer = consumerFactory.apply(topic);
+            synchronized (consumers) {
+                if (!running) {
+                    consumer.close();
+                    return;
+                }
+                consumers.add(consumer);
+            }
+            try {
+                consumer.subscribe(List.of(topic));
+                while (running) {
+                    pollOnce(consumer);
+                }
+            } catch (WakeupException e) {
+                log.info("User event retry consumer for {} stopped", topic);
+            } catch (RuntimeException e) {
+                // nothing past the failed record was committed; a new consumer starts again from it
+                log.error("User event retry consumer for {} failed, restarting", topic, e);
+                pausedUntil.keySet().removeIf(partition -> partition.topic().equals(topic));
+                backOff();
+            } finally {
+                synchronized (consumers) {
+                    consumers.remove(consumer);
+                }
+                consumer.close();
+            }
+        }
+    }
+
+    private void backOff() {
+        try {
+            Thread.sleep(POLL_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    /**
+     * Resumes the partitions that are due, polls once, and applies or moves on every record that is due.
+     */
+    void pollOnce(Consumer<String, byte[]> consumer) {
+        resumeDue(consumer);
+        ConsumerRecords<String, byte[]> records = consumer.poll(POLL_TIMEOUT);
+        Map<TopicPartition, OffsetAndMetadata> done = new HashMap<>();
+        for (TopicPartition partition : records.partitions()) {
+            for (ConsumerRecord<String, byte[]> record : records.records(partition)) {
+                long waitUntil = UserEventRetryRouter.dueAt(record);
+                if (waitUntil <= System.currentTimeMillis()) {
+                    if (retry(record)) {
+                        done.put(partition, new OffsetAndMetadata(record.offset() + 1));
+                        continue;
+                    }
+                    waitUntil = System.currentTimeMillis() + router.delay(router.tier(record.topic())).toMillis();
+                }
+                // the rest of this partition is behind the record, so it is fetched again after the pause
+                consumer.seek(partition, record.offset());
+                consumer.pause(List.of(partition));
+                pausedUntil.put(partition, waitUntil);
+                break;
+            }
+        }
+        if (!done.isEmpty()) {
+            consumer.commitSync(done);
+        }
+    }
+
+    /**
+     * Applies the record, or hands it to the router if it fails again; returns false if Postgres is down
+     * and the record has to be retried where it is.
+     */
+    private boolean retry(ConsumerRecord<String, byte[]> record) {
+        UserEvent event;
+        try {
+            event = deserializer.deserialize(record.topic(), record.value());
+        } catch (RuntimeException e) {
+            router.deadLetter(record, e);
+            return true;
+        }
+        try {
+            // counted by the pipeline that first saw the event, so not again here
+            writer.apply(event);
+            log.info("Retried user {} from {} (attempt {})", record.key(), record.topic(),
+                    UserEventRetryRouter.attempt(record.headers()) + 1);
+        } catch (RuntimeException e) {
+            if (UserEventRetryRouter.isOutage(e)) {
+                log.warn("Postgres unavailable, pausing {}-{}", record.topic(), record.partition(), e);
+                return false;
+            }
+            router.retryFailed(record, e);
+        }
+        return true;
+    }
+
+    private void resumeDue(Consumer<String, byte[]> consumer) {
+        long now = System.currentTimeMillis();
+        List<TopicPartition> due = new ArrayList<>();
+        for (TopicPartition partition : consumer.paused()) {
+            Long until = pausedUntil.get(partition);
+            if (until == null || until <= now) {
+                due.add(partition);
+                pausedUntil.remove(partition);
+            }
+        }
+        if (!due.isEmpty()) {
+            consumer.resume(due);
+        }
+    }
+
+    private static Properties consumerProperties(String bootstrapServers, String groupId) {
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        // a tier is drained slowly on purpose; keep each poll small so a pause applies quickly
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 100);
+        return props;
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.config.KafkaTopicConfig;
+import com.example.postservice.domain.UserEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
+
+/**
+ * Moves user events whose {@code user_view} write failed off the main pipeline, so one bad record does not
+ * hold back its partition: the first failure goes to {@code user-events-retry-1}, each further failure to
+ * the next tier, and a failure in the last tier to {@code user-events-dlt}. Tier {@code n} is consumed by
+ * {@link UserEventRetryConsumer} {@code user-view.retry.delays[n-1]} after the failure.
+ * <p>
+ * Values are written as JSON (which {@code UserEventSerde} still reads), so dead letters can be read and
+ * replayed with the console tools. Every record carries the failure in the spring-kafka DLT headers and
+ * the retry state in {@link #ATTEMPT_HEADER} and {@link #DUE_AT_HEADER}.
+ * <p>
+ * Retrying out of order is safe because writes are version-guarded: a retried event older than what the
+ * view already has, or than the user's delete (kept in {@code user_view_tombstones} after the row is gone),
+ * is skipped.
+ */
+@Component
+@ConditionalOnProperty(name = "user-view.retry.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class UserEventRetryRouter {
+
+    public static final String DLT_TOPIC = KafkaTopicConfig.USER_EVENTS_TOPIC + "-dlt";
+    // failed attempts so far
+    static final String ATTEMPT_HEADER = "retry-attempt";
+    // epoch milliseconds before which the record is not retried
+    static final String DUE_AT_HEADER = "retry-due-at";
+    static final String FIRST_FAILED_AT_HEADER = "retry-first-failed-at";
+
+    private final Producer<String, byte[]> producer;
+    private final ObjectMapper objectMapper;
+    private final List<Duration> delays;
+    private final UserViewMetrics metrics;
+
+    @Autowired
+    public UserEventRetryRouter(ObjectMapper objectMapper,
+                                UserViewMetrics metrics,
+                                @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+                                @Value("${user-view.retry.delays:1s,30s,5m}") List<Duration> delays) {
+        this(new KafkaProducer<>(producerProperties(bootstrapServers), new StringSerializer(), new ByteArraySerializer()),
+                objectMapper, metrics, delays);
+    }
+
+    UserEventRetryRouter(Producer<String, byte[]> producer, ObjectMapper objectMapper, UserViewMetrics metrics,
+                         List<Duration> delays) {
+        this.producer = producer;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.delays = List.copyOf(delays);
+    }
+
+    public static String retryTopic(int tier) {
+        return KafkaTopicConfig.USER_EVENTS_TOPIC + "-retry-" + tier;
+    }
+
+    public List<String> retryTopics() {
+        return IntStream.rangeClosed(1, delays.size()).mapToObj(UserEventRetryRouter::retryTopic).toList();
+    }
+
+    /**
+     * The retry tier of a topic (1-based), or 0 for any other topic.
+     */
+    int tier(String topic) {
+        String prefix = KafkaTopicConfig.USER_EVENTS_TOPIC + "-retry-";
+        if (!topic.startsWith(prefix)) {
+            return 0;
+        }
+        try {
+            int tier = Integer.parseInt(topic.substring(prefix.length()));
+            return tier <= delays.size() ? tier : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    Duration delay(int tier) {
+        return delays.get(tier - 1);
+    }
+
+    /**
+     * Sends an event that failed on the main pipeline to the first retry tier. Returns once the record is
+     * acknowledged, so the caller can let its offset be committed.
+     */
+    public void route(UserEvent event, Throwable cause) {
+        byte[] value;
+        try {
+            value = objectMapper.writeValueAsBytes(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot encode user event " + event.getUserId(), e);
+        }
+        Headers headers = new RecordHeaders();
+        put(headers, KafkaHeaders.DLT_ORIGINAL_TOPIC, KafkaTopicConfig.USER_EVENTS_TOPIC);
+        put(headers, FIRST_FAILED_AT_HEADER, String.valueOf(System.currentTimeMillis()));
+        send(String.valueOf(event.getUserId()), value, headers, 1, cause);
+    }
+
+    /**
+     * Sends a record of a retry tier that failed again to the next tier, or to the dead-letter topic after
+     * the last one.
+     */
+    void retryFailed(ConsumerRecord<String, byte[]> record, Throwable cause) {
+        send(record.key(), record.value(), copy(record.headers()), tier(record.topic()) + 1, cause);
+    }
+
+    /**
+     * Sends a record that can never succeed (it cannot even be decoded) straight to the dead-letter topic.
+     */
+    void deadLetter(ConsumerRecord<String, byte[]> record, Throwable cause) {
+        send(record.key(), record.value(), copy(record.headers()), delays.size() + 1, cause);
+    }
+
+    private void send(String key, byte[] value, Headers headers, int tier, Throwable cause) {
+        long now = System.currentTimeMillis();
+        String topic = tier <= delays.size() ? retryTopic(tier) : DLT_TOPIC;
+        put(headers, ATTEMPT_HEADER, String.valueOf(attempt(headers) + 1));
+        if (tier <= delays.size()) {
+            put(headers, DUE_AT_HEADER, String.valueOf(now + delay(tier).toMillis()));
+        } else {
+            headers.remove(DUE_AT_HEADER);
+        }
+        put(headers, KafkaHeaders.DLT_EXCEPTION_FQCN, cause.getClass().getName());
+        put(headers, KafkaHeaders.DLT_EXCEPTION_CAUSE_FQCN, rootCause(cause).getClass().getName());
+        put(headers, KafkaHeaders.DLT_EXCEPTION_MESSAGE, String.valueOf(rootCause(cause).getMessage()));
+        try {
+            producer.send(new ProducerRecord<>(topic, null, key, value, headers)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while routing user " + key + " to " + topic, e);
+        } catch (ExecutionException e) {
+            // the caller fails instead of dropping the event
+            throw new IllegalStateException("Failed to route user " + key + " to " + topic, e.getCause());
+        }
+        metrics.recordRetry(topic);
+        if (topic.equals(DLT_TOPIC)) {
+            log.error("User {} moved to {} after {} attempts", key, topic, attempt(headers), cause);
+        } else {
+            log.warn("User {} write failed, retrying from {}: {}", key, topic, rootCause(cause).toString());
+        }
+    }
+
+    /**
+     * Whether the failure is Postgres being unavailable rather than something wrong with the record. Every
+     * record would fail the same way, so it is retried in place instead of being moved aside.
+     */
+    public static boolean isOutage(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof TransientDataAccessException
+                    || t instanceof DataAccessResourceFailureException
+                    || t instanceof SQLTransientException
+                    || t instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static long dueAt(ConsumerRecord<String, byte[]> record) {
+        String dueAt = header(record.headers(), DUE_AT_HEADER);
+        return dueAt != null ? Long.parseLong(dueAt) : 0L;
+    }
+
+    static int attempt(Headers headers) {
+        String attempt = header(headers, ATTEMPT_HEADER);
+        return attempt != null ? Integer.parseInt(attempt) : 0;
+    }
+
+    private static String header(Headers headers, String key) {
+        Header header = headers.lastHeader(key);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    private static void put(Headers headers, String key, String value) {
+        headers.remove(key);
+        headers.add(key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Headers copy(Headers headers) {
+        return new RecordHeaders(headers.toArray());
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root;
+    }
+
+    @PreDestroy
+    public void close() {
+        producer.close(Duration.ofSeconds(10));
+    }
+
+    private static Properties producerProperties(String bootstrapServers) {
+        Properties props = new Properties();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.CLIENT_ID_CONFIG, "user-event-retry");
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        return props;
+    }
+}
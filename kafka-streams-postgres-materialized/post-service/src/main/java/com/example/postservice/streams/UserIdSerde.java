@@ -0,0 +1,36 @@
+package com.example.postservice.streams;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Store key serde for the decimal userId strings used as record keys on {@code user-events}.
+ * Keys are written as 8-byte big-endian longs, so RocksDB orders them numerically and
+ * range scans follow user id order instead of string order.
+ */
+public class UserIdSerde implements Serde<String> {
+
+    @Override
+    public Serializer<String> serializer() {
+        return (topic, userId) -> {
+            if (userId == null) {
+                return null;
+            }
+            try {
+                // Flip the sign bit so negative ids sort before positive ones as unsigned bytes
+                return ByteBuffer.allocate(Long.BYTES).putLong(Long.parseLong(userId) ^ Long.MIN_VALUE).array();
+            } catch (NumberFormatException e) {
+                throw new SerializationException("User id is not numeric: " + userId, e);
+            }
+        };
+    }
+
+    @Override
+    public Deserializer<String> deserializer() {
+        return (topic, bytes) -> bytes == null ? null : Long.toString(ByteBuffer.wrap(bytes).getLong() ^ Long.MIN_VALUE);
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory n-gram inverted index of the names of the users owned by this instance, for substring
+ * search without {@code LIKE '%name%'} scans.
+ * <p>
+ * Every 1, 2 and 3 character gram of a normalized name (NFC, lower case) maps to the ids of the users
+ * whose name contains it. A query is answered from the posting list of its rarest gram (of length
+ * {@code min(3, query length)}); each candidate is then verified against its current name, so postings
+ * are append-only: renames and deletes leave stale entries behind that verification filters out, and the
+ * postings are rebuilt once stale entries outnumber live ones.
+ * <p>
+ * Matches are ranked exact name, then prefix, then start of a word, then anywhere; ties go to the
+ * shorter name and then the lower user id.
+ */
+@Component
+@Slf4j
+public class UserNameIndex {
+
+    public static final int RANK_EXACT = 0;
+    public static final int RANK_PREFIX = 1;
+    public static final int RANK_WORD_START = 2;
+    public static final int RANK_SUBSTRING = 3;
+
+    // best match first
+    private static final Comparator<Match> RANKING = Comparator.comparingInt(Match::rank)
+            .thenComparingInt(Match::length)
+            .thenComparingLong(Match::userId);
+
+    private static final int MAX_GRAM = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // users live in dense slots so postings are int arrays and a candidate costs two array reads
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private String[] names = new String[1024];
+    private long[] userIds = new long[1024];
+    private int slotCount;
+    private int[] freeSlots = new int[64];
+    private int freeSlotCount;
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private long liveEntries;
+    private long staleEntries;
+
+    /**
+     * Indexes the user's current name, or removes the user when {@code name} is null.
+     */
+    public void put(Long userId, String name) {
+        if (name == null) {
+            remove(userId);
+            return;
+        }
+        String normalized = normalize(name);
+        lock.writeLock().lock();
+        try {
+            Integer existing = slots.get(userId);
+            int slot = existing != null ? existing : allocate(userId);
+            String previous = names[slot];
+            if (normalized.equals(previous)) {
+                return;
+            }
+            names[slot] = normalized;
+            Set<Long> previousGrams = previous != null ? grams(previous) : Set.of();
+            Set<Long> grams = grams(normalized);
+            for (Long gram : grams) {
+                if (!previousGrams.contains(gram)) {
+                    postings.computeIfAbsent(gram, key -> new Postings()).add(slot);
+                    liveEntries++;
+                }
+            }
+            for (Long gram : previousGrams) {
+                if (!grams.contains(gram)) {
+                    markStale(1);
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long userId) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.remove(userId);
+            if (slot != null) {
+                markStale(grams(names[slot]).size());
+                names[slot] = null;
+                if (freeSlotCount == freeSlots.length) {
+                    freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+                }
+                freeSlots[freeSlotCount++] = slot;
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of up to {@code limit} users whose name contains {@code query} (case-insensitive),
+     * best match first.
+     */
+    public List<Long> search(String query, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Postings candidates = rarestPostings(normalized);
+            if (candidates == null) {
+                return List.of();
+            }
+            // worst of the best `limit` matches on top, so it can be replaced
+            PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            Set<Long> selected = new HashSet<>();
+            for (int i = 0; i < candidates.size; i++) {
+                int slot = candidates.slots[i];
+                String name = names[slot];
+                int rank = name != null ? rank(name, normalized) : -1;
+                if (rank < 0) {
+                    continue;
+                }
+                long userId = userIds[slot];
+                if (best.size() == limit && !ranksBefore(rank, name.length(), userId, best.peek())) {
+                    continue;
+                }
+                // a slot can appear twice in a posting list after a rename back or a reuse
+                if (!selected.add(userId)) {
+                    continue;
+                }
+                best.add(new Match(userId, rank, name.length()));
+                if (best.size() > limit) {
+                    selected.remove(best.poll().userId());
+                }
+            }
+            List<Match> matches = new ArrayList<>(best);
+            matches.sort(RANKING);
+            return matches.stream().map(Match::userId).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The order of {@link #search} for users found elsewhere (other instances, Postgres), so they can be merged.
+     */
+    public static Comparator<UserView> ranking(String query) {
+        String normalized = normalize(query);
+        return Comparator.comparing((UserView user) -> {
+            String name = user.getName() != null ? normalize(user.getName()) : "";
+            int rank = rank(name, normalized);
+            return new Match(user.getUserId(), rank >= 0 ? rank : RANK_SUBSTRING + 1, name.length());
+        }, RANKING);
+    }
+
+    /**
+     * Rank of {@code name} for {@code query} (both normalized), or -1 if it does not contain it.
+     */
+    public static int rank(String name, String query) {
+        int index = name.indexOf(query);
+        if (index < 0) {
+            return -1;
+        }
+        if (index == 0) {
+            return name.length() == query.length() ? RANK_EXACT : RANK_PREFIX;
+        }
+        do {
+            if (Character.isWhitespace(name.charAt(index - 1))) {
+                return RANK_WORD_START;
+            }
+            index = name.indexOf(query, index + 1);
+        } while (index > 0);
+        return RANK_SUBSTRING;
+    }
+
+    public static String normalize(String text) {
+        return Normalizer.normalize(text.trim(), Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+    }
+
+    private Postings rarestPostings(String query) {
+        int gramLength = Math.min(MAX_GRAM, query.length());
+        Postings rarest = null;
+        for (int start = 0; start + gramLength <= query.length(); start++) {
+            Postings candidate = postings.get(gram(query, start, gramLength));
+            if (candidate == null) {
+                // some gram of the query appears in no name
+                return null;
+            }
+            if (rarest == null || candidate.size < rarest.size) {
+                rarest = candidate;
+            }
+        }
+        return rarest;
+    }
+
+    private static boolean ranksBefore(int rank, int length, long userId, Match match) {
+        if (rank != match.rank()) {
+            return rank < match.rank();
+        }
+        if (length != match.length()) {
+            return length < match.length();
+        }
+        return userId < match.userId();
+    }
+
+    private int allocate(Long userId) {
+        int slot;
+        if (freeSlotCount > 0) {
+            slot = freeSlots[--freeSlotCount];
+        } else {
+            if (slotCount == names.length) {
+                names = Arrays.copyOf(names, slotCount * 2);
+                userIds = Arrays.copyOf(userIds, slotCount * 2);
+            }
+            slot = slotCount++;
+        }
+        userIds[slot] = userId;
+        slots.put(userId, slot);
+        return slot;
+    }
+
+    private void markStale(int entries) {
+        liveEntries -= entries;
+        staleEntries += entries;
+    }
+
+    private void compactIfNeeded() {
+        if (staleEntries <= 1024 || staleEntries <= liveEntries) {
+            return;
+        }
+        long start = System.nanoTime();
+        postings.clear();
+        liveEntries = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (names[slot] != null) {
+                for (Long gram : grams(names[slot])) {
+                    postings.computeIfAbsent(gram, key -> new Postings()).add(slot);
+                    liveEntries++;
+                }
+            }
+        }
+        log.info("Compacted user name index: dropped {} stale postings, {} users in {} ms",
+                staleEntries, slots.size(), (System.nanoTime() - start) / 1_000_000);
+        staleEntries = 0;
+    }
+
+    private static Set<Long> grams(String name) {
+        Set<Long> grams = new HashSet<>();
+        for (int length = 1; length <= MAX_GRAM; length++) {
+            for (int start = 0; start + length <= name.length(); start++) {
+                grams.add(gram(name, start, length));
+            }
+        }
+        return grams;
+    }
+
+    // UTF-16 units of the gram packed below its length
+    private static long gram(String text, int start, int length) {
+        long gram = length;
+        for (int i = start; i < start + length; i++) {
+            gram = (gram << 16) | text.charAt(i);
+        }
+        return gram;
+    }
+
+    private record Match(long userId, int rank, int length) {
+    }
+
+    /**
+     * Growable list of user slots; may contain slots whose name no longer has the gram.
+     */
+    private static final class Postings {
+
+        private int[] slots = new int[4];
+        private int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+}
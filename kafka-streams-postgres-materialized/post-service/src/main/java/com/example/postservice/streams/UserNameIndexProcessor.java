@@ -0,0 +1,68 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserView;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.TimestampedKeyValueStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+
+import java.util.function.Consumer;
+
+/**
+ * Keeps the {@link UserNameIndex} in step with the {@code user-view-store} of one task: loads the
+ * users already in the store (restored from the changelog) when the task starts, applies every
+ * change of the aggregated view, and drops the task's users again when the task is closed or
+ * migrated to another instance.
+ */
+@Slf4j
+public class UserNameIndexProcessor implements Processor<String, UserView, Void, Void> {
+
+    private final String storeName;
+    private final UserNameIndex index;
+    private TimestampedKeyValueStore<String, UserView> store;
+
+    public UserNameIndexProcessor(String storeName, UserNameIndex index) {
+        this.storeName = storeName;
+        this.index = index;
+    }
+
+    @Override
+    public void init(ProcessorContext<Void, Void> context) {
+        this.store = context.getStateStore(storeName);
+        int loaded = forEachStored(userView -> index.put(userView.getUserId(), userView.getName()));
+        log.info("Indexed {} user names of task {}", loaded, context.taskId());
+    }
+
+    @Override
+    public void process(Record<String, UserView> record) {
+        UserView userView = record.value();
+        index.put(Long.valueOf(record.key()), userView != null ? userView.getName() : null);
+    }
+
+    @Override
+    public void close() {
+        try {
+            forEachStored(userView -> index.remove(userView.getUserId()));
+        } catch (InvalidStateStoreException e) {
+            log.warn("Could not unindex the user names of a closed task: {}", e.getMessage());
+        }
+    }
+
+    private int forEachStored(Consumer<UserView> action) {
+        int count = 0;
+        try (KeyValueIterator<String, ValueAndTimestamp<UserView>> iterator = store.all()) {
+            while (iterator.hasNext()) {
+                ValueAndTimestamp<UserView> value = iterator.next().value;
+                if (value != null && value.value() != null) {
+                    action.accept(value.value());
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserEvent;
+import com.example.postservice.domain.UserView;
+import com.example.postservice.repository.UserViewJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies one user event to {@code user_view} with a version-guarded upsert or delete and
+ * notifies the projection listeners when a row actually changed. Only such events count towards
+ * the propagation latency: a stale retry or replay materializes nothing.
+ */
+@RequiredArgsConstructor
+@Slf4j
+class UserViewEventWriter {
+
+    private final UserViewJdbcRepository userViewJdbcRepository;
+    private final List<UserViewProjectionListener> projectionListeners;
+    private final UserViewMetrics metrics;
+    // sink mode the writes are reported under
+    private final String mode;
+
+    void apply(UserEvent event) {
+        long start = System.nanoTime();
+        boolean changed;
+        try {
+            switch (event.getEventType()) {
+                case "USER_CREATED":
+                case "USER_UPDATED":
+                    changed = upsertUserView(event);
+                    break;
+                case "USER_DELETED":
+                    changed = deleteUserView(event);
+                    break;
+                default:
+                    log.warn("Unknown event type: {}", event.getEventType());
+                    return;
+            }
+        } catch (RuntimeException e) {
+            metrics.recordError("write");
+            throw e;
+        }
+        metrics.recordWrite(mode, System.nanoTime() - start);
+        if (changed) {
+            metrics.recordPropagation(event.getTimestamp(), LocalDateTime.now());
+        }
+    }
+
+    private boolean upsertUserView(UserEvent event) {
+        UserView userView = UserView.from(event, LocalDateTime.now());
+
+        if (userViewJdbcRepository.upsertAll(List.of(userView)) > 0) {
+            projectionListeners.forEach(listener -> listener.onUpserted(userView));
+            log.debug("User view updated for user: {}", event.getUserId());
+            return true;
+        }
+        log.debug("Skipped stale event for user: {} (version {})", event.getUserId(), event.getVersion());
+        return false;
+    }
+
+    private boolean deleteUserView(UserEvent event) {
+        long version = event.getVersion() != null ? event.getVersion() : 0L;
+        if (userViewJdbcRepository.deleteAll(Map.of(event.getUserId(), version)) > 0) {
+            projectionListeners.forEach(listener -> listener.onDeleted(event.getUserId(), version));
+            log.debug("User view deleted for user: {}", event.getUserId());
+            return true;
+        }
+        log.debug("Skipped stale delete for user: {} (version {})", event.getUserId(), event.getVersion());
+        return false;
+    }
+}
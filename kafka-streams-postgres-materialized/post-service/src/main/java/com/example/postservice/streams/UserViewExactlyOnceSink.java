@@ -0,0 +1,287 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserEvent;
+import com.example.postservice.repository.UserViewJdbcRepository;
+import com.example.postservice.serde.UserEventSerde;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/**
+ * Sink mode {@code exactly-once}: projects {@code user-events} into {@code user_view} with a plain
+ * consumer group instead of the streams topology, and stores how far it got in each partition in
+ * {@code user_view_offsets}, in the same Postgres transaction as the view changes of every poll.
+ * <p>
+ * Offsets are never committed to Kafka. When partitions are assigned (on start and on every
+ * rebalance) the consumer seeks to the offsets stored in Postgres, so after a crash it resumes exactly
+ * after the last committed batch: no event is applied twice and none is skipped, without Kafka
+ * transactions. A batch that fails because Postgres is unavailable is discarded and consumed again from
+ * the stored offsets. A batch that fails for any other reason is written again one record at a time, each
+ * with its offset, so a record that still fails is the only one left: it is moved to the retry topics of
+ * {@link UserEventRetryRouter} (or, with retries disabled, logged and skipped) before its offset is
+ * stored, and the partitions go on. A consumer that lost its partitions but still commits a late batch
+ * cannot move the offsets back, and the version guard of the view makes its changes no-ops.
+ */
+@Component
+@ConditionalOnProperty(name = "user-view.sink.mode", havingValue = "exactly-once")
+@Slf4j
+public class UserViewExactlyOnceSink implements ConsumerRebalanceListener {
+
+    static final String TOPIC = "user-events";
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final UserViewJdbcRepository userViewJdbcRepository;
+    private final UserViewMetrics metrics;
+    private final Deserializer<UserEvent> deserializer;
+    private final String consumerGroup;
+    private final Supplier<Consumer<String, byte[]>> consumerFactory;
+    private final Duration retryBackoff;
+    private final UserViewSinkStore buffer;
+    // null when retry topics are disabled: a record that cannot be written is skipped
+    private final UserEventRetryRouter retryRouter;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile Consumer<String, byte[]> consumer;
+    // set when positions may be past what is stored, until they are reset from user_view_offsets
+    private boolean rewind;
+
+    @Autowired
+    public UserViewExactlyOnceSink(UserViewJdbcRepository userViewJdbcRepository,
+                                   List<UserViewProjectionListener> projectionListeners,
+                                   UserViewMetrics metrics,
+                                   ObjectMapper objectMapper,
+                                   @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+                                   @Value("${spring.application.name}") String applicationName,
+                                   @Value("${user-view.sink.batch-size:500}") int batchSize,
+                                   @Value("${user-view.sink.retry-backoff:1s}") Duration retryBackoff,
+                                   Optional<UserEventRetryRouter> retryRouter) {
+        this(userViewJdbcRepository, projectionListeners, metrics, new UserEventSerde(objectMapper),
+                applicationName + "-user-view-sink",
+                () -> new KafkaConsumer<>(consumerProperties(bootstrapServers, applicationName + "-user-view-sink", batchSize),
+                        new StringDeserializer(), new ByteArrayDeserializer()),
+                retryBackoff, retryRouter.orElse(null));
+    }
+
+    UserViewExactlyOnceSink(UserViewJdbcRepository userViewJdbcRepository,
+                            List<UserViewProjectionListener> projectionListeners,
+                            UserViewMetrics metrics,
+                            UserEventSerde userEventSerde,
+                            String consumerGroup,
+                            Supplier<Consumer<String, byte[]>> consumerFactory,
+                            Duration retryBackoff,
+                            UserEventRetryRouter retryRouter) {
+        this.userViewJdbcRepository = userViewJdbcRepository;
+        this.metrics = metrics;
+        this.deserializer = metrics.timed(userEventSerde).deserializer();
+        this.consumerGroup = consumerGroup;
+        this.consumerFactory = consumerFactory;
+        this.retryBackoff = retryBackoff;
+        this.retryRouter = retryRouter;
+        this.buffer = new UserViewSinkStore("user-view-exactly-once-sink", userViewJdbcRepository, projectionListeners, metrics);
+        this.thread = new Thread(this::run, "user-view-exactly-once-sink");
+    }
+
+    @PostConstruct
+    public void start() {
+        userViewJdbcRepository.createOffsetsTableIfMissing();
+        thread.start();
+        log.info("User view exactly-once sink started (consumer group {})", consumerGroup);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Consumer<String, byte[]> current = consumer;
+        if (current != null) {
+            current.wakeup();
+        }
+        thread.join(POLL_TIMEOUT.toMillis() + retryBackoff.toMillis() + 5_000);
+    }
+
+    /**
+     * Seeks the assigned partitions to the offsets stored in Postgres, or to the beginning for partitions
+     * never written.
+     */
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        seekToStoredOffsets(consumer, partitions);
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        // every poll is committed before the next one, so there is nothing to flush
+    }
+
+    /**
+     * Polls once and commits the view changes of the records together with their offsets. If Postgres is
+     * unavailable, the next call first seeks back to the stored offsets, so the records are consumed again.
+     */
+    void pollOnce(Consumer<String, byte[]> consumer) {
+        if (rewind) {
+            seekToStoredOffsets(consumer, consumer.assignment());
+            rewind = false;
+        }
+        ConsumerRecords<String, byte[]> records = consumer.poll(POLL_TIMEOUT);
+        if (records.isEmpty()) {
+            return;
+        }
+        Map<Integer, Long> nextOffsets = new HashMap<>();
+        List<ConsumerRecord<String, byte[]>> polled = new ArrayList<>(records.count());
+        List<UserEvent> events = new ArrayList<>(records.count());
+        for (ConsumerRecord<String, byte[]> record : records) {
+            UserEvent event = decode(record);
+            if (event != null) {
+                metrics.recordEvent(event);
+                buffer.add(event);
+            }
+            polled.add(record);
+            events.add(event);
+            nextOffsets.put(record.partition(), record.offset() + 1);
+        }
+        try {
+            try {
+                buffer.flush(consumerGroup, TOPIC, nextOffsets);
+            } catch (RuntimeException e) {
+                buffer.discard();
+                if (UserEventRetryRouter.isOutage(e)) {
+                    throw e;
+                }
+                writeOneByOne(polled, events, e);
+            }
+        } catch (RuntimeException e) {
+            buffer.discard();
+            rewind = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the records of a failed batch one at a time, each in a transaction with its own offset, and
+     * moves aside the ones that still fail. An outage on the way fails the poll; the records before it are
+     * stored and are not consumed again.
+     */
+    private void writeOneByOne(List<ConsumerRecord<String, byte[]>> records, List<UserEvent> events,
+                               RuntimeException batchFailure) {
+        log.warn("User view batch of {} records failed, writing them one by one: {}", records.size(), batchFailure.toString());
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, byte[]> record = records.get(i);
+            UserEvent event = events.get(i);
+            Map<Integer, Long> nextOffset = Map.of(record.partition(), record.offset() + 1);
+            if (event != null) {
+                buffer.add(event);
+            }
+            try {
+                buffer.flush(consumerGroup, TOPIC, nextOffset);
+            } catch (RuntimeException e) {
+                buffer.discard();
+                if (event == null || UserEventRetryRouter.isOutage(e)) {
+                    throw e;
+                }
+                moveAside(record, event, e);
+                // only the offset: the record is in the retry topics now
+                buffer.flush(consumerGroup, TOPIC, nextOffset);
+            }
+        }
+    }
+
+    private void moveAside(ConsumerRecord<String, byte[]> record, UserEvent event, RuntimeException cause) {
+        if (retryRouter != null) {
+            retryRouter.route(event, cause);
+            return;
+        }
+        metrics.recordError("skip");
+        log.error("Skipping user {} at {}-{}@{}: its user_view write keeps failing and retry topics are disabled",
+                record.key(), record.topic(), record.partition(), record.offset(), cause);
+    }
+
+    private void run() {
+        try (Consumer<String, byte[]> kafkaConsumer = consumerFactory.get()) {
+            consumer = kafkaConsumer;
+            kafkaConsumer.subscribe(List.of(TOPIC), this);
+            while (running) {
+                try {
+                    pollOnce(kafkaConsumer);
+                } catch (WakeupException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    log.warn("Failed to apply user events, retrying from the stored offsets in {}", retryBackoff, e);
+                    Thread.sleep(retryBackoff.toMillis());
+                }
+            }
+        } catch (WakeupException | InterruptedException e) {
+            log.info("User view exactly-once sink stopped");
+        }
+    }
+
+    void seekToStoredOffsets(Consumer<String, byte[]> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        Map<Integer, Long> stored = userViewJdbcRepository.findOffsets(consumerGroup, TOPIC);
+        for (TopicPartition partition : partitions) {
+            Long offset = stored.get(partition.partition());
+            if (offset != null) {
+                consumer.seek(partition, offset);
+            } else {
+                consumer.seekToBeginning(List.of(partition));
+            }
+        }
+        log.info("Seeked {} to the offsets stored in user_view_offsets: {}", partitions, stored);
+    }
+
+    /**
+     * The event, a delete for a tombstone, or null (logged and skipped, as the streams pipeline does)
+     * for records that cannot be applied.
+     */
+    private UserEvent decode(ConsumerRecord<String, byte[]> record) {
+        try {
+            if (record.value() != null) {
+                return deserializer.deserialize(record.topic(), record.value());
+            }
+            if (record.key() != null && !record.key().isEmpty() && record.key().chars().allMatch(Character::isDigit)) {
+                return UserEvent.tombstone(Long.valueOf(record.key()));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Skipping undecodable record {}-{}@{}", record.topic(), record.partition(), record.offset(), e);
+        }
+        return null;
+    }
+
+    private static Properties consumerProperties(String bootstrapServers, String groupId, int batchSize) {
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        // positions come from user_view_offsets; Kafka's committed offsets are never used
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchSize);
+        return props;
+    }
+}
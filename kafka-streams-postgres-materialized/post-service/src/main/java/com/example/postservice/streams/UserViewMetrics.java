@@ -0,0 +1,121 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instruments for the user view pipeline, one per stage, so a slow stage shows up on
+ * {@code /actuator/metrics} instead of only in INFO logs:
+ * <ul>
+ *     <li>{@code user.view.events} - consumed events, tagged {@code type}</li>
+ *     <li>{@code user.view.decode} - record value decode time</li>
+ *     <li>{@code user.view.db.write} - Postgres write latency, tagged {@code mode} (batch | single | parallel | exactly-once | retry)</li>
+ *     <li>{@code user.view.sink.batch.size} - users per batch flush</li>
+ *     <li>{@code user.view.propagation} - {@code UserEvent.timestamp} to the commit of its {@code user_view} write</li>
+ *     <li>{@code user.view.errors} - failures, tagged {@code stage} (decode | write)</li>
+ *     <li>{@code user.view.coalesced} - events replaced by a newer event of the same user before being written</li>
+ *     <li>{@code user.view.retry.routed} - failed events sent to a retry or dead-letter topic, tagged {@code topic}</li>
+ * </ul>
+ * Percentiles and SLO buckets are configured under {@code management.metrics.distribution}.
+ * Propagation compares clocks of user-service and post-service, so it is only as accurate as their sync.
+ */
+@Component
+public class UserViewMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Timer decodeTimer;
+    private final Timer propagationTimer;
+    private final DistributionSummary batchSize;
+    private final Counter coalesced;
+
+    public UserViewMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.decodeTimer = Timer.builder("user.view.decode")
+                .description("Time to decode one user-events record")
+                .register(meterRegistry);
+        this.propagationTimer = Timer.builder("user.view.propagation")
+                .description("Event timestamp to user_view write commit")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("user.view.sink.batch.size")
+                .description("Users written per batch flush")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("user.view.coalesced")
+                .description("Events dropped in favour of a newer event of the same user")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Wraps the serde so every decode is timed and every undecodable record is counted.
+     */
+    public Serde<UserEvent> timed(Serde<UserEvent> serde) {
+        Deserializer<UserEvent> deserializer = serde.deserializer();
+        Deserializer<UserEvent> timedDeserializer = (topic, data) -> {
+            long start = System.nanoTime();
+            try {
+                return deserializer.deserialize(topic, data);
+            } catch (RuntimeException e) {
+                recordError("decode");
+                throw e;
+            } finally {
+                decodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+        return Serdes.serdeFrom(serde.serializer(), timedDeserializer);
+    }
+
+    public void recordEvent(UserEvent event) {
+        Counter.builder("user.view.events")
+                .tag("type", event.getEventType() != null ? event.getEventType() : "UNKNOWN")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordWrite(String mode, long elapsedNanos) {
+        Timer.builder("user.view.db.write")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBatch(int users) {
+        batchSize.record(users);
+    }
+
+    public void recordPropagation(LocalDateTime eventTimestamp, LocalDateTime materializedAt) {
+        if (eventTimestamp == null) {
+            return;
+        }
+        Duration age = Duration.between(eventTimestamp, materializedAt);
+        // clock skew between the services can make very fresh events look like they come from the future
+        propagationTimer.record(age.isNegative() ? Duration.ZERO : age);
+    }
+
+    public void recordCoalesced() {
+        coalesced.increment();
+    }
+
+    public void recordRetry(String topic) {
+        Counter.builder("user.view.retry.routed")
+                .tag("topic", topic)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordError(String stage) {
+        Counter.builder("user.view.errors")
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserEvent;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+
+/**
+ * Passes user events to the {@link UserViewParallelSinkStore}, which writes them on the
+ * key-ordered worker pool and holds back the commit until they are done.
+ */
+public class UserViewParallelSinkProcessor implements Processor<String, UserEvent, Void, Void> {
+
+    private final String storeName;
+    private UserViewParallelSinkStore sinkStore;
+
+    public UserViewParallelSinkProcessor(String storeName) {
+        this.storeName = storeName;
+    }
+
+    @Override
+    public void init(ProcessorContext<Void, Void> context) {
+        sinkStore = context.getStateStore(storeName);
+    }
+
+    @Override
+    public void process(Record<String, UserEvent> record) {
+        sinkStore.submit(record.value());
+    }
+}
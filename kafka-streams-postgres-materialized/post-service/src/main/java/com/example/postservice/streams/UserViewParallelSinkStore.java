@@ -0,0 +1,203 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.streams.errors.StreamsException;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.StateStore;
+import org.apache.kafka.streams.processor.StateStoreContext;
+import org.apache.kafka.streams.state.StoreBuilder;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Hands user events of one task to the shared {@link KeyOrderedExecutor} and tracks them until
+ * they are written. Registered as a (non-persistent) state store so that Kafka Streams calls
+ * {@link #flush()} before committing the task's offsets: the flush waits for every record handed
+ * over so far, so an offset is never committed ahead of a write that has not completed.
+ */
+@Slf4j
+public class UserViewParallelSinkStore implements StateStore {
+
+    private final String name;
+    private final KeyOrderedExecutor executor;
+    private final UserViewEventWriter writer;
+    // null when retry topics are disabled: every failure fails the task
+    private final UserEventRetryRouter retryRouter;
+    private int pending;
+    private Throwable failure;
+    private boolean open;
+
+    UserViewParallelSinkStore(String name, KeyOrderedExecutor executor, UserViewEventWriter writer) {
+        this(name, executor, writer, null);
+    }
+
+    UserViewParallelSinkStore(String name, KeyOrderedExecutor executor, UserViewEventWriter writer,
+                              UserEventRetryRouter retryRouter) {
+        this.name = name;
+        this.executor = executor;
+        this.writer = writer;
+        this.retryRouter = retryRouter;
+    }
+
+    public void submit(UserEvent event) {
+        synchronized (this) {
+            pending++;
+        }
+        try {
+            executor.submit(event.getUserId(), () -> apply(event))
+                    .whenComplete((result, ex) -> completed(ex));
+        } catch (RuntimeException e) {
+            completed(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the event; a failure that is not a Postgres outage moves the event to the retry topics, so
+     * the rest of the task is committed without it.
+     */
+    private void apply(UserEvent event) {
+        try {
+            writer.apply(event);
+        } catch (RuntimeException e) {
+            if (retryRouter == null || UserEventRetryRouter.isOutage(e)) {
+                throw e;
+            }
+            retryRouter.route(event, e);
+        }
+    }
+
+    private synchronized void completed(Throwable ex) {
+        pending--;
+        if (ex != null && failure == null) {
+            failure = ex;
+        }
+        if (pending == 0) {
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        long start = System.nanoTime();
+        int waitingFor = pending;
+        awaitPending();
+        if (failure != null) {
+            Throwable cause = failure;
+            failure = null;
+            // fails the task before its offsets are committed, so the records are processed again
+            throw new StreamsException("User view write failed", cause);
+        }
+        if (waitingFor > 0) {
+            log.debug("Waited for {} user view writes in {} ms", waitingFor, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private void awaitPending() {
+        boolean interrupted = false;
+        while (pending > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    @Deprecated
+    public void init(ProcessorContext context, StateStore root) {
+        context.register(root, (key, value) -> { });
+        open = true;
+    }
+
+    @Override
+    public void init(StateStoreContext context, StateStore root) {
+        context.register(root, (key, value) -> { });
+        open = true;
+    }
+
+    @Override
+    public synchronized void close() {
+        // Uncommitted records are re-delivered to the next owner; versions make a late write harmless,
+        // but let in-flight writes finish so they do not outlive the task
+        awaitPending();
+        failure = null;
+        open = false;
+    }
+
+    @Override
+    public boolean persistent() {
+        return false;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    public static class Builder implements StoreBuilder<UserViewParallelSinkStore> {
+
+        private final String name;
+        private final KeyOrderedExecutor executor;
+        private final UserViewEventWriter writer;
+        private final UserEventRetryRouter retryRouter;
+
+        Builder(String name, KeyOrderedExecutor executor, UserViewEventWriter writer, UserEventRetryRouter retryRouter) {
+            this.name = name;
+            this.executor = executor;
+            this.writer = writer;
+            this.retryRouter = retryRouter;
+        }
+
+        @Override
+        public StoreBuilder<UserViewParallelSinkStore> withCachingEnabled() {
+            return this;
+        }
+
+        @Override
+        public StoreBuilder<UserViewParallelSinkStore> withCachingDisabled() {
+            return this;
+        }
+
+        @Override
+        public StoreBuilder<UserViewParallelSinkStore> withLoggingEnabled(Map<String, String> config) {
+            return this;
+        }
+
+        @Override
+        public StoreBuilder<UserViewParallelSinkStore> withLoggingDisabled() {
+            return this;
+        }
+
+        @Override
+        public UserViewParallelSinkStore build() {
+            return new UserViewParallelSinkStore(name, executor, writer, retryRouter);
+        }
+
+        @Override
+        public Map<String, String> logConfig() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public boolean loggingEnabled() {
+            return false;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+    }
+}
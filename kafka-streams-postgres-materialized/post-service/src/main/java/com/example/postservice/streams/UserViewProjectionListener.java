@@ -0,0 +1,21 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserView;
+
+/**
+ * Notified after user view changes have been committed to the Postgres projection.
+ * Changes may be delivered even if the write was skipped as stale, so implementations
+ * should compare versions themselves.
+ */
+public interface UserViewProjectionListener {
+    
+    void onUpserted(UserView userView);
+    
+    void onDeleted(Long userId, long version);
+    
+    /**
+     * Called after {@code user_view} has been replaced wholesale by a rebuild.
+     */
+    default void onRebuilt() {
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserView;
+import org.apache.kafka.streams.state.HostInfo;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Calls the {@code /internal/user-views} endpoints of the instance that owns a key
+ * (or of every instance, for scatter-gather queries).
+ */
+@Component
+public class UserViewRemoteClient {
+    
+    private static final ParameterizedTypeReference<List<UserView>> USER_VIEW_LIST = new ParameterizedTypeReference<>() { };
+    
+    private final RestTemplate restTemplate;
+    
+    public UserViewRemoteClient(RestTemplateBuilder restTemplateBuilder) {
+        this.restTemplate = restTemplateBuilder
+                .setConnectTimeout(Duration.ofSeconds(1))
+                .setReadTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+    
+    public Optional<UserView> findById(HostInfo host, Long userId) {
+        try {
+            return Optional.ofNullable(restTemplate.getForObject(baseUrl(host) + "/{userId}", UserView.class, userId));
+        } catch (HttpClientErrorException.NotFound e) {
+            return Optional.empty();
+        }
+    }
+    
+    public List<UserView> findAllById(HostInfo host, Collection<Long> userIds) {
+        return restTemplate.exchange(baseUrl(host) + "/batch", HttpMethod.POST, new HttpEntity<>(userIds), USER_VIEW_LIST)
+                .getBody();
+    }
+    
+    public List<UserView> findAll(HostInfo host) {
+        return restTemplate.exchange(baseUrl(host), HttpMethod.GET, null, USER_VIEW_LIST).getBody();
+    }
+    
+    public List<UserView> findByDepartment(HostInfo host, String department) {
+        return restTemplate.exchange(baseUrl(host) + "/department/{department}", HttpMethod.GET, null, USER_VIEW_LIST, department)
+                .getBody();
+    }
+    
+    public List<UserView> findPage(HostInfo host, String department, Long afterUserId, int limit) {
+        UriComponentsBuilder uri = UriComponentsBuilder.fromHttpUrl(baseUrl(host) + "/page")
+                .queryParam("limit", limit);
+        if (department != null) {
+            uri.queryParam("department", department);
+        }
+        if (afterUserId != null) {
+            uri.queryParam("after", afterUserId);
+        }
+        return restTemplate.exchange(uri.encode().build().toUri(), HttpMethod.GET, null, USER_VIEW_LIST).getBody();
+    }
+    
+    public List<UserView> searchByName(HostInfo host, String name, int limit) {
+        URI uri = UriComponentsBuilder.fromHttpUrl(baseUrl(host) + "/search")
+                .queryParam("name", name)
+                .queryParam("limit", limit)
+                .encode().build().toUri();
+        return restTemplate.exchange(uri, HttpMethod.GET, null, USER_VIEW_LIST).getBody();
+    }
+    
+    private String baseUrl(HostInfo host) {
+        return "http://" + host.host() + ":" + host.port() + "/internal/user-views";
+    }
+}
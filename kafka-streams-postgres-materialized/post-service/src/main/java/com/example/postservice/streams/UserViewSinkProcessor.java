@@ -0,0 +1,41 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+
+/**
+ * Buffers user events into the {@link UserViewSinkStore}. The store is flushed by
+ * Kafka Streams on commit, or here as soon as it reaches the configured batch size.
+ */
+@Slf4j
+public class UserViewSinkProcessor implements Processor<String, UserEvent, Void, Void> {
+
+    private final String storeName;
+    private final int batchSize;
+    private UserViewSinkStore sinkStore;
+
+    public UserViewSinkProcessor(String storeName, int batchSize) {
+        this.storeName = storeName;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void init(ProcessorContext<Void, Void> context) {
+        sinkStore = context.getStateStore(storeName);
+    }
+
+    @Override
+    public void process(Record<String, UserEvent> record) {
+        UserEvent event = record.value();
+        log.debug("Buffering user event: {} for user: {}", event.getEventType(), event.getUserId());
+
+        sinkStore.add(event);
+
+        if (sinkStore.size() >= batchSize) {
+            sinkStore.flush();
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserEvent;
+import com.example.postservice.domain.UserView;
+import com.example.postservice.repository.UserViewJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.StateStore;
+import org.apache.kafka.streams.processor.StateStoreContext;
+import org.apache.kafka.streams.state.StoreBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * Write buffer for {@code user_view} changes, registered as a (non-persistent) state store so that
+ * Kafka Streams flushes it on every commit, before the input offsets are committed.
+ * Each user is kept only in its highest-versioned state, which also keeps multi-row upserts valid
+ * ({@code ON CONFLICT} cannot touch the same row twice in one statement).
+ * <p>
+ * {@link UserViewExactlyOnceSink} uses it outside Kafka Streams as its per-poll buffer, flushed together
+ * with the consumed offsets.
+ * <p>
+ * With a {@link UserEventRetryRouter}, a batch that fails for any reason other than a Postgres outage is
+ * written again one user at a time, and only the users that still fail are moved to the retry topics.
+ */
+@Slf4j
+public class UserViewSinkStore implements StateStore {
+
+    private final String name;
+    private final UserViewJdbcRepository userViewJdbcRepository;
+    private final List<UserViewProjectionListener> listeners;
+    private final UserViewMetrics metrics;
+    // null when retry topics are disabled: a failed batch fails the task
+    private final UserEventRetryRouter retryRouter;
+    private final Map<Long, UserView> pendingUpserts = new LinkedHashMap<>();
+    private final Map<Long, Long> pendingDeletes = new LinkedHashMap<>();
+    // timestamps of every event buffered since the last flush, superseded ones included
+    private final List<LocalDateTime> pendingEventTimes = new ArrayList<>();
+    // the event behind each pending change, to write it on its own if the batch fails (only with retries)
+    private final Map<Long, UserEvent> pendingEvents = new LinkedHashMap<>();
+    private boolean open;
+
+    public UserViewSinkStore(String name, UserViewJdbcRepository userViewJdbcRepository,
+                             List<UserViewProjectionListener> listeners, UserViewMetrics metrics) {
+        this(name, userViewJdbcRepository, listeners, metrics, null);
+    }
+
+    public UserViewSinkStore(String name, UserViewJdbcRepository userViewJdbcRepository,
+                             List<UserViewProjectionListener> listeners, UserViewMetrics metrics,
+                             UserEventRetryRouter retryRouter) {
+        this.name = name;
+        this.userViewJdbcRepository = userViewJdbcRepository;
+        this.listeners = listeners;
+        this.metrics = metrics;
+        this.retryRouter = retryRouter;
+    }
+
+    /**
+     * Buffers the change the event makes to the view; events of unknown types are logged and ignored.
+     */
+    public void add(UserEvent event) {
+        switch (event.getEventType()) {
+            case "USER_CREATED":
+            case "USER_UPDATED":
+                upsert(UserView.from(event, LocalDateTime.now()), event.getTimestamp());
+                break;
+            case "USER_DELETED":
+                delete(event.getUserId(), event.getVersion() != null ? event.getVersion() : 0L, event.getTimestamp());
+                break;
+            default:
+                log.warn("Unknown event type: {}", event.getEventType());
+                return;
+        }
+        long version = event.getVersion() != null ? event.getVersion() : 0L;
+        if (retryRouter != null && pendingVersion(event.getUserId()) == version) {
+            pendingEvents.put(event.getUserId(), event);
+        }
+    }
+
+    public void upsert(UserView userView, LocalDateTime eventTimestamp) {
+        pendingEventTimes.add(eventTimestamp);
+        Long userId = userView.getUserId();
+        if (userView.getVersion() <= pendingVersion(userId)) {
+            return;
+        }
+        pendingDeletes.remove(userId);
+        pendingUpserts.put(userId, userView);
+    }
+
+    public void delete(Long userId, long version, LocalDateTime eventTimestamp) {
+        pendingEventTimes.add(eventTimestamp);
+        if (version <= pendingVersion(userId)) {
+            return;
+        }
+        pendingUpserts.remove(userId);
+        pendingDeletes.put(userId, version);
+    }
+
+    private long pendingVersion(Long userId) {
+        UserView pending = pendingUpserts.get(userId);
+        if (pending != null) {
+            return pending.getVersion();
+        }
+        return pendingDeletes.getOrDefault(userId, -1L);
+    }
+
+    public int size() {
+        return pendingUpserts.size() + pendingDeletes.size();
+    }
+
+    @Override
+    public void flush() {
+        if (size() == 0) {
+            return;
+        }
+        try {
+            write("batch", () -> userViewJdbcRepository.applyBatch(pendingUpserts.values(), pendingDeletes));
+        } catch (RuntimeException e) {
+            if (retryRouter == null || UserEventRetryRouter.isOutage(e)) {
+                throw e;
+            }
+            writeOneByOne(e);
+        }
+    }
+
+    /**
+     * Isolates the users that made the batch fail: writes every buffered event on its own and moves the
+     * ones that fail to the retry topics. An outage on the way fails the flush, and the rows already
+     * written are skipped as stale when the records are processed again.
+     */
+    private void writeOneByOne(RuntimeException batchFailure) {
+        log.warn("User view batch of {} users failed, writing them one by one: {}", size(), batchFailure.toString());
+        UserViewEventWriter writer = new UserViewEventWriter(userViewJdbcRepository, listeners, metrics, "batch");
+        for (UserEvent event : List.copyOf(pendingEvents.values())) {
+            try {
+                writer.apply(event);
+            } catch (RuntimeException e) {
+                if (UserEventRetryRouter.isOutage(e)) {
+                    throw e;
+                }
+                retryRouter.route(event, e);
+            }
+        }
+        discard();
+    }
+
+    /**
+     * Writes the buffered changes and the offsets after the consumed records in one transaction, even
+     * when nothing is buffered (every record was stale or skipped), so the offsets stored with the view
+     * always match its contents.
+     *
+     * @param nextOffsets source partition to the offset of the next record to consume
+     */
+    public void flush(String consumerGroup, String topic, Map<Integer, Long> nextOffsets) {
+        write("exactly-once", () -> userViewJdbcRepository.applyBatch(
+                pendingUpserts.values(), pendingDeletes, consumerGroup, topic, nextOffsets));
+    }
+
+    /**
+     * Drops everything buffered, for changes that will be consumed again.
+     */
+    public void discard() {
+        pendingUpserts.clear();
+        pendingDeletes.clear();
+        pendingEventTimes.clear();
+        pendingEvents.clear();
+    }
+
+    private void write(String mode, IntSupplier applyBatch) {
+        long start = System.nanoTime();
+        int upserts = pendingUpserts.size();
+        int deletes = pendingDeletes.size();
+        // lastProcessedAt is the time the row is written, not the time the event was buffered
+        LocalDateTime processedAt = LocalDateTime.now();
+        pendingUpserts.values().forEach(userView -> userView.setLastProcessedAt(processedAt));
+        int applied;
+        try {
+            applied = applyBatch.getAsInt();
+        } catch (RuntimeException e) {
+            metrics.recordError("write");
+            throw e;
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        metrics.recordWrite(mode, elapsedNanos);
+        metrics.recordBatch(upserts + deletes);
+        LocalDateTime committedAt = LocalDateTime.now();
+        pendingEventTimes.forEach(eventTimestamp -> metrics.recordPropagation(eventTimestamp, committedAt));
+        notifyListeners(new ArrayList<>(pendingUpserts.values()), new LinkedHashMap<>(pendingDeletes));
+        discard();
+        long elapsedMs = elapsedNanos / 1_000_000;
+        log.info("Flushed user view batch: {} upserts, {} deletes ({} rows changed, {} stale skipped) in {} ms",
+                upserts, deletes, applied, upserts + deletes - applied, elapsedMs);
+    }
+
+    private void notifyListeners(List<UserView> upserted, Map<Long, Long> deleted) {
+        for (UserViewProjectionListener listener : listeners) {
+            try {
+                upserted.forEach(listener::onUpserted);
+                deleted.forEach(listener::onDeleted);
+            } catch (Exception e) {
+                log.error("User view projection listener failed: {}", listener, e);
+            }
+        }
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    @Deprecated
+    public void init(ProcessorContext context, StateStore root) {
+        context.register(root, (key, value) -> { });
+        open = true;
+    }
+
+    @Override
+    public void init(StateStoreContext context, StateStore root) {
+        context.register(root, (key, value) -> { });
+        open = true;
+    }
+
+    @Override
+    public void close() {
+        // Anything still buffered was not committed and will be re-delivered
+        discard();
+        open = false;
+    }
+
+    @Override
+    public boolean persistent() {
+        return false;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    public static class Builder implements StoreBuilder<UserViewSinkStore> {
+
+        private final String name;
+        private final UserViewJdbcRepository userViewJdbcRepository;
+        private final List<UserViewProjectionListener> listeners;
+        private final UserViewMetrics metrics;
+        private final UserEventRetryRouter retryRouter;
+
+        public Builder(String name, UserViewJdbcRepository userViewJdbcRepository,
+                       List<UserViewProjectionListener> listeners, UserViewMetrics metrics,
+                       UserEventRetryRouter retryRouter) {
+            this.name = name;
+            this.userViewJdbcRepository = userViewJdbcRepository;
+            this.listeners = listeners;
+            this.metrics = metrics;
+            this.retryRouter = retryRouter;
+        }
+
+        @Override
+        public StoreBuilder<UserViewSinkStore> withCachingEnabled() {
+            return this;
+        }
+
+        @Override
+        public StoreBuilder<UserViewSinkStore> withCachingDisabled() {
+            return this;
+        }
+
+        @Override
+        public StoreBuilder<UserViewSinkStore> withLoggingEnabled(Map<String, String> config) {
+            return this;
+        }
+
+        @Override
+        public StoreBuilder<UserViewSinkStore> withLoggingDisabled() {
+            return this;
+        }
+
+        @Override
+        public UserViewSinkStore build() {
+            return new UserViewSinkStore(name, userViewJdbcRepository, listeners, metrics, retryRouter);
+        }
+
+        @Override
+        public Map<String, String> logConfig() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public boolean loggingEnabled() {
+            return false;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+    }
+}
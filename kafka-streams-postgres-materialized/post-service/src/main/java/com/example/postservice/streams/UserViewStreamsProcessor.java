@@ -1,85 +1,224 @@
 package com.example.postservice.streams;
 
+import com.example.postservice.domain.AuthorDepartment;
 import com.example.postservice.domain.UserEvent;
 import com.example.postservice.domain.UserView;
-import com.example.postservice.repository.UserViewRepository;
+import com.example.postservice.repository.UserViewJdbcRepository;
+import com.example.postservice.serde.UserEventSerde;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Bytes;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Grouped;
 import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.KTable;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.serializer.JsonSerde;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class UserViewStreamsProcessor {
     
-    private final UserViewRepository userViewRepository;
+    public static final String USER_VIEW_STORE_NAME = "user-view-store";
+    static final String SINK_STORE_NAME = "user-view-sink";
+    static final String PARALLEL_SINK_STORE_NAME = "user-view-parallel-sink";
+    static final String COALESCE_STORE_NAME = "user-event-coalesce";
+    static final String AUTHOR_DEPARTMENT_STORE_NAME = "author-department-changes";
+    
+    private final UserViewJdbcRepository userViewJdbcRepository;
     private final ObjectMapper objectMapper;
+    private final List<UserViewProjectionListener> projectionListeners;
+    private final UserViewMetrics metrics;
+    private final UserNameIndex userNameIndex;
+    
+    // Whether user_view in Postgres is kept as a downstream projection of the local store
+    @Value("${user-view.projection.enabled:true}")
+    private boolean projectionEnabled;
+    
+    @Value("${user-view.read-source:state-store}")
+    private String readSource;
+    
+    // In-memory n-gram index of the local users' names, for name search with the state-store read source
+    @Value("${user-view.name-index.enabled:true}")
+    private boolean nameIndexEnabled;
+    
+    // Broadcast department changes on author-departments, so every instance's post index learns moves (AuthorDepartmentFeed)
+    @Value("${post.department-feed.enabled:true}")
+    private boolean departmentFeedEnabled;
+    
+    // read-time: posts are enriched with a user lookup on every read; write-time: by EnrichedPostTopology
+    @Value("${post.enrichment.mode:read-time}")
+    private String postEnrichmentMode;
+    
+    // batch: buffer per commit interval and flush as multi-row upserts, single: one conditional upsert per event,
+    // parallel: one conditional upsert per event on a worker pool keyed by user id
+    @Value("${user-view.sink.mode:batch}")
+    private String sinkMode;
+    
+    @Value("${user-view.sink.batch-size:500}")
+    private int batchSize;
+    
+    // parallel mode: lanes shared by all stream tasks, and queued writes before the stream thread blocks
+    @Value("${user-view.sink.workers:8}")
+    private int workers;
+    
+    @Value("${user-view.sink.max-pending:10000}")
+    private int maxPending;
+    
+    // Forward only the latest event per user once per window to the sink (adds up to one window of staleness)
+    @Value("${user-view.coalesce.enabled:false}")
+    private boolean coalesceEnabled;
+    
+    @Value("${user-view.coalesce.window:1s}")
+    private Duration coalesceWindow;
+    
+    // Failed writes go to the retry topics instead of failing the task or being dropped (user-view.retry.enabled)
+    @Autowired(required = false)
+    private UserEventRetryRouter retryRouter;
+    
+    private KeyOrderedExecutor keyOrderedExecutor;
     
     @Autowired
     public void buildPipeline(StreamsBuilder streamsBuilder) {
-        KStream<String, String> userEventsStream = streamsBuilder
-                .stream("user-events", Consumed.with(Serdes.String(), Serdes.String()));
+        // Binary or legacy JSON values; undecodable records are logged and skipped by the deserialization handler.
+        // Tombstones of the compacted topic become deletes, since aggregations drop null values.
+        UserEventSerde userEventSerde = new UserEventSerde(objectMapper);
+        KStream<String, UserEvent> userEventsStream = streamsBuilder
+                .stream("user-events", Consumed.with(Serdes.String(), metrics.timed(userEventSerde)))
+                .filter((userId, event) -> event != null || isUserIdKey(userId))
+                .mapValues((userId, event) -> event != null ? event : UserEvent.tombstone(Long.valueOf(userId)))
+                .peek((userId, event) -> metrics.recordEvent(event));
         log.info("userEventsStream: {}", userEventsStream);
-        userEventsStream.foreach((key, value) -> {
-            try {
-                UserEvent event = objectMapper.readValue(value, UserEvent.class);
+        
+        // Persistent (RocksDB) copy of every user owned by this instance, served through interactive queries
+        JsonSerde<UserView> userViewSerde = new JsonSerde<>(UserView.class, objectMapper).noTypeInfo();
+        KTable<String, UserView> userViews = userEventsStream
+                .groupByKey(Grouped.with(new UserIdSerde(), userEventSerde))
+                .aggregate(
+                        () -> null,
+                        (userId, event, current) -> applyToView(event, current),
+                        Materialized.<String, UserView, KeyValueStore<Bytes, byte[]>>as(USER_VIEW_STORE_NAME)
+                                .withKeySerde(new UserIdSerde())
+                                .withValueSerde(userViewSerde));
+        
+        if (nameIndexEnabled && "state-store".equals(readSource)) {
+            // changes reach the index when the store's cache is flushed (at most one commit interval behind)
+            userViews.toStream().process(() -> new UserNameIndexProcessor(USER_VIEW_STORE_NAME, userNameIndex), USER_VIEW_STORE_NAME);
+        }
+        
+        if (departmentFeedEnabled) {
+            JsonSerde<AuthorDepartment> authorDepartmentSerde = new JsonSerde<>(AuthorDepartment.class, objectMapper).noTypeInfo();
+            streamsBuilder.addStateStore(Stores.keyValueStoreBuilder(
+                    Stores.persistentKeyValueStore(AUTHOR_DEPARTMENT_STORE_NAME), new UserIdSerde(), authorDepartmentSerde));
+            userEventsStream
+                    .processValues(() -> new AuthorDepartmentChangeProcessor(AUTHOR_DEPARTMENT_STORE_NAME), AUTHOR_DEPARTMENT_STORE_NAME)
+                    .to(AuthorDepartmentFeed.TOPIC, Produced.with(Serdes.String(), authorDepartmentSerde));
+        }
+        
+        if ("write-time".equals(postEnrichmentMode)) {
+            EnrichedPostTopology.build(streamsBuilder, userViews, objectMapper);
+        }
+        
+        if (!projectionEnabled) {
+            log.info("User view streams processor initialized (Postgres projection disabled)");
+            return;
+        }
+        
+        if ("exactly-once".equals(sinkMode)) {
+            // UserViewExactlyOnceSink projects with its own consumer and keeps its offsets in Postgres
+            log.info("User view streams processor initialized (Postgres projection by the exactly-once sink)");
+            return;
+        }
+        
+        KStream<String, UserEvent> sinkStream = userEventsStream;
+        if (coalesceEnabled) {
+            streamsBuilder.addStateStore(Stores.keyValueStoreBuilder(
+                    Stores.persistentKeyValueStore(COALESCE_STORE_NAME), new UserIdSerde(), userEventSerde));
+            sinkStream = userEventsStream.process(
+                    () -> new UserEventCoalescingProcessor(COALESCE_STORE_NAME, coalesceWindow, metrics), COALESCE_STORE_NAME);
+        }
+        
+        UserViewEventWriter writer = new UserViewEventWriter(userViewJdbcRepository, projectionListeners, metrics, sinkMode);
+        if ("batch".equals(sinkMode)) {
+            streamsBuilder.addStateStore(new UserViewSinkStore.Builder(SINK_STORE_NAME, userViewJdbcRepository, projectionListeners, metrics, retryRouter));
+            sinkStream.process(() -> new UserViewSinkProcessor(SINK_STORE_NAME, batchSize), SINK_STORE_NAME);
+        } else if ("parallel".equals(sinkMode)) {
+            keyOrderedExecutor = new KeyOrderedExecutor("user-view-sink", workers, maxPending);
+            streamsBuilder.addStateStore(new UserViewParallelSinkStore.Builder(PARALLEL_SINK_STORE_NAME, keyOrderedExecutor, writer, retryRouter));
+            sinkStream.process(() -> new UserViewParallelSinkProcessor(PARALLEL_SINK_STORE_NAME), PARALLEL_SINK_STORE_NAME);
+        } else {
+            sinkStream.foreach((key, event) -> {
                 log.info("event: {}", event);
-                processUserEvent(event);
-            } catch (Exception e) {
-                log.error("Error processing user event: {}", value, e);
-            }
-        });
+                processUserEvent(writer, event);
+            });
+        }
         
-        log.info("User view streams processor initialized");
+        log.info("User view streams processor initialized (sink mode: {}, batch size: {}, workers: {}, coalesce: {}, retry: {})",
+                sinkMode, batchSize, workers, coalesceEnabled ? coalesceWindow : "off", retryRouter != null ? retryRouter.retryTopics() : "off");
     }
     
-    private void processUserEvent(UserEvent event) {
-        log.info("Processing user event: {} for user: {}", event.getEventType(), event.getUserId());
-        
-        try {
-            switch (event.getEventType()) {
-                case "USER_CREATED":
-                case "USER_UPDATED":
-                    upsertUserView(event);
-                    break;
-                case "USER_DELETED":
-                    deleteUserView(event);
-                    break;
-                default:
-                    log.warn("Unknown event type: {}", event.getEventType());
-            }
-        } catch (Exception e) {
-            log.error("Error processing user event: {}", event, e);
+    // Kafka Streams is stopped (and its tasks flushed) before beans are destroyed
+    @PreDestroy
+    public void shutdown() {
+        if (keyOrderedExecutor != null) {
+            keyOrderedExecutor.close();
         }
     }
     
-    private void upsertUserView(UserEvent event) {
-        UserView userView = UserView.builder()
-                .userId(event.getUserId())
-                .name(event.getUser().getName())
-                .email(event.getUser().getEmail())
-                .department(event.getUser().getDepartment())
-                .status(event.getUser().getStatus())
-                .createdAt(event.getUser().getCreatedAt())
-                .updatedAt(event.getUser().getUpdatedAt())
-                .version(event.getVersion())
-                .lastProcessedAt(LocalDateTime.now())
-                .build();
-        
-        userViewRepository.save(userView);
-        log.info("User view updated for user: {}", event.getUserId());
+    /**
+     * Aggregator for the local store: keeps the highest version seen, and a null value
+     * (removal from the store) once the user is deleted.
+     */
+    private UserView applyToView(UserEvent event, UserView current) {
+        long version = event.getVersion() != null ? event.getVersion() : 0L;
+        if (current != null && current.getVersion() >= version) {
+            return current;
+        }
+        switch (event.getEventType()) {
+            case "USER_CREATED":
+            case "USER_UPDATED":
+                return UserView.from(event, LocalDateTime.now());
+            case "USER_DELETED":
+                return null;
+            default:
+                return current;
+        }
+    }
+    
+    // A tombstone without a usable user id cannot be applied to anything
+    private static boolean isUserIdKey(String userId) {
+        return userId != null && !userId.isEmpty() && userId.chars().allMatch(Character::isDigit);
     }
     
-    private void deleteUserView(UserEvent event) {
-        userViewRepository.deleteById(event.getUserId());
-        log.info("User view deleted for user: {}", event.getUserId());
+    private void processUserEvent(UserViewEventWriter writer, UserEvent event) {
+        log.info("Processing user event: {} for user: {}", event.getEventType(), event.getUserId());
+        
+        try {
+            writer.apply(event);
+        } catch (RuntimeException e) {
+            if (retryRouter == null) {
+                log.error("Error processing user event: {}", event, e);
+            } else if (UserEventRetryRouter.isOutage(e)) {
+                // every event would fail the same way; fail the task so the record is processed again
+                throw e;
+            } else {
+                retryRouter.route(event, e);
+            }
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,81 @@
+package com.example.postservice.serde;
+
+import com.example.postservice.domain.UserEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserEventSerdeTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final UserEventSerde serde = new UserEventSerde(objectMapper);
+
+    @Test
+    void 바이너리_인코딩_후_디코딩하면_원본과_같다() {
+        // given
+        UserEvent event = sampleEvent();
+
+        // when
+        byte[] bytes = serde.serializer().serialize("user-events", event);
+        UserEvent decoded = serde.deserializer().deserialize("user-events", bytes);
+
+        // then
+        assertThat(bytes[0]).isEqualTo(UserEventSerde.MAGIC);
+        assertThat(decoded).isEqualTo(event);
+    }
+
+    @Test
+    void 기존_JSON_레코드도_디코딩된다() throws Exception {
+        // given
+        UserEvent event = sampleEvent();
+        byte[] json = objectMapper.writeValueAsBytes(event);
+
+        // when
+        UserEvent decoded = serde.deserializer().deserialize("user-events", json);
+
+        // then
+        assertThat(decoded).isEqualTo(event);
+    }
+
+    @Test
+    void 바이너리_인코딩이_JSON보다_작다() throws Exception {
+        // given
+        UserEvent event = sampleEvent();
+
+        // when
+        int binarySize = serde.serializer().serialize("user-events", event).length;
+        int jsonSize = objectMapper.writeValueAsBytes(event).length;
+
+        // then
+        assertThat(binarySize).isLessThan(jsonSize / 2);
+    }
+
+    private UserEvent sampleEvent() {
+        LocalDateTime now = LocalDateTime.of(2025, 7, 17, 6, 3, 43, 792_924_968);
+        UserEvent.User user = UserEvent.User.builder()
+                .id(7L)
+                .name("장웅")
+                .email("changwng@example.com")
+                .department("개발팀")
+                .status("ACTIVE")
+                .createdAt(now)
+                .updatedAt(now)
+                .version(3L)
+                .build();
+        return UserEvent.builder()
+                .eventType("USER_UPDATED")
+                .userId(7L)
+                .user(user)
+                .timestamp(now)
+                .version(3L)
+                .build();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.postservice.service;
+
+import com.example.postservice.domain.Post;
+import com.example.postservice.domain.UserView;
+import com.example.postservice.persistence.PostStorePersistence;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostServiceTest {
+
+    private final UserViewLookup userViewLookup = mock(UserViewLookup.class);
+    private final PostService postService = new PostService(userViewLookup);
+
+    @Test
+    void 커서_이후의_포스트를_id_순서로_페이지_단위로_조회한다() {
+        // given
+        when(userViewLookup.findAllById(anyCollection()))
+                .thenReturn(Map.of(1L, UserView.builder().userId(1L).name("장웅").department("개발팀").build()));
+        for (int i = 0; i < 5; i++) {
+            postService.createPost(Post.builder().title("제목" + i).authorId(1L).build());
+        }
+
+        // when
+        List<Post> firstPage = postService.getPostsPage(null, 2);
+        List<Post> secondPage = postService.getPostsPage(firstPage.get(1).getId(), 2);
+        List<Long> streamed = new ArrayList<>();
+        postService.forEachPost(post -> streamed.add(post.getId()));
+
+        // then
+        assertThat(firstPage).extracting(Post::getId).containsExactly(1L, 2L);
+        assertThat(secondPage).extracting(Post::getId).containsExactly(3L, 4L);
+        assertThat(secondPage).extracting(Post::getAuthorName).containsOnly("장웅");
+        assertThat(streamed).containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    void 작성자와_부서_인덱스로_조회하고_부서_이동을_반영한다() {
+        // given
+        UserView jang = user(1L, "개발팀", 1L);
+        UserView kim = user(2L, "기획팀", 1L);
+        when(userViewLookup.findById(1L)).thenReturn(Optional.of(jang));
+        when(userViewLookup.findById(2L)).thenReturn(Optional.of(kim));
+        postService.createPost(Post.builder().title("a").authorId(1L).build());
+        postService.createPost(Post.builder().title("b").authorId(2L).build());
+        postService.createPost(Post.builder().title("c").authorId(1L).build());
+        postService.deletePost(1L);
+        postService.createPost(Post.builder().title("d").authorId(1L).build());
+
+        // when: 장웅 moves to 기획팀 through user-events
+        UserView moved = user(1L, "기획팀", 2L);
+        postService.onUpserted(moved);
+        when(userViewLookup.findAllById(anyCollection())).thenReturn(Map.of(1L, moved, 2L, kim));
+
+        // then
+        assertThat(postService.getPostsByAuthor(1L)).extracting(Post::getId).containsExactly(3L, 4L);
+        assertThat(postService.getPostsByDepartment("기획팀")).extracting(Post::getId).containsExactly(2L, 3L, 4L);
+        assertThat(postService.getPostsByDepartment("개발팀")).isEmpty();
+    }
+
+    @Test
+    void 놓친_부서_이동은_부서_조회에서_걸러내고_인덱스를_바로잡는다() {
+        // given
+        when(userViewLookup.findById(1L)).thenReturn(Optional.of(user(1L, "개발팀", 1L)));
+        postService.createPost(Post.builder().title("a").authorId(1L).build());
+
+        // when: the move was projected on another instance
+        when(userViewLookup.findAllById(anyCollection())).thenReturn(Map.of(1L, user(1L, "기획팀", 2L)));
+        List<Post> stale = postService.getPostsByDepartment("개발팀");
+
+        // then
+        assertThat(stale).isEmpty();
+        assertThat(postService.getPostsByDepartment("기획팀")).extracting(Post::getId).containsExactly(1L);
+    }
+
+    @Test
+    void 다른_인스턴스에서_전파된_부서_이동도_부서_조회에_포함한다() {
+        // given
+        when(userViewLookup.findById(1L)).thenReturn(Optional.of(user(1L, "개발팀", 1L)));
+        postService.createPost(Post.builder().title("a").authorId(1L).build());
+        postService.createPost(Post.builder().title("b").authorId(2L).build());
+
+        // when: the move was projected on another instance and reached this one only through the feed
+        postService.onAuthorDepartment(1L, "기획팀", 2L);
+        postService.onAuthorDepartment(1L, "개발팀", 1L); // replayed after a restart
+        when(userViewLookup.findAllById(anyCollection())).thenReturn(Map.of(1L, user(1L, "기획팀", 2L)));
+        List<Post> posts = postService.getPostsByDepartment("기획팀");
+
+        // then
+        assertThat(posts).extracting(Post::getId).containsExactly(1L);
+        assertThat(posts).extracting(Post::getAuthorDepartment).containsOnly("기획팀");
+        assertThat(postService.getPostsByDepartment("개발팀")).isEmpty();
+        verify(userViewLookup, never()).forEach(any(), any());
+    }
+
+    @Test
+    void 재시작하면_저장된_포스트와_인덱스를_복원하고_삭제된_id를_다시_쓰지_않는다(@TempDir Path dir) throws Exception {
+        // given
+        when(userViewLookup.findById(1L)).thenReturn(Optional.of(user(1L, "개발팀", 1L)));
+        PostService persistent = new PostService(userViewLookup, Optional.empty(), Optional.of(persistence(dir)));
+        persistent.createPost(Post.builder().title("a").authorId(1L).build());
+        persistent.createPost(Post.builder().title("b").authorId(1L).build());
+        persistent.updatePost(1L, Post.builder().title("a2").authorId(1L).build());
+        persistent.createPost(Post.builder().title("c").authorId(1L).build());
+        persistent.deletePost(3L);
+        // no shutdown snapshot: everything comes from the log
+
+        // when
+        PostStorePersistence restartedPersistence = persistence(dir);
+        PostService restarted = new PostService(userViewLookup, Optional.empty(), Optional.of(restartedPersistence));
+        when(userViewLookup.findAllById(anyCollection())).thenReturn(Map.of(1L, user(1L, "개발팀", 1L)));
+
+        // then
+        assertThat(restarted.getPostsPage(null, 10)).extracting(Post::getTitle).containsExactly("a2", "b");
+        assertThat(restarted.getPostsByDepartment("개발팀")).extracting(Post::getId).containsExactly(1L, 2L);
+        assertThat(restarted.createPost(Post.builder().title("d").authorId(1L).build()).getId()).isEqualTo(4L);
+        restartedPersistence.close();
+        PostStorePersistence fromSnapshot = persistence(dir);
+        assertThat(new PostService(userViewLookup, Optional.empty(), Optional.of(fromSnapshot))
+                .getPostsByAuthor(1L)).extracting(Post::getId).containsExactly(1L, 2L, 4L);
+        fromSnapshot.close();
+    }
+
+    private static UserView user(Long userId, String department, Long version) {
+        return UserView.builder().userId(userId).name("사용자" + userId).department(department).version(version).build();
+    }
+
+    private static PostStorePersistence persistence(Path dir) {
+        return new PostStorePersistence(dir, DataSize.ofMegabytes(1), true, Duration.ofHours(1), new SimpleMeterRegistry());
+    }
+}
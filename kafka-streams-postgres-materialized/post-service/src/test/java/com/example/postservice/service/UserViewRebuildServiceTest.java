@@ -0,0 +1,161 @@
+package com.example.postservice.service;
+
+import com.example.postservice.domain.UserEvent;
+import com.example.postservice.domain.UserView;
+import com.example.postservice.domain.UserViewRebuildStatus;
+import com.example.postservice.repository.UserViewJdbcRepository;
+import com.example.postservice.repository.UserViewRebuildRepository;
+import com.example.postservice.serde.UserEventSerde;
+import com.example.postservice.streams.UserViewProjectionListener;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserViewRebuildServiceTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition(UserViewRebuildService.TOPIC, 0);
+
+    private final UserViewRebuildRepository rebuildRepository = mock(UserViewRebuildRepository.class);
+    private final UserViewJdbcRepository userViewJdbcRepository = mock(UserViewJdbcRepository.class);
+    private final UserViewProjectionListener listener = mock(UserViewProjectionListener.class);
+    private final UserEventSerde serde = new UserEventSerde(new ObjectMapper());
+    private final MockConsumer<String, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final List<UserEvent> copied = new ArrayList<>();
+
+    private UserViewRebuildService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new UserViewRebuildService(rebuildRepository, userViewJdbcRepository, List.of(listener), serde,
+                () -> consumer, 2, "10s");
+        consumer.updatePartitions(UserViewRebuildService.TOPIC,
+                List.of(new PartitionInfo(UserViewRebuildService.TOPIC, 0, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        consumer.updateEndOffsets(Map.of(PARTITION, 4L));
+        when(rebuildRepository.copyEvents(anyList())).thenAnswer(invocation -> {
+            List<UserEvent> events = invocation.getArgument(0);
+            copied.addAll(events);
+            return (long) events.size();
+        });
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(rebuildRepository).swap(eq("10s"), any());
+    }
+
+    @Test
+    void 처음부터_적재하고_그사이_들어온_이벤트를_반영한_뒤_교체한다() {
+        // given
+        consumer.schedulePollTask(() -> {
+            consumer.addRecord(record(0, event("USER_CREATED", 1L, 1L)));
+            consumer.addRecord(record(1, event("USER_UPDATED", 1L, 2L)));
+            // tombstone of a user deleted earlier
+            consumer.addRecord(new ConsumerRecord<>(UserViewRebuildService.TOPIC, 0, 2, "9", null));
+            consumer.addRecord(record(3, event("USER_CREATED", 2L, 1L)));
+        });
+        // events produced while the shadow table is being indexed
+        doAnswer(invocation -> {
+            consumer.addRecord(record(4, event("USER_DELETED", 2L, 2L)));
+            consumer.addRecord(record(5, event("USER_CREATED", 3L, 1L)));
+            consumer.addRecord(record(6, event("USER_UPDATED", 3L, 2L)));
+            consumer.updateEndOffsets(Map.of(PARTITION, 7L));
+            return null;
+        }).when(rebuildRepository).buildIndexes();
+        when(rebuildRepository.buildShadowTable()).thenReturn(2);
+
+        // when
+        service.rebuild(consumer);
+
+        // then
+        assertThat(copied).extracting(UserEvent::getUserId, UserEvent::getVersion)
+                .containsExactly(tuple(1L, 1L), tuple(1L, 2L), tuple(9L, Long.MAX_VALUE), tuple(2L, 1L));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<UserView>> upserts = ArgumentCaptor.forClass(Collection.class);
+        verify(userViewJdbcRepository).applyBatch(upserts.capture(), eq(Map.of(2L, 2L)));
+        assertThat(upserts.getValue()).extracting(UserView::getUserId, UserView::getVersion)
+                .containsExactly(tuple(3L, 2L));
+        verify(listener).onRebuilt();
+
+        UserViewRebuildStatus status = service.getStatus();
+        assertThat(status.getPhase()).isEqualTo(UserViewRebuildStatus.Phase.COMPLETED);
+        assertThat(status.getOffsetsTotal()).isEqualTo(4);
+        assertThat(status.getOffsetsConsumed()).isEqualTo(4);
+        assertThat(status.getPercentComplete()).isEqualTo(100.0);
+        assertThat(status.getEventsLoaded()).isEqualTo(4);
+        assertThat(status.getEventsSkipped()).isZero();
+        assertThat(status.getUsersLoaded()).isEqualTo(2);
+        assertThat(status.getCatchUpEvents()).isEqualTo(3);
+    }
+
+    @Test
+    void 실패하면_shadow_테이블을_지우고_기존_테이블은_교체하지_않는다() {
+        // given
+        consumer.schedulePollTask(() -> {
+            for (int offset = 0; offset < 4; offset++) {
+                consumer.addRecord(record(offset, event("USER_CREATED", (long) offset, 1L)));
+            }
+        });
+        when(rebuildRepository.buildShadowTable()).thenThrow(new IllegalStateException("disk full"));
+
+        // when
+        service.rebuild(consumer);
+
+        // then
+        UserViewRebuildStatus status = service.getStatus();
+        assertThat(status.getPhase()).isEqualTo(UserViewRebuildStatus.Phase.FAILED);
+        assertThat(status.getError()).isEqualTo("disk full");
+        verify(rebuildRepository).dropShadowTables();
+        verify(rebuildRepository, never()).swap(any(), any());
+        verify(listener, never()).onRebuilt();
+    }
+
+    private ConsumerRecord<String, byte[]> record(long offset, UserEvent event) {
+        return new ConsumerRecord<>(UserViewRebuildService.TOPIC, 0, offset,
+                String.valueOf(event.getUserId()), serde.encode(event));
+    }
+
+    private static UserEvent event(String type, Long userId, Long version) {
+        UserEvent event = new UserEvent();
+        event.setEventType(type);
+        event.setUserId(userId);
+        event.setVersion(version);
+        event.setTimestamp(LocalDateTime.now());
+        if (!"USER_DELETED".equals(type)) {
+            UserEvent.User user = new UserEvent.User();
+            user.setId(userId);
+            user.setName("사용자" + userId);
+            user.setEmail("user" + userId + "@example.com");
+            user.setDepartment("개발팀");
+            user.setStatus("ACTIVE");
+            user.setCreatedAt(LocalDateTime.now());
+            user.setUpdatedAt(LocalDateTime.now());
+            user.setVersion(version);
+            event.setUser(user);
+        }
+        return event;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.postservice.streams;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthorDepartmentFeedTest {
+
+    private static final TopicPartition P0 = new TopicPartition(AuthorDepartmentFeed.TOPIC, 0);
+    private static final TopicPartition P1 = new TopicPartition(AuthorDepartmentFeed.TOPIC, 1);
+
+    private final MockConsumer<String, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.LATEST);
+    private final List<String> received = new ArrayList<>();
+    private final AuthorDepartmentFeed feed = new AuthorDepartmentFeed(
+            List.of((authorId, department, version) -> received.add(authorId + ":" + department + "@" + version)),
+            new ObjectMapper(), () -> consumer);
+
+    @Test
+    void 모든_파티션을_처음부터_읽어_부서_변경을_전달한다() {
+        // given
+        Node node = new Node(0, "localhost", 9092);
+        consumer.updatePartitions(AuthorDepartmentFeed.TOPIC, List.of(
+                new PartitionInfo(AuthorDepartmentFeed.TOPIC, 0, node, new Node[0], new Node[0]),
+                new PartitionInfo(AuthorDepartmentFeed.TOPIC, 1, node, new Node[0], new Node[0])));
+        consumer.updateBeginningOffsets(Map.of(P0, 0L, P1, 0L));
+
+        // when
+        boolean assigned = feed.assignAll(consumer);
+        consumer.addRecord(record(P0, 0, "1", "{\"department\":\"기획팀\",\"version\":2}"));
+        consumer.addRecord(record(P1, 0, "2", "{\"department\":null,\"version\":5}"));
+        consumer.addRecord(record(P1, 1, "3", "not json"));
+        feed.pollOnce(consumer);
+
+        // then
+        assertThat(assigned).isTrue();
+        assertThat(consumer.assignment()).containsExactlyInAnyOrder(P0, P1);
+        assertThat(received).containsExactlyInAnyOrder("1:기획팀@2", "2:null@5");
+    }
+
+    @Test
+    void 토픽이_아직_없으면_할당하지_않는다() {
+        // when
+        boolean assigned = feed.assignAll(consumer);
+
+        // then
+        assertThat(assigned).isFalse();
+        assertThat(consumer.assignment()).isEmpty();
+    }
+
+    private static ConsumerRecord<String, byte[]> record(TopicPartition partition, long offset, String key, String value) {
+        return new ConsumerRecord<>(partition.topic(), partition.partition(), offset, key,
+                value.getBytes(StandardCharsets.UTF_8));
+    }
+}
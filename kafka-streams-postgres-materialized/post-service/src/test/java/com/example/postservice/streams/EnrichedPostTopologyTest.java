@@ -0,0 +1,109 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.Post;
+import com.example.postservice.domain.UserEvent;
+import com.example.postservice.repository.UserViewJdbcRepository;
+import com.example.postservice.serde.UserEventSerde;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonSerde;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+
+class EnrichedPostTopologyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final JsonSerde<Post> postSerde = new JsonSerde<>(Post.class, objectMapper).noTypeInfo();
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, UserEvent> userEvents;
+    private TestInputTopic<String, Post> postEvents;
+    private TestOutputTopic<String, Post> enrichedPosts;
+
+    @BeforeEach
+    void setUp() {
+        UserViewStreamsProcessor processor = new UserViewStreamsProcessor(mock(UserViewJdbcRepository.class),
+                objectMapper, List.of(), new UserViewMetrics(new SimpleMeterRegistry()), new UserNameIndex());
+        ReflectionTestUtils.setField(processor, "postEnrichmentMode", "write-time");
+        StreamsBuilder builder = new StreamsBuilder();
+        processor.buildPipeline(builder);
+        driver = new TopologyTestDriver(builder.build());
+        userEvents = driver.createInputTopic("user-events", new StringSerializer(), new UserEventSerde(objectMapper).serializer());
+        postEvents = driver.createInputTopic(EnrichedPostTopology.POST_EVENTS_TOPIC, new StringSerializer(), postSerde.serializer());
+        enrichedPosts = driver.createOutputTopic(EnrichedPostTopology.ENRICHED_POSTS_TOPIC, new StringDeserializer(),
+                postSerde.deserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    @Test
+    void 작성자_정보를_붙여_내보내고_작성자가_바뀌면_다시_내보낸다() {
+        // given
+        userEvents.pipeInput("1", user(1L, "개발팀", "ACTIVE", 1));
+        postEvents.pipeInput("10", post(10L, 1L));
+        postEvents.pipeInput("11", post(11L, 1L));
+
+        // when
+        userEvents.pipeInput("1", user(1L, "개발팀", "INACTIVE", 2));
+        userEvents.pipeInput("1", user(1L, "기획팀", "INACTIVE", 3));
+        postEvents.pipeInput("10", null);
+
+        // then
+        List<KeyValue<String, Post>> emitted = enrichedPosts.readKeyValuesToList();
+        assertThat(emitted.subList(0, 4)).extracting(record -> record.key, record -> record.value.getAuthorDepartment())
+                .containsExactly(
+                        tuple("10", "개발팀"),
+                        tuple("11", "개발팀"),
+                        // the status change alone re-emits nothing
+                        tuple("10", "기획팀"),
+                        tuple("11", "기획팀"));
+        assertThat(emitted.get(0).value.getAuthorName()).isEqualTo("사용자1");
+        // the join may forward the tombstone of a deleted post more than once
+        assertThat(emitted.subList(4, emitted.size())).isNotEmpty()
+                .allSatisfy(record -> assertThat(record).isEqualTo(KeyValue.pair("10", null)));
+    }
+
+    private static Post post(Long id, Long authorId) {
+        LocalDateTime now = LocalDateTime.of(2025, 7, 17, 6, 3, 43);
+        return Post.builder().id(id).title("제목" + id).content("내용").authorId(authorId).createdAt(now).updatedAt(now).build();
+    }
+
+    private static UserEvent user(Long userId, String department, String status, long version) {
+        LocalDateTime now = LocalDateTime.of(2025, 7, 17, 6, 3, 43);
+        return UserEvent.builder()
+                .eventType("USER_UPDATED")
+                .userId(userId)
+                .user(UserEvent.User.builder()
+                        .id(userId)
+                        .name("사용자" + userId)
+                        .email("user" + userId + "@example.com")
+                        .department(department)
+                        .status(status)
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .version(version)
+                        .build())
+                .timestamp(now)
+                .version(version)
+                .build();
+    }
+}
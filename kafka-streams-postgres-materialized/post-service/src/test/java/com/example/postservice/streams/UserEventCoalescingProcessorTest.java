@@ -0,0 +1,110 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserEvent;
+import com.example.postservice.serde.UserEventSerde;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.state.Stores;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserEventCoalescingProcessorTest {
+
+    private final UserEventSerde serde = new UserEventSerde(new ObjectMapper().registerModule(new JavaTimeModule()));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, UserEvent> input;
+    private TestOutputTopic<String, UserEvent> output;
+
+    @BeforeEach
+    void setUp() {
+        StreamsBuilder builder = new StreamsBuilder();
+        builder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore("coalesce"), new UserIdSerde(), serde));
+        builder.stream("user-events", Consumed.with(Serdes.String(), serde))
+                .process(() -> new UserEventCoalescingProcessor("coalesce", Duration.ofSeconds(1),
+                        new UserViewMetrics(meterRegistry)), "coalesce")
+                .to("coalesced", Produced.with(Serdes.String(), serde));
+        driver = new TopologyTestDriver(builder.build());
+        input = driver.createInputTopic("user-events", new StringSerializer(), serde.serializer());
+        output = driver.createOutputTopic("coalesced", new StringDeserializer(), serde.deserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    @Test
+    void 윈도우_동안_사용자별_최신_이벤트만_내보낸다() {
+        // given
+        for (long version = 1; version <= 100; version++) {
+            input.pipeInput("1", event(1L, "USER_UPDATED", version));
+        }
+        input.pipeInput("2", event(2L, "USER_CREATED", 1));
+        input.pipeInput("1", event(1L, "USER_UPDATED", 50));
+
+        // when
+        boolean emptyBeforeWindow = output.isEmpty();
+        driver.advanceWallClockTime(Duration.ofSeconds(1));
+
+        // then
+        assertThat(emptyBeforeWindow).isTrue();
+        Map<String, UserEvent> emitted = output.readKeyValuesToMap();
+        assertThat(emitted).hasSize(2);
+        assertThat(emitted.get("1").getVersion()).isEqualTo(100L);
+        assertThat(emitted.get("2").getVersion()).isEqualTo(1L);
+        assertThat(meterRegistry.get("user.view.coalesced").counter().count()).isEqualTo(100);
+    }
+
+    @Test
+    void 삭제는_이전_업서트보다_우선한다() {
+        // given
+        input.pipeInput("1", event(1L, "USER_UPDATED", 3));
+        input.pipeInput("1", event(1L, "USER_DELETED", 4));
+        input.pipeInput("7", event(7L, "USER_DELETED", 2));
+        input.pipeInput("7", event(7L, "USER_UPDATED", 2));
+
+        // when
+        driver.advanceWallClockTime(Duration.ofSeconds(1));
+
+        // then
+        Map<String, UserEvent> emitted = output.readKeyValuesToMap();
+        assertThat(emitted.get("1").getEventType()).isEqualTo("USER_DELETED");
+        assertThat(emitted.get("7").getEventType()).isEqualTo("USER_DELETED");
+    }
+
+    private UserEvent event(Long userId, String type, long version) {
+        LocalDateTime now = LocalDateTime.of(2025, 7, 17, 6, 3, 43);
+        return UserEvent.builder()
+                .eventType(type)
+                .userId(userId)
+                .user(UserEvent.User.builder()
+                        .id(userId)
+                        .name("사용자" + userId)
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .version(version)
+                        .build())
+                .timestamp(now)
+                .version(version)
+                .build();
+    }
+}
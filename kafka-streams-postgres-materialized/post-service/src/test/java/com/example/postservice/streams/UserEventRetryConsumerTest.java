@@ -0,0 +1,164 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserEvent;
+import com.example.postservice.domain.UserView;
+import com.example.postservice.repository.UserViewJdbcRepository;
+import com.example.postservice.serde.UserEventSerde;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserEventRetryConsumerTest {
+
+    private static final String TIER_1 = UserEventRetryRouter.retryTopic(1);
+    private static final String TIER_2 = UserEventRetryRouter.retryTopic(2);
+    private static final TopicPartition P0 = new TopicPartition(TIER_1, 0);
+    private static final TopicPartition P1 = new TopicPartition(TIER_1, 1);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final UserViewJdbcRepository repository = mock(UserViewJdbcRepository.class);
+    private final UserViewMetrics metrics = new UserViewMetrics(new SimpleMeterRegistry());
+    private final MockProducer<String, byte[]> producer =
+            new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer());
+    private final UserEventRetryRouter router =
+            new UserEventRetryRouter(producer, objectMapper, metrics, List.of(Duration.ofSeconds(1), Duration.ofMinutes(1)));
+    private final MockConsumer<String, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final UserEventRetryConsumer retryConsumer = new UserEventRetryConsumer(router,
+            new UserViewEventWriter(repository, List.of(), metrics, "retry"), metrics,
+            new UserEventSerde(objectMapper), topic -> consumer);
+
+    @BeforeEach
+    void setUp() {
+        consumer.assign(List.of(P0, P1));
+        consumer.updateBeginningOffsets(Map.of(P0, 0L, P1, 0L));
+        when(repository.upsertAll(anyCollection())).thenAnswer(invocation -> {
+            Collection<UserView> rows = invocation.getArgument(0);
+            if (rows.iterator().next().getUserId() == 13L) {
+                throw new DataIntegrityViolationException("value too long for type character varying(100)");
+            }
+            return 1;
+        });
+    }
+
+    @Test
+    void 기한이_된_레코드만_재시도하고_다시_실패하면_다음_단계로_보낸다() {
+        // given
+        long now = System.currentTimeMillis();
+        consumer.addRecord(record(P0, 0, 1L, now - 1));
+        consumer.addRecord(record(P0, 1, 13L, now - 1));
+        consumer.addRecord(record(P1, 0, 2L, now + 60_000)); // not due for another minute
+
+        // when
+        retryConsumer.pollOnce(consumer);
+
+        // then
+        assertThat(producer.history()).hasSize(1);
+        ProducerRecord<String, byte[]> moved = producer.history().get(0);
+        assertThat(moved.topic()).isEqualTo(TIER_2);
+        assertThat(moved.key()).isEqualTo("13");
+        assertThat(header(moved, UserEventRetryRouter.ATTEMPT_HEADER)).isEqualTo("2");
+        assertThat(header(moved, KafkaHeaders.DLT_EXCEPTION_FQCN))
+                .isEqualTo(DataIntegrityViolationException.class.getName());
+        assertThat(consumer.committed(Set.of(P0)).get(P0)).isEqualTo(new OffsetAndMetadata(2));
+        assertThat(consumer.committed(Set.of(P1)).get(P1)).isNull();
+        assertThat(consumer.paused()).containsExactly(P1);
+        assertThat(consumer.position(P1)).isZero();
+    }
+
+    @Test
+    void 마지막_단계에서_실패하면_DLT로_보내고_DB_장애면_제자리에서_기다린다() {
+        // given
+        TopicPartition lastTier = new TopicPartition(TIER_2, 0);
+        consumer.assign(List.of(lastTier, P0));
+        consumer.updateBeginningOffsets(Map.of(lastTier, 0L, P0, 0L));
+        long now = System.currentTimeMillis();
+        consumer.addRecord(record(lastTier, 0, 13L, now - 1));
+        consumer.addRecord(record(P0, 0, 3L, now - 1));
+        doAnswer(invocation -> {
+            Collection<UserView> rows = invocation.getArgument(0);
+            if (rows.iterator().next().getUserId() == 13L) {
+                throw new DataIntegrityViolationException("value too long for type character varying(100)");
+            }
+            throw new CannotGetJdbcConnectionException("Connection refused");
+        }).when(repository).upsertAll(anyCollection());
+
+        // when
+        retryConsumer.pollOnce(consumer);
+
+        // then
+        assertThat(producer.history()).extracting(ProducerRecord::topic).containsExactly(UserEventRetryRouter.DLT_TOPIC);
+        assertThat(header(producer.history().get(0), UserEventRetryRouter.DUE_AT_HEADER)).isNull();
+        assertThat(consumer.committed(Set.of(lastTier)).get(lastTier)).isEqualTo(new OffsetAndMetadata(1));
+        assertThat(consumer.paused()).containsExactly(P0);
+        assertThat(consumer.position(P0)).isZero();
+    }
+
+    private ConsumerRecord<String, byte[]> record(TopicPartition partition, long offset, Long userId, long dueAt) {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(UserEventRetryRouter.ATTEMPT_HEADER,
+                String.valueOf(router.tier(partition.topic())).getBytes(StandardCharsets.UTF_8));
+        headers.add(UserEventRetryRouter.DUE_AT_HEADER, String.valueOf(dueAt).getBytes(StandardCharsets.UTF_8));
+        byte[] value;
+        try {
+            value = objectMapper.writeValueAsBytes(event(userId));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return new ConsumerRecord<>(partition.topic(), partition.partition(), offset, 0L, TimestampType.CREATE_TIME,
+                -1, -1, String.valueOf(userId), value, headers, Optional.empty());
+    }
+
+    private static String header(ProducerRecord<String, byte[]> record, String key) {
+        return record.headers().lastHeader(key) != null
+                ? new String(record.headers().lastHeader(key).value(), StandardCharsets.UTF_8)
+                : null;
+    }
+
+    private static UserEvent event(Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        return UserEvent.builder()
+                .eventType("USER_UPDATED")
+                .userId(userId)
+                .user(UserEvent.User.builder()
+                        .id(userId)
+                        .name("사용자" + userId)
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .version(1L)
+                        .build())
+                .timestamp(now)
+                .version(1L)
+                .build();
+    }
+}
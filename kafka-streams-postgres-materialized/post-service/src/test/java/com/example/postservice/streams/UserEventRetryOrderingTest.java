@@ -0,0 +1,132 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserEvent;
+import com.example.postservice.domain.UserView;
+import com.example.postservice.repository.UserViewJdbcRepository;
+import com.example.postservice.serde.UserEventSerde;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers(disabledWithoutDocker = true)
+class UserEventRetryOrderingTest {
+
+    private static final TopicPartition TIER_1 = new TopicPartition(UserEventRetryRouter.retryTopic(1), 0);
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15");
+
+    private static JdbcTemplate jdbcTemplate;
+    private static UserViewJdbcRepository repository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final UserViewMetrics metrics = new UserViewMetrics(new SimpleMeterRegistry());
+    private final MockProducer<String, byte[]> producer =
+            new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer());
+    private final UserEventRetryRouter router =
+            new UserEventRetryRouter(producer, objectMapper, metrics, List.of(Duration.ZERO));
+    private final MockConsumer<String, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final UserEventRetryConsumer retryConsumer = new UserEventRetryConsumer(router,
+            new UserViewEventWriter(repository, List.of(), metrics, "retry"), metrics,
+            new UserEventSerde(objectMapper), topic -> consumer);
+
+    @BeforeAll
+    static void setUpSchema() {
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE user_view ("
+                + "user_id BIGINT PRIMARY KEY, "
+                + "name VARCHAR(255) NOT NULL, "
+                + "email VARCHAR(255) NOT NULL, "
+                + "department VARCHAR(255), "
+                + "status VARCHAR(50) NOT NULL, "
+                + "created_at TIMESTAMP NOT NULL, "
+                + "updated_at TIMESTAMP NOT NULL, "
+                + "version BIGINT NOT NULL DEFAULT 1, "
+                + "last_processed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        repository = new UserViewJdbcRepository(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        repository.createTombstonesTableIfMissing();
+    }
+
+    @Test
+    void 재시도를_기다리던_수정은_뒤따른_삭제_이후에_반영되지_않는다() throws Exception {
+        // given
+        repository.upsertAll(List.of(UserView.from(event("USER_CREATED", 1L), LocalDateTime.now())));
+        router.route(event("USER_UPDATED", 2L), new DataIntegrityViolationException("value too long for type character varying(255)"));
+        new UserViewEventWriter(repository, List.of(), metrics, "batch").apply(event("USER_DELETED", 3L));
+        consumer.assign(List.of(TIER_1));
+        consumer.updateBeginningOffsets(Map.of(TIER_1, 0L));
+        consumer.addRecord(retried(producer.history().get(0)));
+
+        // when
+        retryConsumer.pollOnce(consumer);
+
+        // then
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM user_view WHERE user_id = 7", Long.class))
+                .isZero();
+        assertThat(producer.history()).hasSize(1);
+        assertThat(consumer.committed(Set.of(TIER_1)).get(TIER_1)).isEqualTo(new OffsetAndMetadata(1));
+
+        // a newer event of the user is still applied
+        repository.upsertAll(List.of(UserView.from(event("USER_CREATED", 4L), LocalDateTime.now())));
+        assertThat(jdbcTemplate.queryForObject("SELECT version FROM user_view WHERE user_id = 7", Long.class))
+                .isEqualTo(4L);
+    }
+
+    private static ConsumerRecord<String, byte[]> retried(ProducerRecord<String, byte[]> routed) {
+        return new ConsumerRecord<>(routed.topic(), TIER_1.partition(), 0, 0L, TimestampType.CREATE_TIME,
+                -1, -1, routed.key(), routed.value(), routed.headers(), Optional.empty());
+    }
+
+    private static UserEvent event(String eventType, long version) {
+        LocalDateTime now = LocalDateTime.now();
+        UserEvent.User user = eventType.equals("USER_DELETED") ? null : UserEvent.User.builder()
+                .id(7L)
+                .name("사용자7")
+                .email("user7@example.com")
+                .department("개발팀")
+                .status("ACTIVE")
+                .createdAt(now)
+                .updatedAt(now)
+                .version(version)
+                .build();
+        return UserEvent.builder()
+                .eventType(eventType)
+                .userId(7L)
+                .user(user)
+                .timestamp(now)
+                .version(version)
+                .build();
+    }
+}
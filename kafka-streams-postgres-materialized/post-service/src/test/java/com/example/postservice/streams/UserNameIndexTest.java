@@ -0,0 +1,66 @@
+package com.example.postservice.streams;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserNameIndexTest {
+
+    private final UserNameIndex index = new UserNameIndex();
+
+    @Test
+    void 정확히_일치_접두어_단어시작_부분일치_순으로_정렬한다() {
+        // given
+        index.put(1L, "김길동");
+        index.put(2L, "홍길동");
+        index.put(3L, "Gil Dong Hong");
+        index.put(4L, "길동");
+        index.put(5L, "길동이");
+        index.put(6L, "박철수");
+
+        // when / then
+        assertThat(index.search("길동", 10)).containsExactly(4L, 5L, 1L, 2L);
+        assertThat(index.search("DONG", 10)).containsExactly(3L);
+        assertThat(index.search("gil", 10)).containsExactly(3L);
+        assertThat(index.search("길", 2)).containsExactly(4L, 5L);
+        assertThat(index.search("없는이름", 10)).isEmpty();
+    }
+
+    @Test
+    void 이름_변경과_삭제를_반영한다() {
+        // given
+        index.put(1L, "홍길동");
+        index.put(2L, "홍길순");
+
+        // when
+        index.put(1L, "이몽룡");
+        index.put(2L, null);
+        index.put(3L, "길동무");
+
+        // then
+        assertThat(index.search("길동", 10)).containsExactly(3L);
+        assertThat(index.search("몽룡", 10)).containsExactly(1L);
+        assertThat(index.search("홍", 10)).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void 이름이_여러번_바뀌어도_한번만_찾는다() {
+        // given
+        for (long userId = 1; userId <= 2000; userId++) {
+            index.put(userId, "사용자" + userId);
+        }
+
+        // when
+        for (long userId = 1; userId <= 2000; userId++) {
+            index.put(userId, "user" + userId);
+            index.put(userId, "사용자" + userId);
+        }
+
+        // then
+        assertThat(index.search("사용자1999", 10)).containsExactly(1999L);
+        assertThat(index.search("사용자199", 10)).containsExactly(199L, 1990L, 1991L, 1992L, 1993L, 1994L, 1995L,
+                1996L, 1997L, 1998L);
+        assertThat(index.search("user", 10)).isEmpty();
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserEvent;
+import com.example.postservice.domain.UserView;
+import com.example.postservice.repository.UserViewJdbcRepository;
+import com.example.postservice.serde.UserEventSerde;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserViewExactlyOnceSinkTest {
+
+    private static final String GROUP = "post-service-user-view-sink";
+    private static final TopicPartition P0 = new TopicPartition(UserViewExactlyOnceSink.TOPIC, 0);
+    private static final TopicPartition P1 = new TopicPartition(UserViewExactlyOnceSink.TOPIC, 1);
+
+    private final UserViewJdbcRepository repository = mock(UserViewJdbcRepository.class);
+    private final UserEventSerde serde = new UserEventSerde(new ObjectMapper());
+    private final MockConsumer<String, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final UserViewMetrics metrics = new UserViewMetrics(new SimpleMeterRegistry());
+    private final MockProducer<String, byte[]> producer =
+            new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer());
+    private final UserEventRetryRouter router =
+            new UserEventRetryRouter(producer, new ObjectMapper().registerModule(new JavaTimeModule()), metrics, List.of(Duration.ofSeconds(1)));
+    private final UserViewExactlyOnceSink sink = new UserViewExactlyOnceSink(repository, List.of(),
+            metrics, serde, GROUP, () -> consumer, Duration.ZERO, router);
+    private final List<List<Long>> writtenUsers = new ArrayList<>();
+    private final List<Map<Integer, Long>> writtenOffsets = new ArrayList<>();
+
+    @Test
+    void 저장된_오프셋부터_읽고_뷰_변경과_오프셋을_한_트랜잭션으로_쓴다() {
+        // given
+        when(repository.findOffsets(GROUP, UserViewExactlyOnceSink.TOPIC)).thenReturn(Map.of(0, 5L));
+        recordWrites();
+        assign();
+        consumer.addRecord(record(0, 4, 1L, 1L)); // before the stored offset: already in user_view
+        consumer.addRecord(record(0, 5, 2L, 1L));
+        consumer.addRecord(record(1, 0, 3L, 1L));
+        consumer.addRecord(new ConsumerRecord<>(UserViewExactlyOnceSink.TOPIC, 1, 1, "4", null));
+
+        // when
+        sink.pollOnce(consumer);
+
+        // then
+        assertThat(writtenUsers).containsExactly(List.of(2L, 3L));
+        assertThat(writtenOffsets).containsExactly(Map.of(0, 6L, 1, 2L));
+    }
+
+    @Test
+    void DB_장애로_쓰기가_실패하면_저장된_오프셋으로_되돌아가_같은_배치를_다시_쓴다() {
+        // given
+        when(repository.findOffsets(GROUP, UserViewExactlyOnceSink.TOPIC)).thenReturn(Map.of());
+        when(repository.applyBatch(anyCollection(), anyMap(), eq(GROUP), eq(UserViewExactlyOnceSink.TOPIC), anyMap()))
+                .thenThrow(new CannotGetJdbcConnectionException("Connection refused"))
+                .thenAnswer(invocation -> {
+                    record(invocation.getArgument(0), invocation.getArgument(4));
+                    return 1;
+                });
+        assign();
+        consumer.addRecord(record(0, 0, 1L, 1L));
+
+        // when
+        assertThatThrownBy(() -> sink.pollOnce(consumer)).hasMessage("Connection refused");
+        consumer.addRecord(record(0, 0, 1L, 1L)); // the broker returns the rewound record again
+        sink.pollOnce(consumer);
+
+        // then
+        assertThat(consumer.position(P0)).isEqualTo(1L);
+        assertThat(writtenUsers).containsExactly(List.of(1L));
+        assertThat(writtenOffsets).containsExactly(Map.of(0, 1L));
+    }
+
+    @Test
+    void 레코드_때문에_실패한_배치는_한_건씩_쓰고_실패한_이벤트만_재시도_토픽으로_옮긴다() {
+        // given
+        when(repository.findOffsets(GROUP, UserViewExactlyOnceSink.TOPIC)).thenReturn(Map.of());
+        when(repository.applyBatch(anyCollection(), anyMap(), eq(GROUP), eq(UserViewExactlyOnceSink.TOPIC), anyMap()))
+                .thenAnswer(invocation -> {
+                    Collection<UserView> upserts = invocation.getArgument(0);
+                    if (upserts.stream().anyMatch(row -> row.getUserId() == 13L)) {
+                        throw new DataIntegrityViolationException("value too long for type character varying(255)");
+                    }
+                    record(upserts, invocation.getArgument(4));
+                    return upserts.size();
+                });
+        assign();
+        consumer.addRecord(record(0, 0, 1L, 1L));
+        consumer.addRecord(record(0, 1, 13L, 1L));
+        consumer.addRecord(record(0, 2, 2L, 1L));
+
+        // when
+        sink.pollOnce(consumer);
+        sink.pollOnce(consumer);
+
+        // then
+        assertThat(producer.history()).extracting(ProducerRecord::key).containsExactly("13");
+        assertThat(writtenUsers).containsExactly(List.of(1L), List.of(), List.of(2L));
+        assertThat(writtenOffsets).containsExactly(Map.of(0, 1L), Map.of(0, 2L), Map.of(0, 3L));
+        assertThat(consumer.position(P0)).isEqualTo(3L);
+    }
+
+    private void assign() {
+        consumer.assign(List.of(P0, P1));
+        consumer.updateBeginningOffsets(Map.of(P0, 0L, P1, 0L));
+        // MockConsumer does not call the rebalance listener
+        sink.seekToStoredOffsets(consumer, List.of(P0, P1));
+    }
+
+    private void recordWrites() {
+        when(repository.applyBatch(anyCollection(), anyMap(), eq(GROUP), eq(UserViewExactlyOnceSink.TOPIC), anyMap()))
+                .thenAnswer(invocation -> {
+                    record(invocation.getArgument(0), invocation.getArgument(4));
+                    return 1;
+                });
+    }
+
+    private void record(Collection<UserView> upserts, Map<Integer, Long> offsets) {
+        writtenUsers.add(upserts.stream().map(UserView::getUserId).sorted().toList());
+        writtenOffsets.add(new HashMap<>(offsets));
+    }
+
+    private ConsumerRecord<String, byte[]> record(int partition, long offset, Long userId, long version) {
+        LocalDateTime now = LocalDateTime.now();
+        UserEvent event = UserEvent.builder()
+                .eventType("USER_UPDATED")
+                .userId(userId)
+                .user(UserEvent.User.builder()
+                        .id(userId)
+                        .name("사용자" + userId)
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .version(version)
+                        .build())
+                .timestamp(now)
+                .version(version)
+                .build();
+        return new ConsumerRecord<>(UserViewExactlyOnceSink.TOPIC, partition, offset, String.valueOf(userId),
+                serde.serializer().serialize(UserViewExactlyOnceSink.TOPIC, event));
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.UserEvent;
+import com.example.postservice.domain.UserView;
+import com.example.postservice.repository.UserViewJdbcRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.errors.StreamsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserViewParallelSinkStoreTest {
+
+    private final UserViewJdbcRepository repository = mock(UserViewJdbcRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final KeyOrderedExecutor executor = new KeyOrderedExecutor("test-sink", 8, 100);
+    private final UserViewParallelSinkStore store = new UserViewParallelSinkStore(
+            "test-sink", executor,
+            new UserViewEventWriter(repository, List.of(), new UserViewMetrics(meterRegistry), "parallel"));
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void 사용자별_순서를_지키며_flush는_모든_쓰기가_끝날때까지_기다린다() {
+        // given
+        Map<Long, List<Long>> appliedVersions = new ConcurrentHashMap<>();
+        AtomicInteger applied = new AtomicInteger();
+        when(repository.upsertAll(anyCollection())).thenAnswer(invocation -> {
+            Collection<UserView> rows = invocation.getArgument(0);
+            Thread.sleep(1);
+            rows.forEach(row -> appliedVersions
+                    .computeIfAbsent(row.getUserId(), id -> new ArrayList<>())
+                    .add(row.getVersion()));
+            applied.incrementAndGet();
+            return 1;
+        });
+
+        // when
+        for (long version = 1; version <= 20; version++) {
+            for (long userId = 1; userId <= 10; userId++) {
+                store.submit(event(userId, version));
+            }
+        }
+        store.flush();
+
+        // then
+        assertThat(applied).hasValue(200);
+        assertThat(appliedVersions).hasSize(10);
+        appliedVersions.values().forEach(versions -> assertThat(versions).isSorted().hasSize(20));
+    }
+
+    @Test
+    void 버전_조건으로_건너뛴_이벤트는_전파_지연에_세지_않는다() {
+        // given
+        when(repository.upsertAll(anyCollection())).thenAnswer(invocation -> {
+            Collection<UserView> rows = invocation.getArgument(0);
+            return rows.iterator().next().getUserId() == 1L ? 1 : 0; // user 2 is a stale replay
+        });
+
+        // when
+        store.submit(event(1L, 2L));
+        store.submit(event(2L, 1L));
+        store.flush();
+
+        // then
+        assertThat(meterRegistry.get("user.view.propagation").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void 쓰기가_실패하면_flush가_예외를_던져_커밋을_막는다() {
+        // given
+        when(repository.upsertAll(anyCollection())).thenThrow(new IllegalStateException("connection refused"));
+
+        // when
+        store.submit(event(1L, 1L));
+
+        // then
+        assertThatThrownBy(store::flush)
+                .isInstanceOf(StreamsException.class)
+                .hasRootCauseMessage("connection refused");
+    }
+
+    @Test
+    void 재시도_토픽이_있으면_실패한_이벤트만_옮기고_flush는_성공한다() {
+        // given
+        MockProducer<String, byte[]> producer = new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer());
+        UserViewMetrics metrics = new UserViewMetrics(new SimpleMeterRegistry());
+        UserEventRetryRouter router = new UserEventRetryRouter(producer,
+                new ObjectMapper().registerModule(new JavaTimeModule()), metrics, List.of(Duration.ofSeconds(1)));
+        UserViewParallelSinkStore retryingStore = new UserViewParallelSinkStore("test-sink", executor,
+                new UserViewEventWriter(repository, List.of(), metrics, "parallel"), router);
+        when(repository.upsertAll(anyCollection())).thenAnswer(invocation -> {
+            Collection<UserView> rows = invocation.getArgument(0);
+            if (rows.iterator().next().getUserId() == 13L) {
+                throw new DataIntegrityViolationException("value too long for type character varying(100)");
+            }
+            return 1;
+        });
+
+        // when
+        retryingStore.submit(event(1L, 1L));
+        retryingStore.submit(event(13L, 1L));
+        retryingStore.submit(event(2L, 1L));
+        retryingStore.flush();
+
+        // then
+        assertThat(producer.history()).extracting(ProducerRecord::topic, ProducerRecord::key)
+                .containsExactly(tuple(UserEventRetryRouter.retryTopic(1), "13"));
+    }
+
+    private UserEvent event(Long userId, long version) {
+        LocalDateTime now = LocalDateTime.now();
+        return UserEvent.builder()
+                .eventType("USER_UPDATED")
+                .userId(userId)
+                .user(UserEvent.User.builder()
+                        .id(userId)
+                        .name("사용자" + userId)
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .version(version)
+                        .build())
+                .timestamp(now)
+                .version(version)
+                .build();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.postservice.streams;
+
+import com.example.postservice.domain.AuthorDepartment;
+import com.example.postservice.domain.UserEvent;
+import com.example.postservice.domain.UserView;
+import com.example.postservice.repository.UserViewJdbcRepository;
+import com.example.postservice.serde.UserEventSerde;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonSerde;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+
+class UserViewStreamsProcessorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final UserEventSerde serde = new UserEventSerde(objectMapper);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UserNameIndex userNameIndex = new UserNameIndex();
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, UserEvent> input;
+    private TestOutputTopic<String, AuthorDepartment> authorDepartments;
+
+    @BeforeEach
+    void setUp() {
+        // projection disabled (the @Value default is not applied here), so only the local store is built
+        UserViewStreamsProcessor processor = new UserViewStreamsProcessor(mock(UserViewJdbcRepository.class),
+                objectMapper, List.of(), new UserViewMetrics(meterRegistry), userNameIndex);
+        ReflectionTestUtils.setField(processor, "readSource", "state-store");
+        ReflectionTestUtils.setField(processor, "nameIndexEnabled", true);
+        ReflectionTestUtils.setField(processor, "departmentFeedEnabled", true);
+        StreamsBuilder builder = new StreamsBuilder();
+        processor.buildPipeline(builder);
+        driver = new TopologyTestDriver(builder.build());
+        input = driver.createInputTopic("user-events", new StringSerializer(), serde.serializer());
+        authorDepartments = driver.createOutputTopic(AuthorDepartmentFeed.TOPIC, new StringDeserializer(),
+                new JsonSerde<>(AuthorDepartment.class, objectMapper).noTypeInfo().deserializer());
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    @Test
+    void 톰스톤은_버전과_관계없이_사용자를_삭제한다() {
+        // given
+        input.pipeInput("1", event(1L, 5));
+        input.pipeInput("2", event(2L, 1));
+
+        // when
+        input.pipeInput("1", null);
+        input.pipeInput("not-a-user", null);
+
+        // then
+        KeyValueStore<String, UserView> store = driver.getKeyValueStore(UserViewStreamsProcessor.USER_VIEW_STORE_NAME);
+        assertThat(store.get("1")).isNull();
+        assertThat(store.get("2").getVersion()).isEqualTo(1L);
+        assertThat(meterRegistry.get("user.view.events").tag("type", "USER_DELETED").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void 이름_색인은_저장소의_변경을_따라간다() {
+        // given
+        input.pipeInput("1", event(1L, 1));
+        input.pipeInput("2", event(2L, 1));
+
+        // when
+        UserEvent renamed = event(1L, 2);
+        renamed.getUser().setName("홍길동");
+        input.pipeInput("1", renamed);
+        input.pipeInput("2", null);
+
+        // then
+        assertThat(userNameIndex.search("길동", 10)).containsExactly(1L);
+        assertThat(userNameIndex.search("사용자", 10)).isEmpty();
+        assertThat(userNameIndex.size()).isEqualTo(1);
+    }
+
+    @Test
+    void 부서가_바뀐_이벤트만_부서_변경으로_내보낸다() {
+        // given
+        input.pipeInput("1", event(1L, 1, "개발팀"));
+
+        // when
+        input.pipeInput("1", event(1L, 2, "개발팀"));
+        input.pipeInput("1", event(1L, 4, "기획팀"));
+        input.pipeInput("1", event(1L, 3, "영업팀")); // stale
+        input.pipeInput("1", null);
+
+        // then
+        assertThat(authorDepartments.readKeyValuesToList())
+                .extracting(record -> record.key, record -> record.value.getDepartment(), record -> record.value.getVersion())
+                .containsExactly(
+                        tuple("1", "개발팀", 1L),
+                        tuple("1", "기획팀", 4L),
+                        tuple("1", null, Long.MAX_VALUE));
+    }
+
+    private UserEvent event(Long userId, long version, String department) {
+        UserEvent event = event(userId, version);
+        event.getUser().setDepartment(department);
+        return event;
+    }
+
+    private UserEvent event(Long userId, long version) {
+        LocalDateTime now = LocalDateTime.of(2025, 7, 17, 6, 3, 43);
+        return UserEvent.builder()
+                .eventType("USER_UPDATED")
+                .userId(userId)
+                .user(UserEvent.User.builder()
+                        .id(userId)
+                        .name("사용자" + userId)
+                        .email("user" + userId + "@example.com")
+                        .status("ACTIVE")
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .version(version)
+                        .build())
+                .timestamp(now)
+                .version(version)
+                .build();
+    }
+}
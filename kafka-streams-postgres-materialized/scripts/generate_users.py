@@ -1,3 +1,4 @@
+import json
 import sys
 import time
 import requests
@@ -9,6 +10,21 @@ USER_COUNT = 10000
 
 API_URL = 'http://localhost:8081/api/users'
 
+# 사용법: python3 generate_users.py [single|batch|ndjson]
+#   single: 사용자 1명당 POST 1회 (기존 방식)
+#   batch : POST /api/users/batch 로 BATCH_SIZE명씩 전송
+#   ndjson: POST /api/users/import 로 전체를 한 번에 스트리밍 (기본값)
+BATCH_SIZE = 5000
+
+
+def make_user(i):
+    return {
+        "name": f'사용자{i}',
+        "email": f'user{i}@example.com',
+        "department": '개발팀',
+        "status": 'ACTIVE'
+    }
+
 
 def send_user(name, email, department, status):
     headers = {"Content-Type": "application/json"}
@@ -22,21 +38,54 @@ def send_user(name, email, department, status):
     return response.status_code, response.text
 
 
-def main():
-    start_time = time.time()
+def run_single(start_time):
     for i in range(USER_COUNT_SRT, USER_COUNT + 1):
-        name = f'사용자{i}'
-        email = f'user{i}@example.com'
-        department = '개발팀'
-        status = 'ACTIVE'
-        status_code, resp_text = send_user(name, email, department, status)
+        user = make_user(i)
+        status_code, resp_text = send_user(user['name'], user['email'], user['department'], user['status'])
         if i % 1000 == 0:
             elapsed = time.time() - start_time
             print(f"{i}명 생성 완료 (경과 시간: {elapsed:.2f}초, 마지막 응답: {status_code})")
+
+
+def run_batch(start_time):
+    session = requests.Session()
+    for first in range(USER_COUNT_SRT, USER_COUNT + 1, BATCH_SIZE):
+        last = min(first + BATCH_SIZE - 1, USER_COUNT)
+        response = session.post(f'{API_URL}/batch', json=[make_user(i) for i in range(first, last + 1)])
+        response.raise_for_status()
+        failed = [r for r in response.json() if r['status'] != 'CREATED']
+        elapsed = time.time() - start_time
+        print(f"{last}명 생성 완료 (경과 시간: {elapsed:.2f}초, 실패: {len(failed)})")
+
+
+def ndjson_lines():
+    # 본문을 제너레이터로 넘기면 chunked 전송되어 클라이언트도 전체를 메모리에 올리지 않음
+    for i in range(USER_COUNT_SRT, USER_COUNT + 1):
+        yield (json.dumps(make_user(i), ensure_ascii=False) + '\n').encode('utf-8')
+
+
+def run_ndjson(start_time):
+    response = requests.post(f'{API_URL}/import', data=ndjson_lines(),
+                             headers={"Content-Type": "application/x-ndjson"})
+    response.raise_for_status()
+    print(f"import 결과: {response.json()}")
+
+
+def main():
+    mode = sys.argv[1] if len(sys.argv) > 1 else 'ndjson'
+    runners = {'single': run_single, 'batch': run_batch, 'ndjson': run_ndjson}
+    if mode not in runners:
+        print(f'Usage: {sys.argv[0]} [single|batch|ndjson]')
+        sys.exit(1)
+
+    start_time = time.time()
+    runners[mode](start_time)
     end_time = time.time()
     total_time = end_time - start_time
-    print(f'총 {USER_COUNT}명 사용자 생성 완료. 전체 소요 시간: {total_time:.2f}초')
+    user_count = USER_COUNT - USER_COUNT_SRT + 1
+    print(f'총 {user_count}명 사용자 생성 완료 ({mode}). 전체 소요 시간: {total_time:.2f}초, '
+          f'{user_count / total_time:.0f} users/s')
 
 
 if __name__ == "__main__":
-    main() 
\ No newline at end of file
+    main()
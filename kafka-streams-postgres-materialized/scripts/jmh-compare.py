@@ -0,0 +1,49 @@
+import json
+import sys
+
+# Compare two JMH JSON result files (build/reports/jmh/results.json), e.g. from two commits:
+#   python3 scripts/jmh-compare.py baseline.json current.json [threshold_percent]
+# Prints every benchmark with its change and exits with 1 if any regressed beyond the threshold.
+
+
+def load(path):
+    with open(path) as f:
+        results = json.load(f)
+    scores = {}
+    for result in results:
+        params = result.get('params') or {}
+        key = result['benchmark'] + ''.join(f' {k}={v}' for k, v in sorted(params.items()))
+        metric = result['primaryMetric']
+        scores[key] = (metric['score'], metric['scoreUnit'], result['mode'])
+    return scores
+
+
+def main():
+    if len(sys.argv) < 3:
+        print('Usage: jmh-compare.py BASELINE.json CURRENT.json [threshold_percent]')
+        sys.exit(2)
+    baseline = load(sys.argv[1])
+    current = load(sys.argv[2])
+    threshold = float(sys.argv[3]) if len(sys.argv) > 3 else 10.0
+
+    regressions = 0
+    for key in sorted(set(baseline) | set(current)):
+        if key not in baseline or key not in current:
+            print(f'{key}: only in {"current" if key in current else "baseline"}')
+            continue
+        before, unit, mode = baseline[key]
+        after = current[key][0]
+        change = (after - before) / before * 100 if before else 0.0
+        # Throughput: higher is better, everything else (avgt, sample, ss): lower is better
+        worse = -change if mode == 'thrpt' else change
+        marker = ''
+        if worse > threshold:
+            marker = '  <-- REGRESSION'
+            regressions += 1
+        print(f'{key}: {before:.3f} -> {after:.3f} {unit} ({change:+.1f}%){marker}')
+
+    sys.exit(1 if regressions else 0)
+
+
+if __name__ == '__main__':
+    main()
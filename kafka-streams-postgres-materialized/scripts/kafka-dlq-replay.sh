@@ -0,0 +1,145 @@
+#!/bin/bash
+
+# Kafka DLQ Script: View dead-lettered user events or replay them through the retry topics
+# ./scripts/kafka-dlq-replay.sh              # view user-events-dlt with the failure headers
+# ./scripts/kafka-dlq-replay.sh -l           # dead letters not replayed yet, per partition
+# ./scripts/kafka-dlq-replay.sh -r           # replay them into user-events-retry-1
+# Use environment variable KAFKA_CONTAINER if set, otherwise default to "kafka"
+: "${KAFKA_CONTAINER:="kafka"}"
+BOOTSTRAP_SERVERS="localhost:9092"
+DLT_TOPIC="user-events-dlt"
+TARGET_TOPIC="user-events-retry-1"
+# remembers which dead letters were already replayed, so a second run only replays new ones
+REPLAY_GROUP="post-service-dlq-replay"
+MAX_MESSAGES=""
+ACTION="view"
+
+usage() {
+    echo "Usage: $0 [OPTIONS]"
+    echo "Options:"
+    echo "  -d, --dlt TOPIC           Dead-letter topic (default: user-events-dlt)"
+    echo "  -s, --servers SERVERS     Bootstrap servers (default: localhost:9092)"
+    echo "  -l, --lag                 Show how many dead letters have not been replayed yet"
+    echo "  -r, --replay              Replay dead letters not replayed yet into the target topic"
+    echo "  -t, --target TOPIC        Replay target (default: user-events-retry-1). Never user-events:"
+    echo "                            it is compacted, so an old event could become a user's last record."
+    echo "  -m, --max COUNT           Replay at most COUNT records"
+    echo "  -g, --group GROUP         Consumer group tracking replay progress (default: post-service-dlq-replay)"
+    echo "  -h, --help                Show this help message"
+    exit 1
+}
+
+while [[ $# -gt 0 ]]; do
+    case $1 in
+        -d|--dlt)
+            DLT_TOPIC="$2"
+            shift 2
+            ;;
+        -s|--servers)
+            BOOTSTRAP_SERVERS="$2"
+            shift 2
+            ;;
+        -l|--lag)
+            ACTION="lag"
+            shift
+            ;;
+        -r|--replay)
+            ACTION="replay"
+            shift
+            ;;
+        -t|--target)
+            TARGET_TOPIC="$2"
+            shift 2
+            ;;
+        -m|--max)
+            MAX_MESSAGES="$2"
+            shift 2
+            ;;
+        -g|--group)
+            REPLAY_GROUP="$2"
+            shift 2
+            ;;
+        -h|--help)
+            usage
+            ;;
+        *)
+            echo "Unknown option: $1"
+            usage
+            ;;
+    esac
+done
+
+echo "Kafka DLQ Script (via docker exec)"
+echo "=================================="
+echo "Dead-letter topic: $DLT_TOPIC"
+echo "Bootstrap Servers: $BOOTSTRAP_SERVERS"
+
+TOPICS=$(docker exec "$KAFKA_CONTAINER" kafka-topics --bootstrap-server "$BOOTSTRAP_SERVERS" --list)
+if ! grep -q "^${DLT_TOPIC}$" <<< "$TOPICS"; then
+    echo "Error: Topic '$DLT_TOPIC' does not exist (post-service creates it when user-view.retry.enabled is true)"
+    exit 1
+fi
+echo
+
+if [[ "$ACTION" == "lag" ]]; then
+    # --- Lag Logic ---
+    echo "Action: Dead letters not replayed yet (LAG) for group '$REPLAY_GROUP'"
+    echo "=================================================================="
+    if ! docker exec "$KAFKA_CONTAINER" kafka-consumer-groups --bootstrap-server "$BOOTSTRAP_SERVERS" \
+          --describe --group "$REPLAY_GROUP" 2>/dev/null | grep -E "TOPIC|^${REPLAY_GROUP}"; then
+        echo "Nothing replayed yet; every record of '$DLT_TOPIC' is pending:"
+        docker exec "$KAFKA_CONTAINER" kafka-get-offsets --bootstrap-server "$BOOTSTRAP_SERVERS" --topic "$DLT_TOPIC"
+    fi
+elif [[ "$ACTION" == "replay" ]]; then
+    # --- Replay Logic ---
+    if [[ "$TARGET_TOPIC" == "user-events" ]]; then
+        echo "Error: Refusing to replay into the compacted user-events topic; use a retry topic instead."
+        exit 1
+    fi
+    if ! grep -q "^${TARGET_TOPIC}$" <<< "$TOPICS"; then
+        echo "Error: Target topic '$TARGET_TOPIC' does not exist"
+        exit 1
+    fi
+    echo "Action: Replaying '$DLT_TOPIC' into '$TARGET_TOPIC' (progress kept by group '$REPLAY_GROUP')"
+    echo "======================================================================================"
+    echo "Records are retried once they reach $TARGET_TOPIC and go through the later retry tiers again;"
+    echo "events older than the current user_view row, or than the user's delete, are skipped by the version check."
+    echo "Fix the cause first (see the kafka_dlt-exception-* headers), or they will end up here again."
+    read -p "Are you sure you want to continue? (y/N) " -n 1 -r
+    echo
+    if [[ $REPLY =~ ^[Yy]$ ]]; then
+        TAB=$'\t'
+        CONSUMER_ARGS=(--bootstrap-server "$BOOTSTRAP_SERVERS" --topic "$DLT_TOPIC" --group "$REPLAY_GROUP"
+                       --from-beginning --timeout-ms 10000
+                       --property print.key=true --property "key.separator=$TAB")
+        if [ -n "$MAX_MESSAGES" ]; then
+            CONSUMER_ARGS+=(--max-messages "$MAX_MESSAGES")
+        fi
+        # values are single-line JSON, so key<TAB>value lines survive the console tools;
+        # without retry headers the records are due at once and start again at attempt 1
+        docker exec "$KAFKA_CONTAINER" kafka-console-consumer "${CONSUMER_ARGS[@]}" 2>/dev/null \
+          | docker exec -i "$KAFKA_CONTAINER" kafka-console-producer \
+              --bootstrap-server "$BOOTSTRAP_SERVERS" \
+              --topic "$TARGET_TOPIC" \
+              --producer-property acks=all \
+              --property parse.key=true \
+              --property "key.separator=$TAB"
+        echo
+        echo "Replay complete. Watch user.view.retry.routed{topic=$DLT_TOPIC} for records failing again."
+    else
+        echo "Operation cancelled."
+    fi
+else
+    # --- View Logic ---
+    echo "Action: Viewing dead letters"
+    echo "============================"
+    echo "Starting consumer to view messages... Press Ctrl+C to stop."
+    docker exec -it "$KAFKA_CONTAINER" kafka-console-consumer \
+      --bootstrap-server "$BOOTSTRAP_SERVERS" \
+      --topic "$DLT_TOPIC" \
+      --from-beginning \
+      --property print.timestamp=true \
+      --property print.headers=true \
+      --property print.key=true \
+      --property key.separator=': '
+fi
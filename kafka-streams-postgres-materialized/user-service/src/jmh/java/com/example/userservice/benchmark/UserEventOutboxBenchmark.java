@@ -0,0 +1,77 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.domain.UserEvent;
+import com.example.userservice.outbox.UserEventOutbox;
+import com.example.userservice.serde.UserEventSerde;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a durable {@link UserEventOutbox} append (what a user mutation waits for with the outbox
+ * enabled), alone and with 8 concurrent callers sharing group-committed fsyncs. Compare with the broker
+ * round trip of an {@code acks=all} send, which it replaces on the request path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class UserEventOutboxBenchmark {
+
+    @Param({"true", "false"})
+    public boolean fsync;
+
+    private Path dir;
+    private UserEventOutbox outbox;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("outbox-benchmark");
+        outbox = new UserEventOutbox(dir, DataSize.ofMegabytes(64), fsync,
+                new UserEventSerde(new ObjectMapper().registerModule(new JavaTimeModule()), false),
+                new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteSegments() {
+        // stands in for the relay, which deletes relayed segments
+        outbox.deleteBefore(outbox.durablePosition());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        outbox.close();
+        FileSystemUtils.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void append() {
+        outbox.append(event()).join();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void append8Threads() {
+        outbox.append(event()).join();
+    }
+
+    private static UserEvent event() {
+        long userId = ThreadLocalRandom.current().nextLong(1, 1_000_000);
+        return UserEvent.builder()
+                .eventType("USER_UPDATED")
+                .userId(userId)
+                .user(UserStoreContentionBenchmark.newUser(userId, LocalDateTime.now(), 2L))
+                .timestamp(LocalDateTime.now())
+                .version(2L)
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.domain.User;
+import com.example.userservice.domain.UserEvent;
+import com.example.userservice.serde.UserEventSerde;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding the event published by {@code UserService.publishUserEvent}: the JSON String
+ * path it used originally versus {@link UserEventSerde}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class UserEventSerializationBenchmark {
+
+    private static final String TOPIC = "user-events";
+
+    private ObjectMapper objectMapper;
+    private UserEventSerde userEventSerde;
+    private UserEvent event;
+    private String eventJson;
+    private byte[] eventBinary;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Same defaults as the ObjectMapper Spring Boot injects into the services
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        userEventSerde = new UserEventSerde(objectMapper, false);
+
+        LocalDateTime now = LocalDateTime.now();
+        User user = User.builder()
+                .id(123456L)
+                .name("사용자123456")
+                .email("user123456@example.com")
+                .department("개발팀")
+                .status("ACTIVE")
+                .createdAt(now)
+                .updatedAt(now)
+                .version(4L)
+                .build();
+        event = UserEvent.builder()
+                .eventType("USER_UPDATED")
+                .userId(user.getId())
+                .user(user)
+                .timestamp(now)
+                .version(user.getVersion())
+                .build();
+        eventJson = objectMapper.writeValueAsString(event);
+        eventBinary = userEventSerde.serializer().serialize(TOPIC, event);
+    }
+
+    @Benchmark
+    public String serializeJson() throws Exception {
+        return objectMapper.writeValueAsString(event);
+    }
+
+    @Benchmark
+    public byte[] serializeBinary() {
+        return userEventSerde.serializer().serialize(TOPIC, event);
+    }
+
+    @Benchmark
+    public UserEvent deserializeJson() throws Exception {
+        return objectMapper.readValue(eventJson, UserEvent.class);
+    }
+
+    @Benchmark
+    public UserEvent deserializeBinary() {
+        return userEventSerde.deserializer().deserialize(TOPIC, eventBinary);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.domain.User;
+import com.example.userservice.service.CompactUserStore;
+import com.example.userservice.service.SkipListUserStore;
+import com.example.userservice.service.UserStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code userStore} access pattern of {@code UserService} under contention: concurrent lookups
+ * ({@code getUser}) racing with version-bumping replacements ({@code updateUser}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Group)
+public class UserStoreContentionBenchmark {
+
+    public enum Store { SKIP_LIST, COMPACT }
+
+    @Param({"100000", "1000000"})
+    public int users;
+
+    @Param
+    public Store store;
+
+    private UserStore userStore;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userStore = store == Store.COMPACT ? new CompactUserStore() : new SkipListUserStore();
+        LocalDateTime now = LocalDateTime.now();
+        for (long id = 1; id <= users; id++) {
+            userStore.put(newUser(id, now, 1L));
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public User getUser() {
+        return userStore.get(randomId());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public User updateUser() {
+        LocalDateTime now = LocalDateTime.now();
+        return userStore.update(randomId(), existing -> newUser(existing.getId(), now, existing.getVersion() + 1));
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, users + 1);
+    }
+
+    static User newUser(long id, LocalDateTime now, long version) {
+        return User.builder()
+                .id(id)
+                .name("사용자" + id)
+                .email("user" + id + "@example.com")
+                // distinct instances, as deserialized from requests
+                .department(new String("개발팀"))
+                .status(new String("ACTIVE"))
+                .createdAt(now)
+                .updatedAt(now)
+                .version(version)
+                .build();
+    }
+}
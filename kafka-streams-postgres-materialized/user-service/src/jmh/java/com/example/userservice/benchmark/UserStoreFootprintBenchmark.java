@@ -0,0 +1,61 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.service.CompactUserStore;
+import com.example.userservice.service.SkipListUserStore;
+import com.example.userservice.service.UserStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to load {@code users} users into a {@link UserStore}, and the heap the loaded store retains
+ * (used heap after a full GC with and without it, printed per iteration as bytes per user).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class UserStoreFootprintBenchmark {
+
+    @Param({"1000000", "5000000"})
+    public int users;
+
+    @Param
+    public UserStoreContentionBenchmark.Store store;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private UserStore loaded;
+
+    @Benchmark
+    public int load() {
+        UserStore userStore = store == UserStoreContentionBenchmark.Store.COMPACT
+                ? new CompactUserStore()
+                : new SkipListUserStore();
+        LocalDateTime now = LocalDateTime.now();
+        for (long id = 1; id <= users; id++) {
+            userStore.put(UserStoreContentionBenchmark.newUser(id, now, 1L));
+        }
+        loaded = userStore;
+        return userStore.size();
+    }
+
+    @TearDown(Level.Iteration)
+    public void measureRetained() {
+        long withStore = usedHeapAfterGc();
+        int size = loaded.size();
+        loaded = null;
+        long retained = withStore - usedHeapAfterGc();
+        System.out.printf("%n%s: %d users retain %d MB (%d bytes/user)%n",
+                store, size, retained >> 20, retained / size);
+    }
+
+    private long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.persistence.PersistentUserStore;
+import com.example.userservice.service.CompactUserStore;
+import com.example.userservice.service.SkipListUserStore;
+import com.example.userservice.service.UserStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restart time of a {@link PersistentUserStore} with {@code users} users: loading the newest snapshot
+ * and replaying {@code logTail} changes logged after it, as after a crash between two snapshots.
+ * Every invocation restores a fresh copy of the same files.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class UserStoreRestoreBenchmark {
+
+    @Param({"1000000"})
+    public int users;
+
+    @Param({"0", "200000"})
+    public int logTail;
+
+    @Param
+    public UserStoreContentionBenchmark.Store store;
+
+    private Path template;
+    private Path dir;
+    private PersistentUserStore restored;
+
+    @Setup(Level.Trial)
+    public void writeTemplate() throws Exception {
+        template = Files.createTempDirectory("user-store-template");
+        PersistentUserStore persistent = open(template);
+        LocalDateTime now = LocalDateTime.now();
+        for (long id = 1; id <= users; id++) {
+            persistent.put(UserStoreContentionBenchmark.newUser(id, now, 1L));
+        }
+        persistent.snapshot();
+        for (long i = 0; i < logTail; i++) {
+            long id = 1 + (i * 7919) % users;
+            persistent.update(id, user -> UserStoreContentionBenchmark.newUser(id, now, user.getVersion() + 1));
+        }
+        // left open: the restart finds the log tail a crash would leave
+    }
+
+    @Setup(Level.Invocation)
+    public void copyTemplate() throws Exception {
+        dir = Files.createTempDirectory("user-store-restore");
+        FileSystemUtils.copyRecursively(template, dir);
+    }
+
+    @Benchmark
+    public int restore() {
+        restored = open(dir);
+        return restored.size();
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteCopy() throws Exception {
+        restored.close();
+        FileSystemUtils.deleteRecursively(dir);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTemplate() throws Exception {
+        FileSystemUtils.deleteRecursively(template);
+    }
+
+    private PersistentUserStore open(Path path) {
+        UserStore memory = store == UserStoreContentionBenchmark.Store.COMPACT
+                ? new CompactUserStore()
+                : new SkipListUserStore();
+        return new PersistentUserStore(memory, path, DataSize.ofMegabytes(64), false, Duration.ofHours(1),
+                new SimpleMeterRegistry());
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.userservice.config;
 
+import com.example.userservice.domain.UserEvent;
+import com.example.userservice.serde.UserEventSerde;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,21 +21,50 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
     
+    // binary, or json until every consumer of user-events can read the binary format
+    @Value("${user-events.wire-format:binary}")
+    private String wireFormat;
+    
+    @Value("${user-events.producer.profile:balanced}")
+    private String profile;
+    
+    // optional overrides of the selected profile
+    @Value("${user-events.producer.linger-ms:#{null}}")
+    private Integer lingerMs;
+    
+    @Value("${user-events.producer.batch-size:#{null}}")
+    private Integer batchSize;
+    
+    @Value("${user-events.producer.compression-type:#{null}}")
+    private String compressionType;
+    
     @Bean
-    public ProducerFactory<String, String> producerFactory() {
+    public UserEventSerde userEventSerde(ObjectMapper objectMapper) {
+        return new UserEventSerde(objectMapper, "json".equals(wireFormat));
+    }
+    
+    @Bean
+    public ProducerFactory<String, UserEvent> producerFactory(UserEventSerde userEventSerde) {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         configProps.put(ProducerConfig.ACKS_CONFIG, "all");
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
         configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
         
-        return new DefaultKafkaProducerFactory<>(configProps);
+        ProducerProfile producerProfile = ProducerProfile.valueOf(profile.toUpperCase());
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG,
+                lingerMs != null ? lingerMs : producerProfile.getLingerMs());
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG,
+                batchSize != null ? batchSize : producerProfile.getBatchSize());
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG,
+                compressionType != null ? compressionType : producerProfile.getCompressionType());
+        
+        return new DefaultKafkaProducerFactory<>(configProps, new StringSerializer(), userEventSerde.serializer());
     }
     
     @Bean
-    public KafkaTemplate<String, String> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public KafkaTemplate<String, UserEvent> kafkaTemplate(ProducerFactory<String, UserEvent> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.example.userservice.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+import java.time.Duration;
+
+/**
+ * Declares {@code user-events} as a log-compacted topic keyed by user id, so a full replay reads
+ * roughly one record per live user instead of the whole history. Deleted users are removed by the
+ * tombstone published after their {@code USER_DELETED} event. post-service declares the same topic
+ * with the same properties; whichever service starts first creates it, and
+ * {@code spring.kafka.admin.modify-topic-configs} aligns the configs of an existing topic.
+ * <p>
+ * {@code user-id-blocks} holds the id block claims of {@code KafkaIdBlockSource}; it needs exactly one
+ * partition, since ids come from the offsets of that partition.
+ */
+@Configuration
+public class KafkaTopicConfig {
+    
+    public static final String USER_EVENTS_TOPIC = "user-events";
+    public static final String USER_ID_BLOCKS_TOPIC = "user-id-blocks";
+    
+    // An existing topic is only ever grown; adding partitions moves existing keys to new partitions
+    @Value("${user-events.topic.partitions:6}")
+    private int partitions;
+    
+    @Value("${user-events.topic.replication-factor:1}")
+    private short replicationFactor;
+    
+    // Consumers that fall further behind than this can miss a delete entirely
+    @Value("${user-events.topic.tombstone-retention:7d}")
+    private Duration tombstoneRetention;
+    
+    // Only closed segments are compacted
+    @Value("${user-events.topic.segment-roll:1h}")
+    private Duration segmentRoll;
+    
+    @Bean
+    public NewTopic userEventsTopic() {
+        return TopicBuilder.name(USER_EVENTS_TOPIC)
+                .partitions(partitions)
+                .replicas(replicationFactor)
+                .compact()
+                .config(TopicConfig.DELETE_RETENTION_MS_CONFIG, String.valueOf(tombstoneRetention.toMillis()))
+                .config(TopicConfig.SEGMENT_MS_CONFIG, String.valueOf(segmentRoll.toMillis()))
+                .build();
+    }
+    
+    @Bean
+    @ConditionalOnProperty(name = "user-id.source", havingValue = "kafka", matchIfMissing = true)
+    public NewTopic userIdBlocksTopic() {
+        // claims are only read back as offsets, so old ones can expire
+        return TopicBuilder.name(USER_ID_BLOCKS_TOPIC)
+                .partitions(1)
+                .replicas(replicationFactor)
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(Duration.ofDays(1).toMillis()))
+                .build();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.userservice.config;
+
+/**
+ * Batching presets for the user-events producer, selected with {@code user-events.producer.profile}.
+ * Individual values can still be overridden with {@code user-events.producer.linger-ms},
+ * {@code batch-size} and {@code compression-type}.
+ */
+public enum ProducerProfile {
+
+    // send as soon as possible: interactive create/update/delete traffic
+    LATENCY(0, 16 * 1024, "none"),
+    // a few ms of linger fills batches under moderate load at a barely visible latency cost
+    BALANCED(5, 64 * 1024, "lz4"),
+    // bulk imports: large, well compressed batches
+    THROUGHPUT(20, 256 * 1024, "zstd");
+
+    private final int lingerMs;
+    private final int batchSize;
+    private final String compressionType;
+
+    ProducerProfile(int lingerMs, int batchSize, String compressionType) {
+        this.lingerMs = lingerMs;
+        this.batchSize = batchSize;
+        this.compressionType = compressionType;
+    }
+
+    public int getLingerMs() {
+        return lingerMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public String getCompressionType() {
+        return compressionType;
+    }
+}
@@ -1,11 +1,19 @@
 package com.example.userservice.controller;
 
 import com.example.userservice.domain.User;
+import com.example.userservice.domain.UserImportResult;
+import com.example.userservice.domain.UserImportSummary;
+import com.example.userservice.service.UserImportService;
 import com.example.userservice.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -14,6 +22,11 @@ import java.util.List;
 public class UserController {
     
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final CursorPagination cursorPagination;
+    
+    @Value("${user-import.batch.max-size:10000}")
+    private int maxBatchSize;
     
     @PostMapping
     public ResponseEntity<User> createUser(@RequestBody User user) {
@@ -21,6 +34,23 @@ public class UserController {
         return ResponseEntity.ok(created);
     }
     
+    // JSON array of users; larger uploads should use /import
+    @PostMapping("/batch")
+    public ResponseEntity<List<UserImportResult>> createUsers(@RequestBody List<User> users) {
+        if (users.size() > maxBatchSize) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<UserImportResult> results = userImportService.importBatch(users);
+        return ResponseEntity.ok(results);
+    }
+    
+    // one user JSON object per line, processed while the body is streaming in
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ResponseEntity<UserImportSummary> importUsers(InputStream body) throws IOException {
+        UserImportSummary summary = userImportService.importNdjson(body);
+        return ResponseEntity.ok(summary);
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User user) {
         User updated = userService.updateUser(id, user);
@@ -40,8 +70,15 @@ public class UserController {
     }
     
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userService.getAllUsers();
-        return ResponseEntity.ok(users);
+    public ResponseEntity<List<User>> getAllUsers(@RequestParam(required = false) Long after,
+                                                  @RequestParam(required = false) Integer limit) {
+        int pageSize = cursorPagination.limit(limit);
+        List<User> users = userService.getUsersPage(after, pageSize + 1);
+        return cursorPagination.page(users, pageSize, User::getId);
+    }
+    
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        return cursorPagination.stream(userService::forEachUser);
     }
 } 
\ No newline at end of file
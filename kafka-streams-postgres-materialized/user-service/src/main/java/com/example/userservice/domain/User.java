@@ -9,7 +9,7 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
@@ -33,4 +33,8 @@ public class User {
     
     @JsonProperty("updatedAt")
     private LocalDateTime updatedAt;
+    
+    // Per-user sequence number, incremented on every mutation
+    @JsonProperty("version")
+    private Long version;
 } 
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.example.userservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one item of {@code POST /api/users/batch}, in request order.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportResult {
+
+    public enum Status {
+        CREATED,
+        // stored, but the user-events send failed; see the user-service log
+        PUBLISH_FAILED
+    }
+
+    private int index;
+    private Long id;
+    private Status status;
+    private String error;
+}
@@ -0,0 +1,27 @@
+package com.example.userservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of a streaming NDJSON import ({@code POST /api/users/import}).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportSummary {
+
+    private long received;
+    private long created;
+    private long invalid;
+    private long publishFailed;
+    private long elapsedMs;
+    private long usersPerSecond;
+    // first few rejected lines, e.g. "line 12: Unexpected character ..."
+    private List<String> errors;
+}
@@ -0,0 +1,160 @@
+package com.example.userservice.outbox;
+
+import com.example.userservice.domain.UserEvent;
+import com.example.userservice.persistence.SegmentLog;
+import com.example.userservice.serde.UserEventSerde;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Append-only log of user events on local disk, written before the events go to Kafka, so a request
+ * waits for a local append instead of a broker round trip and an event survives a crash of the process
+ * (and, with {@code fsync}, of the machine) before it was published. {@link UserEventOutboxRelay}
+ * drains it to {@code user-events}.
+ * <p>
+ * The events are stored in their binary {@link UserEventSerde} encoding in a {@link SegmentLog}:
+ * memory-mapped, checksummed segments with group-committed fsyncs, cut back to the last intact
+ * record on startup.
+ * <p>
+ * The outbox is the commit point of a user change: {@link #commit} makes the events durable here before
+ * the change is applied to the user store, and {@link #replay} brings the store up to the retained events
+ * on startup. Segments are not deleted while a commit or replay is between the two, so every event that
+ * is gone from the outbox is durable in the store as well.
+ */
+@Component
+@ConditionalOnProperty(name = "user-events.outbox.enabled", havingValue = "true")
+public class UserEventOutbox {
+
+    private static final int REPLAY_BATCH = 10_000;
+
+    private final SegmentLog log;
+    private final UserEventSerde serde;
+    // shared by commits and replays, exclusive for deleting segments
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+
+    public UserEventOutbox(@Value("${user-events.outbox.dir:data/outbox}") Path dir,
+                           @Value("${user-events.outbox.segment-size:64MB}") DataSize segmentSize,
+                           @Value("${user-events.outbox.fsync:true}") boolean fsync,
+                           UserEventSerde serde,
+                           MeterRegistry meterRegistry) {
+        this.log = new SegmentLog("user event outbox", dir, segmentSize, fsync,
+                Timer.builder("user.events.outbox.fsync").register(meterRegistry));
+        this.serde = serde;
+    }
+
+    /**
+     * Appends the event; the future completes once it is durable (immediately without {@code fsync},
+     * when it is in the page cache and survives a crash of this process).
+     */
+    public CompletableFuture<Void> append(UserEvent event) {
+        return log.append(serde.encode(event));
+    }
+
+    /**
+     * Appends the events, waits until they are durable, then applies them with {@code apply}, which
+     * returns once the change is durable in the store; returns what {@code apply} returned.
+     */
+    public <T> T commit(List<UserEvent> events, Supplier<T> apply) {
+        commitLock.readLock().lock();
+        try {
+            CompletableFuture<Void> durable = CompletableFuture.completedFuture(null);
+            for (UserEvent event : events) {
+                durable = append(event);
+            }
+            // flushes complete in order, so the last one covers every event
+            durable.join();
+            return apply.get();
+        } finally {
+            commitLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Hands every retained event to {@code apply} in log order and waits for the last future it returned
+     * (null for an event it skipped); returns the number of events read.
+     */
+    public long replay(Function<UserEvent, CompletableFuture<?>> apply) {
+        commitLock.readLock().lock();
+        try {
+            long position = 0;
+            long replayed = 0;
+            CompletableFuture<?> last = CompletableFuture.completedFuture(null);
+            Batch batch;
+            do {
+                batch = read(position, REPLAY_BATCH);
+                for (UserEvent event : batch.events()) {
+                    CompletableFuture<?> applied = apply.apply(event);
+                    if (applied != null) {
+                        last = applied;
+                    }
+                }
+                replayed += batch.events().size();
+                position = batch.nextPosition();
+            } while (!batch.events().isEmpty());
+            last.join();
+            return replayed;
+        } finally {
+            commitLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code maxRecords} durable events from {@code from} on, and the position after the last of them.
+     */
+    public Batch read(long from, int maxRecords) {
+        SegmentLog.Batch batch = log.read(from, maxRecords);
+        return new Batch(batch.records().stream().map(serde::decode).toList(), batch.nextPosition());
+    }
+
+    /**
+     * Waits up to {@code timeoutMs} for durable events beyond {@code position}; returns whether there are any.
+     */
+    public boolean awaitDurable(long position, long timeoutMs) throws InterruptedException {
+        return log.awaitDurable(position, timeoutMs);
+    }
+
+    /**
+     * Deletes the segments that end at or before {@code position}; the segment being written is kept.
+     * Waits for the commits and replays in progress.
+     */
+    public void deleteBefore(long position) {
+        commitLock.writeLock().lock();
+        try {
+            log.deleteBefore(position);
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+    }
+
+    public long durablePosition() {
+        return log.durablePosition();
+    }
+
+    public Path dir() {
+        return log.dir();
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        log.close();
+    }
+
+    /**
+     * Events read from the outbox and the position to continue reading from.
+     */
+    public record Batch(List<UserEvent> events, long nextPosition) {
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.userservice.outbox;
+
+import com.example.userservice.domain.UserEvent;
+import com.example.userservice.service.UserEventPublisher;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Drains the {@link UserEventOutbox} to {@code user-events} in batches of up to
+ * {@code user-events.outbox.relay.batch-size} events, sent back to back so the producer fills whole
+ * batches, followed by the tombstone of every deleted user. Once the whole batch is acknowledged the
+ * position after it is checkpointed to {@code relay.checkpoint} in the outbox directory, and segments
+ * before it are deleted.
+ * <p>
+ * A failed batch is retried from the checkpoint after {@code retry-backoff}, and after a restart the
+ * relay resumes from the checkpoint, so the events of the last unacknowledged batch may be sent twice.
+ * Both copies carry the same per-user version and consumers skip versions they have already applied,
+ * so every event reaches the view exactly once in effect. {@code user.events.outbox.pending} is the
+ * number of outbox bytes not yet relayed.
+ */
+@Component
+@ConditionalOnProperty(name = "user-events.outbox.enabled", havingValue = "true")
+@Slf4j
+public class UserEventOutboxRelay {
+
+    private final UserEventOutbox outbox;
+    private final UserEventPublisher publisher;
+    private final int batchSize;
+    private final Duration retryBackoff;
+    private final Path checkpointFile;
+    private final Thread thread;
+    private volatile long position;
+    private volatile boolean running = true;
+
+    public UserEventOutboxRelay(UserEventOutbox outbox,
+                                UserEventPublisher publisher,
+                                MeterRegistry meterRegistry,
+                                @Value("${user-events.outbox.relay.batch-size:5000}") int batchSize,
+                                @Value("${user-events.outbox.relay.retry-backoff:1s}") Duration retryBackoff) {
+        this.outbox = outbox;
+        this.publisher = publisher;
+        this.batchSize = batchSize;
+        this.retryBackoff = retryBackoff;
+        this.checkpointFile = outbox.dir().resolve("relay.checkpoint");
+        this.position = readCheckpoint();
+        this.thread = new Thread(this::run, "user-events-outbox-relay");
+        thread.setDaemon(true);
+        Gauge.builder("user.events.outbox.pending", this, relay -> Math.max(0, outbox.durablePosition() - relay.position))
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        log.info("Relaying user event outbox from position {}", position);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        thread.interrupt();
+        thread.join(retryBackoff.toMillis() + 5_000);
+    }
+
+    /**
+     * Sends the next batch and waits for it to be acknowledged; returns whether there was anything to send.
+     */
+    boolean relayBatch() {
+        UserEventOutbox.Batch batch = outbox.read(position, batchSize);
+        if (!batch.events().isEmpty()) {
+            List<CompletableFuture<?>> sends = new ArrayList<>(batch.events().size());
+            for (UserEvent event : batch.events()) {
+                sends.add(publisher.publish(event));
+                if ("USER_DELETED".equals(event.getEventType())) {
+                    // lets compaction drop the user's history; same key, so it follows the delete event
+                    sends.add(publisher.publishTombstone(event.getUserId()));
+                }
+            }
+            // failures are logged by the publisher; the batch is retried from the checkpoint
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+        }
+        if (batch.nextPosition() != position) {
+            position = batch.nextPosition();
+            writeCheckpoint(position);
+            outbox.deleteBefore(position);
+        }
+        return !batch.events().isEmpty();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (!relayBatch()) {
+                    outbox.awaitDurable(position, 1_000);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Failed to relay user events from outbox position {}, retrying in {}", position, retryBackoff, e);
+                try {
+                    Thread.sleep(retryBackoff.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private long readCheckpoint() {
+        try {
+            return Files.exists(checkpointFile) ? ByteBuffer.wrap(Files.readAllBytes(checkpointFile)).getLong() : 0L;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read outbox relay checkpoint " + checkpointFile, e);
+        }
+    }
+
+    private void writeCheckpoint(long position) {
+        Path temp = checkpointFile.resolveSibling("relay.checkpoint.tmp");
+        try {
+            Files.write(temp, ByteBuffer.allocate(Long.BYTES).putLong(position).array());
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write outbox relay checkpoint " + checkpointFile, e);
+        }
+    }
+}
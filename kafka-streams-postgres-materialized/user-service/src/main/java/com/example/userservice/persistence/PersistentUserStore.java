@@ -0,0 +1,254 @@
+package com.example.userservice.persistence;
+
+import com.example.userservice.domain.User;
+import com.example.userservice.domain.UserEvent;
+import com.example.userservice.serde.UserEventSerde;
+import com.example.userservice.service.UserStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Makes the configured {@link UserStore} survive restarts. Every change is appended to a
+ * {@link SegmentLog} of user events in {@code dir/log} in the same order it is applied to the store,
+ * and a background thread writes a snapshot of the whole store to {@code dir/snapshots} every
+ * {@code snapshot-interval} (and on shutdown), after which the log before it is deleted.
+ * <p>
+ * On startup the newest snapshot is loaded with one thread per part file and the log after it is
+ * replayed. Snapshots are taken while writes continue, so a user may be in the snapshot in a newer
+ * state than some of the logged changes replayed over it; every later change is logged after the
+ * snapshot position too, so replaying in log order ends with each user's latest state.
+ * <p>
+ * Writes do not wait for the log to reach the disk: a change survives a crash of the process as soon
+ * as it returns, and, with {@code fsync}, a crash of the machine once the flusher's next group commit
+ * (a fraction of a millisecond under load) has forced it. {@link #durable} hands out that commit, so
+ * callers can hold back what must not outlive the change, like its event.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "user-store.persistence.enabled", havingValue = "true")
+@Slf4j
+public class PersistentUserStore implements UserStore {
+
+    private static final int USERS_PER_SNAPSHOT_PART = 100_000;
+    private static final int REPLAY_BATCH = 10_000;
+    private static final int LOCK_STRIPES = 1024;
+
+    private final UserStore delegate;
+    private final UserEventSerde serde = new UserEventSerde(new ObjectMapper(), false);
+    private final SegmentLog changeLog;
+    private final SnapshotFiles snapshots;
+    private final Timer snapshotTimer;
+    // keeps each user's log order the same as the order its changes reach the store
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    // the last append under each lock; group commits complete in log order, so it covers every earlier change
+    private final CompletableFuture<?>[] lastAppends = new CompletableFuture<?>[LOCK_STRIPES];
+    private final ScheduledExecutorService snapshotter;
+    // guards snapshots against the shutdown snapshot
+    private final Object snapshotLock = new Object();
+    private volatile long snapshotPosition;
+
+    /**
+     * @param delegate the store selected by {@code user-store.type}, which holds the users in memory
+     */
+    public PersistentUserStore(UserStore delegate,
+                               @Value("${user-store.persistence.dir:data/user-store}") Path dir,
+                               @Value("${user-store.persistence.segment-size:64MB}") DataSize segmentSize,
+                               @Value("${user-store.persistence.fsync:true}") boolean fsync,
+                               @Value("${user-store.persistence.snapshot-interval:5m}") Duration snapshotInterval,
+                               MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+            lastAppends[i] = CompletableFuture.completedFuture(null);
+        }
+        this.snapshots = new SnapshotFiles(dir.resolve("snapshots"));
+        this.snapshotTimer = Timer.builder("user.store.snapshot").register(meterRegistry);
+        long start = System.nanoTime();
+        this.snapshotPosition = loadSnapshot();
+        this.changeLog = new SegmentLog("user store log", dir.resolve("log"), segmentSize, fsync,
+                Timer.builder("user.store.log.fsync").register(meterRegistry));
+        long replayed = replay(snapshotPosition);
+        log.info("Restored {} users in {} ms ({} changes replayed from the log)",
+                delegate.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), replayed);
+
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-store-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = snapshotInterval.toMillis();
+        snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public User get(long id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public void put(User user) {
+        byte[] record = serde.encode(upserted(user));
+        synchronized (lock(user.getId())) {
+            delegate.put(user);
+            lastAppends[stripe(user.getId())] = changeLog.append(record);
+        }
+    }
+
+    @Override
+    public User update(long id, UnaryOperator<User> update) {
+        synchronized (lock(id)) {
+            User updated = delegate.update(id, update);
+            if (updated != null) {
+                lastAppends[stripe(id)] = changeLog.append(serde.encode(upserted(updated)));
+            }
+            return updated;
+        }
+    }
+
+    @Override
+    public User remove(long id) {
+        synchronized (lock(id)) {
+            User removed = delegate.remove(id);
+            if (removed != null) {
+                UserEvent deleted = UserEvent.builder().eventType("USER_DELETED").userId(id).build();
+                lastAppends[stripe(id)] = changeLog.append(serde.encode(deleted));
+            }
+            return removed;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> durable(long id) {
+        synchronized (lock(id)) {
+            return lastAppends[stripe(id)].thenRun(() -> { });
+        }
+    }
+
+    @Override
+    public List<User> page(Long afterId, int limit) {
+        return delegate.page(afterId, limit);
+    }
+
+    @Override
+    public void forEach(Consumer<User> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public long maxId() {
+        return delegate.maxId();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    /**
+     * Writes a snapshot of the store unless nothing was logged since the previous one, then deletes the
+     * log segments it covers; returns whether a snapshot was written.
+     */
+    public boolean snapshot() throws IOException {
+        return snapshot(changeLog.durablePosition());
+    }
+
+    private boolean snapshot(long position) throws IOException {
+        synchronized (snapshotLock) {
+            // every change logged before this position is already applied to the store
+            if (position == snapshotPosition) {
+                return false;
+            }
+            long start = System.nanoTime();
+            long users = snapshots.write(position,
+                    sink -> delegate.forEach(user -> sink.accept(serde.encode(upserted(user)))),
+                    USERS_PER_SNAPSHOT_PART);
+            snapshotTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            snapshotPosition = position;
+            changeLog.deleteBefore(position);
+            log.info("Wrote user store snapshot at log position {}: {} users in {} ms",
+                    position, users, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return true;
+        }
+    }
+
+    /**
+     * Writes a final snapshot, so the next start has no log to replay, and closes the log. The snapshot
+     * waits for the appends still being flushed, since a snapshot only covers what is durable.
+     */
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        snapshotter.shutdownNow();
+        snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        snapshot(changeLog.sync());
+        changeLog.close();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            // the log is kept until a snapshot succeeds, so nothing is lost; startup just replays more
+            log.error("Failed to write user store snapshot", e);
+        }
+    }
+
+    private long loadSnapshot() {
+        try {
+            return snapshots.load(record -> delegate.put(serde.decode(record).getUser())).orElse(0L);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load user store snapshot", e);
+        }
+    }
+
+    private long replay(long from) {
+        long position = from;
+        long replayed = 0;
+        SegmentLog.Batch batch;
+        do {
+            batch = changeLog.read(position, REPLAY_BATCH);
+            for (byte[] record : batch.records()) {
+                UserEvent event = serde.decode(record);
+                if ("USER_DELETED".equals(event.getEventType())) {
+                    delegate.remove(event.getUserId());
+                } else {
+                    delegate.put(event.getUser());
+                }
+            }
+            replayed += batch.records().size();
+            position = batch.nextPosition();
+        } while (!batch.records().isEmpty());
+        return replayed;
+    }
+
+    private Object lock(long id) {
+        return locks[stripe(id)];
+    }
+
+    private static int stripe(long id) {
+        return (int) (id & (LOCK_STRIPES - 1));
+    }
+
+    private static UserEvent upserted(User user) {
+        return UserEvent.builder().eventType("USER_UPDATED").userId(user.getId()).user(user).build();
+    }
+}
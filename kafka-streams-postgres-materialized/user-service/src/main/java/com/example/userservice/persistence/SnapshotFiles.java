@@ -0,0 +1,188 @@
+package com.example.userservice.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Snapshots of a store as directories named after the log position they cover: every record logged
+ * before that position is reflected in the snapshot. A snapshot is split into part files of up to
+ * {@code recordsPerPart} records so it can be loaded by several threads at once; a part is
+ * {@code (length, payload)*, -1, crc32c of the preceding bytes}.
+ * <p>
+ * A snapshot is written to a {@code .tmp} directory, synced, and renamed into place, so the newest
+ * directory without the suffix is always complete; older snapshots are deleted once it is.
+ */
+@Slf4j
+final class SnapshotFiles {
+
+    private static final int END_OF_PART = -1;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path dir;
+
+    SnapshotFiles(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Writes the records {@code source} passes to its consumer as the snapshot at {@code position} and
+     * deletes older snapshots; returns the number of records written.
+     */
+    long write(long position, Consumer<Consumer<byte[]>> source, int recordsPerPart) throws IOException {
+        Files.createDirectories(dir);
+        Path target = dir.resolve(name(position));
+        Path temp = dir.resolve(name(position) + TEMP_SUFFIX);
+        FileSystemUtils.deleteRecursively(temp);
+        Files.createDirectories(temp);
+        long records;
+        try (PartWriter writer = new PartWriter(temp, recordsPerPart)) {
+            source.accept(writer::write);
+            records = writer.records;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        FileSystemUtils.deleteRecursively(target);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        sync(dir);
+        for (Path older : snapshots()) {
+            if (!older.equals(target)) {
+                FileSystemUtils.deleteRecursively(older);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Passes every record of the newest snapshot to {@code sink}, from several threads at once; returns
+     * the position of the snapshot, or empty if there is none.
+     */
+    Optional<Long> load(Consumer<byte[]> sink) throws IOException {
+        List<Path> snapshots = snapshots();
+        if (snapshots.isEmpty()) {
+            return Optional.empty();
+        }
+        Path newest = snapshots.get(snapshots.size() - 1);
+        List<Path> parts;
+        try (Stream<Path> files = Files.list(newest)) {
+            parts = files.sorted().toList();
+        }
+        try {
+            parts.parallelStream().forEach(part -> loadPart(part, sink));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return Optional.of(Long.parseLong(newest.getFileName().toString()));
+    }
+
+    private List<Path> snapshots() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> !file.getFileName().toString().endsWith(TEMP_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static void loadPart(Path part, Consumer<byte[]> sink) {
+        CRC32C crc = new CRC32C();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(part), 1 << 16), crc))) {
+            int length;
+            while ((length = in.readInt()) != END_OF_PART) {
+                byte[] record = new byte[length];
+                in.readFully(record);
+                sink.accept(record);
+            }
+            int expected = (int) crc.getValue();
+            if (in.readInt() != expected) {
+                throw new IOException("Snapshot part " + part + " fails its checksum");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load snapshot part " + part, e);
+        }
+    }
+
+    private static String name(long position) {
+        return String.format("%020d", position);
+    }
+
+    private static void sync(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static final class PartWriter implements AutoCloseable {
+
+        private final Path dir;
+        private final int recordsPerPart;
+        private FileOutputStream file;
+        private CRC32C crc;
+        private DataOutputStream out;
+        private int parts;
+        private int inPart;
+        private long records;
+
+        PartWriter(Path dir, int recordsPerPart) {
+            this.dir = dir;
+            this.recordsPerPart = recordsPerPart;
+        }
+
+        void write(byte[] record) {
+            try {
+                if (out == null || inPart == recordsPerPart) {
+                    closePart();
+                    file = new FileOutputStream(dir.resolve(String.format("part-%05d", parts++)).toFile());
+                    crc = new CRC32C();
+                    out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc));
+                    inPart = 0;
+                }
+                out.writeInt(record.length);
+                out.write(record);
+                inPart++;
+                records++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            closePart();
+        }
+
+        private void closePart() throws IOException {
+            if (out == null) {
+                return;
+            }
+            out.writeInt(END_OF_PART);
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            file.getFD().sync();
+            out.close();
+            out = null;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.userservice.service;
+
+import com.example.userservice.domain.User;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link UserStore} in flat primitive arrays, for millions of users without millions of objects.
+ * <p>
+ * User {@code id} lives in slot {@code (id - 1) % 4096} of segment {@code (id - 1) / 4096}, so id order
+ * is slot order and ids go up to 2^31. Ids come in leased blocks ({@link IdAllocator}), so they are dense
+ * within a block but skip the unused rest of every block an instance did not finish; a block size that is
+ * a multiple of 4096 starts every block at a fresh segment, and the missing segments cost one array
+ * entry each. Per user a segment holds the version and both
+ * timestamps (epoch nanos, UTC) in {@code long[]}s, the department and status as codes into a dictionary
+ * of their few distinct values, and the name and email as one UTF-8 {@code byte[]}: one object per user
+ * instead of a map node, a boxed key, a {@code User}, four strings and two {@code LocalDateTime}s.
+ * Reads return a fresh {@code User} decoded from the arrays.
+ * <p>
+ * Each segment has its own {@link StampedLock}: reads are optimistic and retry under the read lock only
+ * when they raced a write to the same segment. Segments are never released, so ids of deleted users keep
+ * their (empty) slots.
+ */
+@Component
+@ConditionalOnProperty(name = "user-store.type", havingValue = "compact", matchIfMissing = true)
+public class CompactUserStore implements UserStore {
+
+    private static final int SEGMENT_BITS = 12;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final long MAX_SEGMENTS = 1L << (31 - SEGMENT_BITS);
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    // version and timestamps that were null
+    private static final long ABSENT = Long.MIN_VALUE;
+
+    private final Object growLock = new Object();
+    // copied on growth, so a reader never sees a half-published segment
+    private volatile Segment[] segments = new Segment[0];
+    private final ValueDictionary departments = new ValueDictionary();
+    private final ValueDictionary statuses = new ValueDictionary();
+    private final AtomicInteger size = new AtomicInteger();
+
+    @Override
+    public User get(long id) {
+        Segment segment = segment(id);
+        return segment != null ? read(segment, slot(id), id) : null;
+    }
+
+    @Override
+    public void put(User user) {
+        long id = user.getId();
+        Segment segment = segmentForWrite(id);
+        int slot = slot(id);
+        long stamp = segment.lock.writeLock();
+        try {
+            if (segment.text[slot] == null) {
+                size.incrementAndGet();
+            }
+            write(segment, slot, user);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public User update(long id, UnaryOperator<User> update) {
+        Segment segment = segment(id);
+        if (segment == null) {
+            return null;
+        }
+        int slot = slot(id);
+        long stamp = segment.lock.writeLock();
+        try {
+            if (segment.text[slot] == null) {
+                return null;
+            }
+            User updated = update.apply(decode(id, segment.snapshot(slot)));
+            write(segment, slot, updated);
+            return updated;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public User remove(long id) {
+        Segment segment = segment(id);
+        if (segment == null) {
+            return null;
+        }
+        int slot = slot(id);
+        long stamp = segment.lock.writeLock();
+        try {
+            if (segment.text[slot] == null) {
+                return null;
+            }
+            User removed = decode(id, segment.snapshot(slot));
+            segment.text[slot] = null;
+            size.decrementAndGet();
+            return removed;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public List<User> page(Long afterId, int limit) {
+        List<User> page = new ArrayList<>(Math.min(limit, SEGMENT_SIZE));
+        scan(afterId != null ? afterId + 1 : 1, user -> page.add(user), limit);
+        return page;
+    }
+
+    @Override
+    public void forEach(Consumer<User> action) {
+        scan(1, action, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long maxId() {
+        return MAX_SEGMENTS << SEGMENT_BITS;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    private void scan(long fromId, Consumer<User> action, int limit) {
+        long id = Math.max(fromId, 1);
+        int visited = 0;
+        Segment[] current = segments;
+        while (visited < limit && (id - 1) >>> SEGMENT_BITS < current.length) {
+            Segment segment = current[(int) ((id - 1) >>> SEGMENT_BITS)];
+            if (segment == null) {
+                // jump to the first id of the next segment
+                id = (((id - 1) >>> SEGMENT_BITS) + 1 << SEGMENT_BITS) + 1;
+                continue;
+            }
+            User user = read(segment, slot(id), id);
+            if (user != null) {
+                action.accept(user);
+                visited++;
+            }
+            id++;
+        }
+    }
+
+    private User read(Segment segment, int slot, long id) {
+        long stamp = segment.lock.tryOptimisticRead();
+        Slot raw = segment.snapshot(slot);
+        if (!segment.lock.validate(stamp)) {
+            stamp = segment.lock.readLock();
+            try {
+                raw = segment.snapshot(slot);
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return raw.text() != null ? decode(id, raw) : null;
+    }
+
+    private void write(Segment segment, int slot, User user) {
+        segment.text[slot] = encodeText(user.getName(), user.getEmail());
+        segment.versions[slot] = user.getVersion() != null ? user.getVersion() : ABSENT;
+        segment.createdAt[slot] = encodeTime(user.getCreatedAt());
+        segment.updatedAt[slot] = encodeTime(user.getUpdatedAt());
+        segment.departments[slot] = departments.code(user.getDepartment());
+        segment.statuses[slot] = statuses.code(user.getStatus());
+    }
+
+    private User decode(long id, Slot raw) {
+        byte[] text = raw.text();
+        int nameLength = readVarInt(text, 0) - 1;
+        int position = varIntSize(nameLength + 1);
+        int emailLength = readVarInt(text, position) - 1;
+        position += varIntSize(emailLength + 1);
+        String name = nameLength >= 0 ? new String(text, position, nameLength, StandardCharsets.UTF_8) : null;
+        position += Math.max(nameLength, 0);
+        String email = emailLength >= 0 ? new String(text, position, emailLength, StandardCharsets.UTF_8) : null;
+        return User.builder()
+                .id(id)
+                .name(name)
+                .email(email)
+                .department(departments.value(raw.department()))
+                .status(statuses.value(raw.status()))
+                .createdAt(decodeTime(raw.createdAt()))
+                .updatedAt(decodeTime(raw.updatedAt()))
+                .version(raw.version() != ABSENT ? raw.version() : null)
+                .build();
+    }
+
+    private Segment segment(long id) {
+        long index = (id - 1) >>> SEGMENT_BITS;
+        Segment[] current = segments;
+        return id >= 1 && index < current.length ? current[(int) index] : null;
+    }
+
+    private Segment segmentForWrite(long id) {
+        Segment segment = segment(id);
+        if (segment != null) {
+            return segment;
+        }
+        long index = (id - 1) >>> SEGMENT_BITS;
+        if (id < 1 || index >= MAX_SEGMENTS) {
+            throw new IllegalArgumentException("User id out of range: " + id);
+        }
+        synchronized (growLock) {
+            Segment[] current = segments;
+            if (index < current.length && current[(int) index] != null) {
+                return current[(int) index];
+            }
+            Segment[] grown = Arrays.copyOf(current, Math.max(current.length, (int) index + 1));
+            grown[(int) index] = new Segment();
+            segments = grown;
+            return grown[(int) index];
+        }
+    }
+
+    private static int slot(long id) {
+        return (int) ((id - 1) & (SEGMENT_SIZE - 1));
+    }
+
+    private static long encodeTime(LocalDateTime time) {
+        if (time == null) {
+            return ABSENT;
+        }
+        return Math.addExact(Math.multiplyExact(time.toEpochSecond(ZoneOffset.UTC), NANOS_PER_SECOND), time.getNano());
+    }
+
+    private static LocalDateTime decodeTime(long time) {
+        if (time == ABSENT) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(time, NANOS_PER_SECOND),
+                (int) Math.floorMod(time, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+    // [name length + 1][email length + 1][name][email], lengths as varints and 0 for null
+    private static byte[] encodeText(String name, String email) {
+        byte[] nameBytes = name != null ? name.getBytes(StandardCharsets.UTF_8) : null;
+        byte[] emailBytes = email != null ? email.getBytes(StandardCharsets.UTF_8) : null;
+        int nameHeader = nameBytes != null ? nameBytes.length + 1 : 0;
+        int emailHeader = emailBytes != null ? emailBytes.length + 1 : 0;
+        byte[] text = new byte[varIntSize(nameHeader) + varIntSize(emailHeader)
+                + Math.max(nameHeader - 1, 0) + Math.max(emailHeader - 1, 0)];
+        int position = writeVarInt(text, 0, nameHeader);
+        position = writeVarInt(text, position, emailHeader);
+        if (nameBytes != null) {
+            System.arraycopy(nameBytes, 0, text, position, nameBytes.length);
+            position += nameBytes.length;
+        }
+        if (emailBytes != null) {
+            System.arraycopy(emailBytes, 0, text, position, emailBytes.length);
+        }
+        return text;
+    }
+
+    private static int writeVarInt(byte[] buffer, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    private static int readVarInt(byte[] buffer, int position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer[position++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * One user's raw fields, read together so they can be validated against a concurrent write.
+     */
+    private record Slot(byte[] text, long version, long createdAt, long updatedAt, int department, int status) {
+    }
+
+    private static final class Segment {
+
+        private final StampedLock lock = new StampedLock();
+        // null for a slot without a user
+        private final byte[][] text = new byte[SEGMENT_SIZE][];
+        private final long[] versions = new long[SEGMENT_SIZE];
+        private final long[] createdAt = new long[SEGMENT_SIZE];
+        private final long[] updatedAt = new long[SEGMENT_SIZE];
+        private final int[] departments = new int[SEGMENT_SIZE];
+        private final int[] statuses = new int[SEGMENT_SIZE];
+
+        Slot snapshot(int slot) {
+            return new Slot(text[slot], versions[slot], createdAt[slot], updatedAt[slot], departments[slot], statuses[slot]);
+        }
+    }
+
+    /**
+     * Codes for the distinct values of a low-cardinality field; code 0 is null.
+     */
+    private static final class ValueDictionary {
+
+        private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+        private volatile String[] values = new String[16];
+        private int count = 1;
+
+        int code(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer code = codes.get(value);
+            return code != null ? code : add(value);
+        }
+
+        String value(int code) {
+            return values[code];
+        }
+
+        private synchronized int add(String value) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            // the value is in the array before its code can be found
+            values[count] = value;
+            codes.put(value, count);
+            return count++;
+        }
+    }
+}
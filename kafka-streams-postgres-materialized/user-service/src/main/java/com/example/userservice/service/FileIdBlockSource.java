@@ -0,0 +1,52 @@
+package com.example.userservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Leases id blocks from a file holding the next free id, for local runs and tests. The file is locked
+ * while it is read and advanced, so instances on the same host (or sharing the file system) do not
+ * collide; the new value is forced to disk before the block is handed out.
+ */
+@Component
+@ConditionalOnProperty(name = "user-id.source", havingValue = "file")
+public class FileIdBlockSource implements IdBlockSource {
+
+    private final Path file;
+
+    public FileIdBlockSource(@Value("${user-id.file:data/user-id-next}") Path file) {
+        this.file = file;
+    }
+
+    // synchronized as well: a second lock of the same file from this JVM would throw
+    @Override
+    public synchronized long leaseBlock(int size) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+                long first = channel.read(buffer, 0) == Long.BYTES ? buffer.flip().getLong() : 1L;
+                buffer.clear().putLong(Math.addExact(first, size)).flip();
+                channel.write(buffer, 0);
+                channel.force(true);
+                return first;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to lease user ids from " + file, e);
+        }
+    }
+}
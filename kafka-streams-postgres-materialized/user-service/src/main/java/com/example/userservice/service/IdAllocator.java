@@ -0,0 +1,90 @@
+package com.example.userservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out user ids from blocks leased from an {@link IdBlockSource}, so several instances can create
+ * users without colliding and ids never restart at 1.
+ * <p>
+ * Within a block an id costs one {@code getAndIncrement}; only the thread that finds the block exhausted
+ * leases the next one (one round trip to the source per {@code user-id.block-size} ids) while the
+ * others wait for it. The unused rest of a block is lost on restart. Ids are unique but only increasing
+ * per instance: instances interleave their blocks.
+ * <p>
+ * A block reaching past the store's {@link UserStore#maxId()} is refused, so running out of ids fails
+ * with that cause instead of a store error per user; with the compact store keep
+ * {@code user-id.block-size} a multiple of 4096, and keep it small enough that restarts and instances
+ * leaving blocks unfinished do not use up the 2^31 ids.
+ */
+@Component
+@Slf4j
+public class IdAllocator {
+
+    private final IdBlockSource source;
+    private final int blockSize;
+    private final long maxId;
+    // starts exhausted, so the first id leases the first block
+    private volatile Block block = new Block(0, 0);
+
+    @Autowired
+    public IdAllocator(IdBlockSource source, @Value("${user-id.block-size:4096}") int blockSize, UserStore userStore) {
+        this(source, blockSize, userStore.maxId());
+    }
+
+    public IdAllocator(IdBlockSource source, int blockSize) {
+        this(source, blockSize, Long.MAX_VALUE);
+    }
+
+    IdAllocator(IdBlockSource source, int blockSize, long maxId) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("user-id.block-size must be positive: " + blockSize);
+        }
+        if (blockSize > maxId) {
+            throw new IllegalArgumentException("user-id.block-size exceeds the largest user id " + maxId + ": " + blockSize);
+        }
+        this.source = source;
+        this.blockSize = blockSize;
+        this.maxId = maxId;
+    }
+
+    public long nextId() {
+        while (true) {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if (id < current.end) {
+                return id;
+            }
+            refill(current);
+        }
+    }
+
+    private synchronized void refill(Block exhausted) {
+        if (block != exhausted) {
+            // another thread already leased the next block
+            return;
+        }
+        long first = source.leaseBlock(blockSize);
+        if (first - 1 > maxId - blockSize) {
+            throw new IllegalStateException("User ids exhausted: leased block starts at " + first
+                    + ", the user store holds ids up to " + maxId);
+        }
+        block = new Block(first, first + blockSize);
+        log.info("Leased user ids {}..{}", first, first + blockSize - 1);
+    }
+
+    private static final class Block {
+
+        private final AtomicLong next;
+        private final long end;
+
+        Block(long first, long end) {
+            this.next = new AtomicLong(first);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.userservice.service;
+
+/**
+ * Durable source of user id blocks shared by all user-service instances.
+ */
+@FunctionalInterface
+public interface IdBlockSource {
+
+    /**
+     * Reserves {@code size} consecutive ids that no caller, on this or any other instance, before or
+     * after a restart, will ever get again; returns the first of them.
+     */
+    long leaseBlock(int size);
+}
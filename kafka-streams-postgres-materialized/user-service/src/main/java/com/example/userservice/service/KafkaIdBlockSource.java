@@ -0,0 +1,72 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.KafkaTopicConfig;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Leases id blocks by appending a claim record to the single partition of {@code user-id-blocks}: the
+ * offset the broker assigns is unique and only grows, so the claim at offset {@code n} owns ids
+ * {@code 1 + n * size} to {@code (n + 1) * size}. Offsets keep growing after old claims expire, so a short
+ * retention is fine; deleting and recreating the topic would restart ids at 1.
+ * <p>
+ * {@code user-id.block-size} must be the same on all instances and may only ever be raised: a smaller
+ * size at a later offset can fall inside a block claimed earlier.
+ */
+@Component
+@ConditionalOnProperty(name = "user-id.source", havingValue = "kafka", matchIfMissing = true)
+public class KafkaIdBlockSource implements IdBlockSource {
+
+    private final Producer<String, String> producer;
+    private final Duration timeout;
+
+    @Autowired
+    public KafkaIdBlockSource(@Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+                              @Value("${user-id.lease-timeout:10s}") Duration timeout) {
+        this(new KafkaProducer<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ProducerConfig.ACKS_CONFIG, "all",
+                ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true,
+                ProducerConfig.LINGER_MS_CONFIG, 0), new StringSerializer(), new StringSerializer()), timeout);
+    }
+
+    KafkaIdBlockSource(Producer<String, String> producer, Duration timeout) {
+        this.producer = producer;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public long leaseBlock(int size) {
+        ProducerRecord<String, String> claim =
+                new ProducerRecord<>(KafkaTopicConfig.USER_ID_BLOCKS_TOPIC, 0, null, String.valueOf(size));
+        try {
+            RecordMetadata metadata = producer.send(claim).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return Math.addExact(1L, Math.multiplyExact(metadata.offset(), (long) size));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while leasing user ids", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Failed to lease user ids from " + KafkaTopicConfig.USER_ID_BLOCKS_TOPIC, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        producer.close(timeout);
+    }
+}
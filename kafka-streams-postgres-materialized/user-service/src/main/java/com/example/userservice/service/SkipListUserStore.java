@@ -0,0 +1,62 @@
+package com.example.userservice.service;
+
+import com.example.userservice.domain.User;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link UserStore} over a {@link ConcurrentSkipListMap} of the {@code User} objects themselves.
+ * Simple, but every user costs a map node, a boxed key, the {@code User} with its own strings and two
+ * {@code LocalDateTime}s; kept for comparison with {@link CompactUserStore}.
+ */
+@Component
+@ConditionalOnProperty(name = "user-store.type", havingValue = "skip-list")
+public class SkipListUserStore implements UserStore {
+
+    private final ConcurrentNavigableMap<Long, User> users = new ConcurrentSkipListMap<>();
+
+    @Override
+    public User get(long id) {
+        return users.get(id);
+    }
+
+    @Override
+    public void put(User user) {
+        users.put(user.getId(), user);
+    }
+
+    @Override
+    public User update(long id, UnaryOperator<User> update) {
+        return users.computeIfPresent(id, (key, existing) -> update.apply(existing));
+    }
+
+    @Override
+    public User remove(long id) {
+        return users.remove(id);
+    }
+
+    @Override
+    public List<User> page(Long afterId, int limit) {
+        Map<Long, User> tail = afterId != null ? users.tailMap(afterId, false) : users;
+        return tail.values().stream()
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void forEach(Consumer<User> action) {
+        users.values().forEach(action);
+    }
+
+    @Override
+    public int size() {
+        return users.size();
+    }
+}
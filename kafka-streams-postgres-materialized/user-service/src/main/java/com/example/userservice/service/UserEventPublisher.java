@@ -0,0 +1,129 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.KafkaTopicConfig;
+import com.example.userservice.domain.UserEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes {@link UserEvent}s asynchronously with a bounded number of unacknowledged sends.
+ * <p>
+ * Callers block once {@code user-events.publisher.max-in-flight} sends are awaiting a broker
+ * acknowledgement, so a bulk import is throttled to what the broker accepts instead of growing
+ * the producer buffer. Every send completes (the producer's delivery.timeout.ms bounds it), so
+ * permits are always returned. Latency and failures are recorded per send:
+ * <ul>
+ *     <li>{@code user.events.publish} timer from send to broker acknowledgement, tagged {@code type}
+ *     (event type, or {@code TOMBSTONE}), {@code result=success|failure} and {@code exception}</li>
+ *     <li>{@code user.events.publish.backpressure} timer: time callers waited for a permit</li>
+ *     <li>{@code user.events.publish.in-flight} gauge</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class UserEventPublisher {
+
+    // type tag of tombstone sends
+    private static final String TOMBSTONE_TYPE = "TOMBSTONE";
+
+    private final KafkaTemplate<String, UserEvent> kafkaTemplate;
+    private final Semaphore inFlight;
+    private final Timer backpressureTimer;
+    private final MeterRegistry meterRegistry;
+
+    public UserEventPublisher(KafkaTemplate<String, UserEvent> kafkaTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${user-events.publisher.max-in-flight:10000}") int maxInFlight) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.backpressureTimer = Timer.builder("user.events.publish.backpressure")
+                .register(meterRegistry);
+        Gauge.builder("user.events.publish.in-flight", inFlight, permits -> maxInFlight - permits.availablePermits())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends the event keyed by user id. Blocks while the in-flight limit is reached; the returned
+     * future completes with the broker acknowledgement or the send failure, which is already
+     * logged and counted.
+     */
+    public CompletableFuture<SendResult<String, UserEvent>> publish(UserEvent event) {
+        return send(event.getUserId(), event, event.getEventType(), event.getVersion());
+    }
+
+    /**
+     * Sends a tombstone (null value) for the user, so compaction of {@code user-events} eventually
+     * drops every record of the key. Published right after the user's {@code USER_DELETED} event,
+     * which still carries the version of the delete; otherwise behaves like {@link #publish}.
+     */
+    public CompletableFuture<SendResult<String, UserEvent>> publishTombstone(Long userId) {
+        return send(userId, null, TOMBSTONE_TYPE, null);
+    }
+
+    /**
+     * Waits until every send issued so far has been handed to the broker, e.g. at the end of a bulk import.
+     */
+    public void flush() {
+        kafkaTemplate.flush();
+    }
+
+    private CompletableFuture<SendResult<String, UserEvent>> send(Long userId, UserEvent event, String type, Long version) {
+        acquirePermit();
+        long start = System.nanoTime();
+        CompletableFuture<SendResult<String, UserEvent>> future;
+        try {
+            future = kafkaTemplate.send(KafkaTopicConfig.USER_EVENTS_TOPIC, userId.toString(), event);
+        } catch (RuntimeException e) {
+            // serialization errors and max.block.ms timeouts surface synchronously
+            inFlight.release();
+            recordFailure(type, userId, version, start, e);
+            return CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, ex) -> {
+            inFlight.release();
+            if (ex == null) {
+                publishTimer(type, "success", "none").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                log.debug("Published user event: {} userId={} version={} offset={}",
+                        type, userId, version, result.getRecordMetadata().offset());
+            } else {
+                recordFailure(type, userId, version, start, ex);
+            }
+        });
+    }
+
+    private void acquirePermit() {
+        if (inFlight.tryAcquire()) {
+            return;
+        }
+        long waitStart = System.nanoTime();
+        inFlight.acquireUninterruptibly();
+        backpressureTimer.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer publishTimer(String type, String result, String exception) {
+        // same tag keys on every series, as required by registries such as Prometheus
+        return Timer.builder("user.events.publish")
+                .tag("type", type)
+                .tag("result", result)
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+
+    private void recordFailure(String type, Long userId, Long version, long start, Throwable ex) {
+        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+        publishTimer(type, "failure", cause.getClass().getSimpleName())
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.error("Failed to publish user event: {} userId={} version={}", type, userId, version, cause);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.userservice.service;
+
+import com.example.userservice.domain.User;
+import com.example.userservice.domain.UserImportResult;
+import com.example.userservice.domain.UserImportSummary;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk user creation. Users are created in chunks so the events of a chunk go out back to back,
+ * letting the producer fill whole batches; the publisher's
+ * in-flight limit throttles the import to what the broker accepts.
+ */
+@Service
+@Slf4j
+public class UserImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final UserService userService;
+    private final UserEventPublisher userEventPublisher;
+    private final ObjectReader userReader;
+    private final int chunkSize;
+
+    public UserImportService(UserService userService,
+                             UserEventPublisher userEventPublisher,
+                             ObjectMapper objectMapper,
+                             @Value("${user-import.chunk-size:1000}") int chunkSize) {
+        this.userService = userService;
+        this.userEventPublisher = userEventPublisher;
+        this.userReader = objectMapper.readerFor(User.class);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Creates all users and waits for their events to be acknowledged, returning one result per
+     * item in request order.
+     */
+    public List<UserImportResult> importBatch(List<User> users) {
+        List<CompletableFuture<?>> publishes = userService.createUsers(users);
+        userEventPublisher.flush();
+
+        List<UserImportResult> results = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            UserImportResult.UserImportResultBuilder result = UserImportResult.builder()
+                    .index(i)
+                    .id(users.get(i).getId());
+            try {
+                publishes.get(i).join();
+                result.status(UserImportResult.Status.CREATED);
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                result.status(UserImportResult.Status.PUBLISH_FAILED).error(cause.getMessage());
+            }
+            results.add(result.build());
+        }
+        return results;
+    }
+
+    /**
+     * Reads one user per line and creates them chunk by chunk while the body is still arriving, so
+     * memory stays bounded by the chunk size. Blank lines are skipped; lines that fail to parse are
+     * counted and reported without aborting the import.
+     */
+    public UserImportSummary importNdjson(InputStream body) throws IOException {
+        long start = System.nanoTime();
+        long received = 0;
+        long invalid = 0;
+        AtomicLong publishFailed = new AtomicLong();
+        List<String> errors = new ArrayList<>();
+        List<User> chunk = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            received++;
+            try {
+                chunk.add(userReader.readValue(line));
+            } catch (JsonProcessingException e) {
+                invalid++;
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add("line " + lineNumber + ": " + e.getOriginalMessage());
+                }
+                continue;
+            }
+            if (chunk.size() == chunkSize) {
+                createChunk(chunk, publishFailed);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            createChunk(chunk, publishFailed);
+        }
+        // flush() returns after every send has completed and its callbacks have run
+        userEventPublisher.flush();
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        long created = received - invalid - publishFailed.get();
+        UserImportSummary summary = UserImportSummary.builder()
+                .received(received)
+                .created(created)
+                .invalid(invalid)
+                .publishFailed(publishFailed.get())
+                .elapsedMs(elapsedMs)
+                .usersPerSecond(created * 1000 / elapsedMs)
+                .errors(errors)
+                .build();
+        log.info("User import finished: received={}, created={}, invalid={}, publishFailed={}, {}ms ({} users/s)",
+                received, created, invalid, publishFailed.get(), elapsedMs, summary.getUsersPerSecond());
+        return summary;
+    }
+
+    private void createChunk(List<User> chunk, AtomicLong publishFailed) {
+        for (CompletableFuture<?> publish : userService.createUsers(chunk)) {
+            publish.whenComplete((result, ex) -> {
+                if (ex != null) {
+                    publishFailed.incrementAndGet();
+                }
+            });
+        }
+    }
+}
@@ -2,94 +2,155 @@ package com.example.userservice.service;
 
 import com.example.userservice.domain.User;
 import com.example.userservice.domain.UserEvent;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
+import com.example.userservice.outbox.UserEventOutbox;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
+/**
+ * Users and their events. Events are published to Kafka asynchronously, or, with
+ * {@code user-events.outbox.enabled}, appended to the local {@link UserEventOutbox}: a mutation then
+ * returns once its event is durable there, and the outbox relay publishes it.
+ * <p>
+ * Without the outbox the store is the source of truth: an event is published only once the change is
+ * durable in the store ({@link UserStore#durable}); otherwise a crash could leave Kafka a version ahead of
+ * the restored store, and the next change would be published again under that version with other
+ * content, which consumers drop as already applied.
+ * <p>
+ * With the outbox the outbox is the source of truth: the event is committed there first and only then
+ * applied to the store, and on startup the events still retained in the outbox are replayed into the store
+ * (each only if newer than the user it finds), so a crash between the two leaves neither a change without
+ * its event nor an event without its change.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class UserService {
     
-    private final KafkaTemplate<String, String> kafkaTemplate;
-    private final ObjectMapper objectMapper;
-    private final Map<Long, User> userStore = new ConcurrentHashMap<>();
-    private final AtomicLong idGenerator = new AtomicLong(1);
+    private static final int LOCK_STRIPES = 1024;
     
-    private static final String USER_EVENTS_TOPIC = "user-events";
+    private final UserEventPublisher userEventPublisher;
+    private final UserStore userStore;
+    private final IdAllocator idAllocator;
+    // null when events are published directly
+    private final UserEventOutbox outbox;
+    // with the outbox, serializes the changes of one user from reading its version to applying the change
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    
+    @Autowired
+    public UserService(UserEventPublisher userEventPublisher, UserStore userStore, IdAllocator idAllocator,
+                       Optional<UserEventOutbox> outbox) {
+        this.userEventPublisher = userEventPublisher;
+        this.userStore = userStore;
+        this.idAllocator = idAllocator;
+        this.outbox = outbox.orElse(null);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        if (this.outbox != null) {
+            long replayed = this.outbox.replay(this::replay);
+            log.info("Replayed {} retained outbox events into the user store", replayed);
+        }
+    }
+    
+    public UserService(UserEventPublisher userEventPublisher, UserStore userStore, IdAllocator idAllocator) {
+        this(userEventPublisher, userStore, idAllocator, Optional.empty());
+    }
     
     public User createUser(User user) {
-        Long id = idGenerator.getAndIncrement();
-        user.setId(id);
-        user.setCreatedAt(LocalDateTime.now());
-        user.setUpdatedAt(LocalDateTime.now());
-        
-        userStore.put(id, user);
-        
-        UserEvent event = UserEvent.builder()
-                .eventType("USER_CREATED")
-                .userId(id)
-                .user(user)
-                .timestamp(LocalDateTime.now())
-                .version(1L)
-                .build();
-        
-        publishUserEvent(event);
+        Long id = idAllocator.nextId();
+        initNewUser(id, user, LocalDateTime.now());
+        commit(id, createdEvent(user), () -> userStore.put(user));
         
         log.info("User created: {}", user);
         return user;
     }
     
-    public User updateUser(Long id, User updateUser) {
-        User existingUser = userStore.get(id);
-        if (existingUser == null) {
-            throw new RuntimeException("User not found: " + id);
-        }
+    /**
+     * Creates all users with ids from the leased block. With the outbox their events are committed there
+     * with one flush and then the users are stored; otherwise the users are stored, and once the store has
+     * them durable their events are published back to back. The users are updated in place; the returned
+     * futures are in the same order and complete when the event is acknowledged by the broker or, with the
+     * outbox, durable in it (already the case on return; if the outbox flush fails, this throws and none of
+     * the users is stored).
+     */
+    public List<CompletableFuture<?>> createUsers(List<User> users) {
+        LocalDateTime now = LocalDateTime.now();
         
-        updateUser.setId(id);
-        updateUser.setCreatedAt(existingUser.getCreatedAt());
-        updateUser.setUpdatedAt(LocalDateTime.now());
-        
-        userStore.put(id, updateUser);
+        List<UserEvent> events = new ArrayList<>(users.size());
+        for (User user : users) {
+            initNewUser(idAllocator.nextId(), user, now);
+            events.add(createdEvent(user));
+        }
         
-        UserEvent event = UserEvent.builder()
-                .eventType("USER_UPDATED")
-                .userId(id)
-                .user(updateUser)
-                .timestamp(LocalDateTime.now())
-                .version(2L)
-                .build();
+        List<CompletableFuture<?>> publishes = new ArrayList<>(users.size());
+        if (outbox != null) {
+            outbox.commit(events, () -> storeDurably(users));
+            events.forEach(event -> publishes.add(CompletableFuture.completedFuture(null)));
+        } else {
+            storeDurably(users);
+            events.forEach(event -> publishes.add(userEventPublisher.publish(event)));
+        }
         
-        publishUserEvent(event);
+        if (!users.isEmpty()) {
+            log.debug("Users created: {} (ids {}..{})", users.size(), users.get(0).getId(), users.get(users.size() - 1).getId());
+        }
+        return publishes;
+    }
+    
+    public User updateUser(Long id, User updateUser) {
+        if (outbox != null) {
+            synchronized (lock(id)) {
+                User existingUser = userStore.get(id);
+                if (existingUser == null) {
+                    throw new RuntimeException("User not found: " + id);
+                }
+                prepareUpdate(id, existingUser, updateUser);
+                commit(id, updatedEvent(updateUser), () -> userStore.put(updateUser));
+            }
+        } else {
+            // UserStore.update applies the function atomically per user, so concurrent
+            // updates of the same user always get distinct, increasing versions
+            User updated = userStore.update(id, existingUser -> {
+                prepareUpdate(id, existingUser, updateUser);
+                return updateUser;
+            });
+            if (updated == null) {
+                throw new RuntimeException("User not found: " + id);
+            }
+            commit(id, updatedEvent(updateUser), () -> { });
+        }
         
         log.info("User updated: {}", updateUser);
         return updateUser;
     }
     
     public void deleteUser(Long id) {
-        User user = userStore.remove(id);
-        if (user == null) {
-            throw new RuntimeException("User not found: " + id);
+        if (outbox != null) {
+            // the relay publishes the tombstone after the delete event
+            synchronized (lock(id)) {
+                User user = userStore.get(id);
+                if (user == null) {
+                    throw new RuntimeException("User not found: " + id);
+                }
+                commit(id, deletedEvent(user), () -> userStore.remove(id));
+            }
+        } else {
+            User user = userStore.remove(id);
+            if (user == null) {
+                throw new RuntimeException("User not found: " + id);
+            }
+            commit(id, deletedEvent(user), () -> { });
+            // lets compaction drop the user's history; same key, so it follows the delete event
+            userEventPublisher.publishTombstone(id);
         }
         
-        UserEvent event = UserEvent.builder()
-                .eventType("USER_DELETED")
-                .userId(id)
-                .user(user)
-                .timestamp(LocalDateTime.now())
-                .version(3L)
-                .build();
-        
-        publishUserEvent(event);
-        
         log.info("User deleted: {}", id);
     }
     
@@ -101,17 +162,118 @@ public class UserService {
         return user;
     }
     
-    public List<User> getAllUsers() {
-        return List.copyOf(userStore.values());
+    /**
+     * Up to {@code limit} users with an id greater than {@code afterId} (from the first user when null), in id order.
+     */
+    public List<User> getUsersPage(Long afterId, int limit) {
+        return userStore.page(afterId, limit);
+    }
+    
+    /**
+     * Visits every user in id order straight from the store, without collecting them first.
+     */
+    public void forEachUser(Consumer<User> action) {
+        userStore.forEach(action);
+    }
+    
+    private void initNewUser(Long id, User user, LocalDateTime now) {
+        user.setId(id);
+        user.setCreatedAt(now);
+        user.setUpdatedAt(now);
+        user.setVersion(1L);
     }
     
-    private void publishUserEvent(UserEvent event) {
-        try {
-            String eventJson = objectMapper.writeValueAsString(event);
-            kafkaTemplate.send(USER_EVENTS_TOPIC, event.getUserId().toString(), eventJson);
-            log.info("Published user event: {}", event.getEventType());
-        } catch (Exception e) {
-            log.error("Failed to publish user event", e);
+    private void prepareUpdate(Long id, User existingUser, User updateUser) {
+        updateUser.setId(id);
+        updateUser.setCreatedAt(existingUser.getCreatedAt());
+        updateUser.setUpdatedAt(LocalDateTime.now());
+        updateUser.setVersion(existingUser.getVersion() + 1);
+    }
+    
+    private UserEvent createdEvent(User user) {
+        return UserEvent.builder()
+                .eventType("USER_CREATED")
+                .userId(user.getId())
+                .user(user)
+                .timestamp(user.getCreatedAt())
+                .version(user.getVersion())
+                .build();
+    }
+    
+    private UserEvent updatedEvent(User user) {
+        return UserEvent.builder()
+                .eventType("USER_UPDATED")
+                .userId(user.getId())
+                .user(user)
+                .timestamp(LocalDateTime.now())
+                .version(user.getVersion())
+                .build();
+    }
+    
+    private UserEvent deletedEvent(User user) {
+        // a copy: the store may hand out the user it holds
+        User deleted = user.toBuilder().version(user.getVersion() + 1).build();
+        return UserEvent.builder()
+                .eventType("USER_DELETED")
+                .userId(deleted.getId())
+                .user(deleted)
+                .timestamp(LocalDateTime.now())
+                .version(deleted.getVersion())
+                .build();
+    }
+    
+    /**
+     * Hands on the event of a change: with the outbox the event is committed there, then {@code change}
+     * is applied to the store; otherwise {@code change} (already applied when empty) is followed by
+     * publishing the event once the store has it durable.
+     */
+    private void commit(long id, UserEvent event, Runnable change) {
+        if (outbox != null) {
+            // the relay publishes it
+            outbox.commit(List.of(event), () -> {
+                change.run();
+                return userStore.durable(id).join();
+            });
+            return;
         }
+        change.run();
+        userStore.durable(id).join();
+        // asynchronous: delivery failures are logged and counted by the publisher
+        userEventPublisher.publish(event);
+    }
+    
+    private Void storeDurably(List<User> users) {
+        users.forEach(userStore::put);
+        if (users.isEmpty()) {
+            return null;
+        }
+        // the store's log commits in order, so the last user's change covers the whole chunk
+        return userStore.durable(users.get(users.size() - 1).getId()).join();
+    }
+    
+    /**
+     * Applies a retained outbox event to the store unless the store already has that version or a newer
+     * one; returns the store's durable future, or null if the event was skipped.
+     */
+    private CompletableFuture<?> replay(UserEvent event) {
+        long id = event.getUserId();
+        User current = userStore.get(id);
+        long version = event.getVersion() != null ? event.getVersion() : 0L;
+        if (current != null && current.getVersion() >= version) {
+            return null;
+        }
+        if ("USER_DELETED".equals(event.getEventType())) {
+            if (current == null) {
+                return null;
+            }
+            userStore.remove(id);
+        } else {
+            userStore.put(event.getUser());
+        }
+        return userStore.durable(id);
+    }
+    
+    private Object lock(long id) {
+        return locks[(int) (id & (LOCK_STRIPES - 1))];
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,63 @@
+package com.example.userservice.service;
+
+import com.example.userservice.domain.User;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * The users of this instance by id. Iteration is in id order so the list endpoint can page with a
+ * keyset cursor. Implementations may hand out copies: a returned {@code User} is not a live view.
+ */
+public interface UserStore {
+
+    /**
+     * The user, or null if there is none with this id.
+     */
+    User get(long id);
+
+    /**
+     * Stores the user under its id, replacing any previous one.
+     */
+    void put(User user);
+
+    /**
+     * Replaces the user with {@code update(existing)} atomically with respect to other changes of the
+     * same user; returns the new user, or null (without calling {@code update}) if there is none.
+     */
+    User update(long id, UnaryOperator<User> update);
+
+    /**
+     * Removes the user; returns it, or null if there was none.
+     */
+    User remove(long id);
+
+    /**
+     * Up to {@code limit} users with an id greater than {@code afterId} (from the first user when null), in id order.
+     */
+    List<User> page(Long afterId, int limit);
+
+    /**
+     * Visits every user in id order, one at a time.
+     */
+    void forEach(Consumer<User> action);
+
+    int size();
+
+    /**
+     * Completes once the latest change of the user is durable in the store's own log, so an event about
+     * it is never published ahead of the store; already complete for stores kept in memory only.
+     */
+    default CompletableFuture<Void> durable(long id) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * The largest id the store can hold; {@link IdAllocator} does not lease ids past it.
+     */
+    default long maxId() {
+        return Long.MAX_VALUE;
+    }
+}
@@ -2,18 +2,17 @@ package com.example.userservice;
 
 import com.example.userservice.domain.User;
 import com.example.userservice.domain.UserEvent;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.userservice.serde.UserEventSerde;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.kafka.test.EmbeddedKafkaBroker;
 import org.springframework.kafka.test.context.EmbeddedKafka;
-import org.springframework.test.context.DynamicPropertyRegistry;
-import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.web.client.RestTemplate;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
@@ -24,7 +23,7 @@ import java.util.Properties;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
-@EmbeddedKafka(partitions = 1, topics = "user-events")
+@EmbeddedKafka(partitions = 1, topics = "user-events", bootstrapServersProperty = "spring.kafka.bootstrap-servers")
 @Testcontainers
 class UserServiceIntegrationTest {
 
@@ -34,13 +33,10 @@ class UserServiceIntegrationTest {
     @Autowired
     private EmbeddedKafkaBroker embeddedKafka;
 
-    private RestTemplate restTemplate = new RestTemplate();
-    private ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private UserEventSerde userEventSerde;
 
-    @DynamicPropertySource
-    static void kafkaProperties(DynamicPropertyRegistry registry) {
-        registry.add("spring.kafka.bootstrap-servers", () -> "localhost:9092");
-    }
+    private RestTemplate restTemplate = new RestTemplate();
 
     @Test
     void 사용자_생성시_Kafka_이벤트_발행() throws Exception {
@@ -60,13 +56,13 @@ class UserServiceIntegrationTest {
         props.put("bootstrap.servers", embeddedKafka.getBrokersAsString());
         props.put("group.id", "test-group");
         props.put("key.deserializer", StringDeserializer.class.getName());
-        props.put("value.deserializer", StringDeserializer.class.getName());
+        props.put("value.deserializer", ByteArrayDeserializer.class.getName());
         props.put("auto.offset.reset", "earliest");
 
-        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props)) {
+        try (KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(props)) {
             consumer.subscribe(Collections.singleton("user-events"));
-            ConsumerRecord<String, String> record = consumer.poll(Duration.ofSeconds(5)).iterator().next();
-            UserEvent event = objectMapper.readValue(record.value(), UserEvent.class);
+            ConsumerRecord<String, byte[]> record = consumer.poll(Duration.ofSeconds(10)).iterator().next();
+            UserEvent event = userEventSerde.deserializer().deserialize("user-events", record.value());
 
             assertThat(event.getUser().getName()).isEqualTo("테스트");
             assertThat(event.getEventType()).isEqualTo("USER_CREATED");
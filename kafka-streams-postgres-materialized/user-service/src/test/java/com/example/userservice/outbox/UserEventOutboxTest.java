@@ -0,0 +1,125 @@
+package com.example.userservice.outbox;
+
+import com.example.userservice.domain.User;
+import com.example.userservice.domain.UserEvent;
+import com.example.userservice.serde.UserEventSerde;
+import com.example.userservice.service.UserEventPublisher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserEventOutboxTest {
+
+    private final UserEventSerde serde = new UserEventSerde(new ObjectMapper().registerModule(new JavaTimeModule()), false);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void 재시작하면_세그먼트를_넘어_기록된_이벤트를_읽고_깨진_꼬리_레코드는_버린다() throws Exception {
+        // given
+        UserEventOutbox outbox = open();
+        for (long userId = 1; userId <= 100; userId++) {
+            outbox.append(event("USER_CREATED", userId, 1L)).join();
+        }
+        long end = outbox.durablePosition();
+        outbox.close();
+        // a record torn by a crash: header written, payload not
+        try (RandomAccessFile last = new RandomAccessFile(dir.resolve(String.format("%020d.log", (end / 4096) * 4096)).toFile(), "rw")) {
+            last.seek(end % 4096);
+            last.writeInt(100);
+        }
+
+        // when
+        UserEventOutbox reopened = open();
+        reopened.append(event("USER_UPDATED", 1L, 2L)).join();
+        UserEventOutbox.Batch batch = reopened.read(0, 1_000);
+
+        // then
+        assertThat(dir.toFile().list((file, name) -> name.endsWith(".log"))).hasSizeGreaterThan(1);
+        assertThat(batch.events()).hasSize(101);
+        assertThat(batch.events().get(99).getUserId()).isEqualTo(100L);
+        assertThat(batch.events().get(100).getVersion()).isEqualTo(2L);
+        assertThat(batch.nextPosition()).isEqualTo(reopened.durablePosition());
+        assertThat(meterRegistry.get("user.events.outbox.fsync").timer().count()).isPositive();
+        reopened.close();
+    }
+
+    @Test
+    void 릴레이는_배치가_모두_ack된_뒤에만_위치를_저장하고_삭제_뒤에_톰스톤을_보낸다() throws Exception {
+        // given
+        UserEventOutbox outbox = open();
+        outbox.append(event("USER_CREATED", 1L, 1L)).join();
+        outbox.append(event("USER_DELETED", 1L, 2L)).join();
+        UserEventPublisher publisher = mock(UserEventPublisher.class);
+        List<Long> published = new ArrayList<>();
+        AtomicBoolean brokerDown = new AtomicBoolean(true);
+        when(publisher.publish(any())).thenAnswer(invocation -> {
+            published.add(invocation.<UserEvent>getArgument(0).getVersion());
+            return brokerDown.get()
+                    ? CompletableFuture.failedFuture(new IllegalStateException("broker unavailable"))
+                    : CompletableFuture.completedFuture(null);
+        });
+        when(publisher.publishTombstone(1L)).thenReturn(CompletableFuture.completedFuture(null));
+        UserEventOutboxRelay relay = new UserEventOutboxRelay(outbox, publisher, meterRegistry, 100, Duration.ofMillis(10));
+
+        // when
+        assertThatThrownBy(relay::relayBatch).hasRootCauseMessage("broker unavailable");
+        brokerDown.set(false);
+        boolean relayed = relay.relayBatch();
+        UserEventOutboxRelay restarted = new UserEventOutboxRelay(outbox, publisher, new SimpleMeterRegistry(), 100, Duration.ofMillis(10));
+
+        // then
+        assertThat(relayed).isTrue();
+        assertThat(published).containsExactly(1L, 2L, 1L, 2L);
+        verify(publisher, times(2)).publishTombstone(1L);
+        assertThat(restarted.relayBatch()).isFalse();
+        assertThat(meterRegistry.get("user.events.outbox.pending").gauge().value()).isZero();
+        outbox.close();
+    }
+
+    private UserEventOutbox open() {
+        return new UserEventOutbox(dir, DataSize.ofKilobytes(4), true, serde, meterRegistry);
+    }
+
+    private static UserEvent event(String type, Long userId, Long version) {
+        LocalDateTime now = LocalDateTime.of(2025, 7, 17, 6, 3, 43);
+        return UserEvent.builder()
+                .eventType(type)
+                .userId(userId)
+                .user(User.builder()
+                        .id(userId)
+                        .name("사용자" + userId)
+                        .email("user" + userId + "@example.com")
+                        .department("개발팀")
+                        .status("ACTIVE")
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .version(version)
+                        .build())
+                .timestamp(now)
+                .version(version)
+                .build();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.userservice.persistence;
+
+import com.example.userservice.domain.User;
+import com.example.userservice.service.CompactUserStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersistentUserStoreTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 7, 17, 6, 3, 43, 123_456_789);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void 비정상_종료_후_스냅샷과_그_뒤의_로그로_복원한다() throws Exception {
+        // given
+        PersistentUserStore store = open();
+        for (long id = 1; id <= 250_000; id++) {
+            store.put(user(id, 1L));
+        }
+        store.snapshot();
+        store.update(1L, user -> user(1L, 2L));
+        store.remove(2L);
+        store.put(user(250_001L, 1L));
+        List<User> before = all(store);
+        // no close(): the process dies without the shutdown snapshot
+
+        // when
+        PersistentUserStore restarted = open();
+
+        // then
+        assertThat(snapshotParts()).hasSize(3);
+        assertThat(restarted.size()).isEqualTo(250_000);
+        assertThat(restarted.get(1L).getVersion()).isEqualTo(2L);
+        assertThat(restarted.get(2L)).isNull();
+        assertThat(restarted.get(250_001L)).isEqualTo(user(250_001L, 1L));
+        assertThat(all(restarted)).isEqualTo(before);
+        restarted.close();
+    }
+
+    @Test
+    void 정상_종료하면_마지막_스냅샷을_남기고_지난_로그를_지운다() throws Exception {
+        // given
+        PersistentUserStore store = open();
+        for (long id = 1; id <= 1_000; id++) {
+            store.put(user(id, 1L));
+        }
+        store.remove(500L);
+
+        // when
+        store.close();
+        PersistentUserStore restarted = open();
+
+        // then
+        assertThat(restarted.size()).isEqualTo(999);
+        assertThat(restarted.get(500L)).isNull();
+        assertThat(restarted.snapshot()).isFalse();
+        try (Stream<Path> segments = Files.list(dir.resolve("log"))) {
+            assertThat(segments).hasSize(1);
+        }
+        restarted.close();
+    }
+
+    private PersistentUserStore open() {
+        return new PersistentUserStore(new CompactUserStore(), dir, DataSize.ofMegabytes(1), true,
+                Duration.ofHours(1), new SimpleMeterRegistry());
+    }
+
+    private List<Path> snapshotParts() throws Exception {
+        try (Stream<Path> snapshots = Files.list(dir.resolve("snapshots"))) {
+            Path snapshot = snapshots.findFirst().orElseThrow();
+            try (Stream<Path> parts = Files.list(snapshot)) {
+                return parts.toList();
+            }
+        }
+    }
+
+    private static List<User> all(PersistentUserStore store) {
+        List<User> users = new ArrayList<>();
+        store.forEach(users::add);
+        return users;
+    }
+
+    private static User user(long id, long version) {
+        return User.builder()
+                .id(id)
+                .name("사용자" + id)
+                .email("user" + id + "@example.com")
+                .department("개발팀")
+                .status("ACTIVE")
+                .createdAt(NOW)
+                .updatedAt(NOW.plusSeconds(version))
+                .version(version)
+                .build();
+    }
+}
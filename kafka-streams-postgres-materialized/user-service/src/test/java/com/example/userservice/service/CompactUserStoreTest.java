@@ -0,0 +1,79 @@
+package com.example.userservice.service;
+
+import com.example.userservice.domain.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactUserStoreTest {
+
+    private final CompactUserStore store = new CompactUserStore();
+
+    @Test
+    void 저장한_사용자를_그대로_복원한다() {
+        // given
+        LocalDateTime createdAt = LocalDateTime.of(2025, 7, 17, 6, 3, 43, 123_456_789);
+        User user = User.builder()
+                .id(1L)
+                .name("홍길동")
+                .email("hong@example.com")
+                .department("개발팀")
+                .status("ACTIVE")
+                .createdAt(createdAt)
+                .updatedAt(createdAt.plusDays(1))
+                .version(3L)
+                .build();
+        User withNulls = User.builder().id(2L).name("").build();
+
+        // when
+        store.put(user);
+        store.put(withNulls);
+
+        // then
+        assertThat(store.get(1L)).isEqualTo(user).isNotSameAs(user);
+        assertThat(store.get(2L)).isEqualTo(withNulls);
+        assertThat(store.get(3L)).isNull();
+        assertThat(store.get(0L)).isNull();
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    @Test
+    void 세그먼트를_넘어_id_순서로_페이지를_나누고_삭제된_사용자는_건너뛴다() {
+        // given
+        for (long id = 1; id <= 10_000; id++) {
+            store.put(User.builder().id(id).name("사용자" + id).version(1L).build());
+        }
+        for (long id = 4_000; id <= 4_200; id++) {
+            store.remove(id);
+        }
+        // a user far beyond the others leaves the segments in between empty
+        store.put(User.builder().id(1_000_000L).name("사용자1000000").version(1L).build());
+
+        // when
+        User updated = store.update(5L, existing -> {
+            existing.setVersion(existing.getVersion() + 1);
+            return existing;
+        });
+        List<User> page = store.page(3_990L, 20);
+        List<User> tail = store.page(9_999L, 5);
+        List<Long> all = new ArrayList<>();
+        store.forEach(user -> all.add(user.getId()));
+
+        // then
+        assertThat(updated.getVersion()).isEqualTo(2L);
+        assertThat(store.get(5L).getVersion()).isEqualTo(2L);
+        assertThat(store.update(4_000L, existing -> existing)).isNull();
+        assertThat(page).extracting(User::getId)
+                .startsWith(3_991L, 3_992L)
+                .contains(3_999L, 4_201L)
+                .doesNotContain(4_000L)
+                .hasSize(20);
+        assertThat(tail).extracting(User::getId).containsExactly(10_000L, 1_000_000L);
+        assertThat(all).hasSize(10_000 - 201 + 1).isSorted();
+        assertThat(store.size()).isEqualTo(all.size());
+    }
+}
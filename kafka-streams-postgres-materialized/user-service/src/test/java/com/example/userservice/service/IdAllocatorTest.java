@@ -0,0 +1,99 @@
+package com.example.userservice.service;
+
+import com.example.userservice.domain.User;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdAllocatorTest {
+
+    @Test
+    void 여러_스레드가_동시에_받아도_id가_겹치지_않고_블록마다_한번만_임대한다() throws Exception {
+        // given
+        AtomicLong next = new AtomicLong(1);
+        AtomicInteger leases = new AtomicInteger();
+        IdAllocator allocator = new IdAllocator(size -> {
+            leases.incrementAndGet();
+            return next.getAndAdd(size);
+        }, 100);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // when
+        for (int thread = 0; thread < 8; thread++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1_000; i++) {
+                    ids.add(allocator.nextId());
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        // then
+        assertThat(ids).hasSize(8_000).allMatch(id -> id >= 1 && id <= 8_000);
+        assertThat(leases).hasValue(80);
+    }
+
+    @Test
+    void 저장소가_담을_수_없는_id의_블록은_거부한다() {
+        // given
+        CompactUserStore store = new CompactUserStore();
+        AtomicLong next = new AtomicLong(store.maxId() - 4095);
+        IdAllocator allocator = new IdAllocator(next::getAndAdd, 4096, store);
+        for (int i = 0; i < 4095; i++) {
+            allocator.nextId();
+        }
+
+        // when
+        long last = allocator.nextId();
+        store.put(User.builder().id(last).name("마지막").email("last@example.com").status("ACTIVE").build());
+
+        // then
+        assertThat(last).isEqualTo(1L << 31);
+        assertThat(store.get(last).getName()).isEqualTo("마지막");
+        assertThatThrownBy(allocator::nextId)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageStartingWith("User ids exhausted");
+    }
+
+    @Test
+    void 재시작하거나_다른_인스턴스가_임대해도_이전_블록을_다시_주지_않는다(@TempDir Path dir) {
+        // given
+        Path file = dir.resolve("ids/user-id-next");
+        MockProducer<String, String> producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+        KafkaIdBlockSource kafka = new KafkaIdBlockSource(producer, Duration.ofSeconds(1));
+
+        // when
+        long first = new IdAllocator(new FileIdBlockSource(file), 10).nextId();
+        IdAllocator restarted = new IdAllocator(new FileIdBlockSource(file), 10);
+        List<Long> kafkaBlocks = List.of(kafka.leaseBlock(4096), kafka.leaseBlock(4096), kafka.leaseBlock(4096));
+
+        // then
+        assertThat(first).isEqualTo(1L);
+        assertThat(restarted.nextId()).isEqualTo(11L);
+        assertThat(restarted.nextId()).isEqualTo(12L);
+        assertThat(kafkaBlocks).containsExactly(1L, 4097L, 8193L);
+        assertThat(producer.history()).hasSize(3).allMatch(claim -> claim.partition() == 0);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.userservice.service;
+
+import com.example.userservice.domain.UserEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserEventPublisherTest {
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, UserEvent> kafkaTemplate = mock(KafkaTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<CompletableFuture<SendResult<String, UserEvent>>> sends = new ArrayList<>();
+
+    @Test
+    void 전송중_이벤트가_한도에_도달하면_ack가_올때까지_호출자가_대기한다() throws Exception {
+        // given
+        stubPendingSends();
+        UserEventPublisher publisher = new UserEventPublisher(kafkaTemplate, meterRegistry, 1);
+        publisher.publish(event(1L));
+
+        // when
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> publisher.publish(event(2L)));
+        Thread.sleep(200);
+        boolean blockedBeforeAck = !second.isDone();
+        sends.get(0).complete(sendResult(event(1L)));
+        second.get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(blockedBeforeAck).isTrue();
+        assertThat(meterRegistry.get("user.events.publish.backpressure").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("user.events.publish").tag("result", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("user.events.publish.in-flight").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void 전송_실패는_메트릭으로_기록되고_permit이_반환된다() {
+        // given
+        stubPendingSends();
+        UserEventPublisher publisher = new UserEventPublisher(kafkaTemplate, meterRegistry, 1);
+
+        // when
+        CompletableFuture<SendResult<String, UserEvent>> result = publisher.publish(event(1L));
+        sends.get(0).completeExceptionally(new IllegalStateException("broker unavailable"));
+
+        // then
+        assertThat(result).isCompletedExceptionally();
+        assertThat(meterRegistry.get("user.events.publish")
+                .tag("result", "failure")
+                .tag("exception", "IllegalStateException")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("user.events.publish.in-flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void 톰스톤은_사용자_id_키에_null_값으로_전송된다() {
+        // given
+        ProducerRecord<String, UserEvent> tombstone = new ProducerRecord<>("user-events", "7", null);
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition("user-events", 0), 0, 0, 0, 0, 0);
+        when(kafkaTemplate.send(eq("user-events"), eq("7"), isNull()))
+                .thenReturn(CompletableFuture.completedFuture(new SendResult<>(tombstone, metadata)));
+        UserEventPublisher publisher = new UserEventPublisher(kafkaTemplate, meterRegistry, 1);
+
+        // when
+        CompletableFuture<SendResult<String, UserEvent>> result = publisher.publishTombstone(7L);
+
+        // then
+        assertThat(result).isCompleted();
+        assertThat(meterRegistry.get("user.events.publish")
+                .tag("type", "TOMBSTONE")
+                .tag("result", "success")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("user.events.publish.in-flight").gauge().value()).isZero();
+    }
+
+    private void stubPendingSends() {
+        when(kafkaTemplate.send(eq("user-events"), anyString(), any(UserEvent.class))).thenAnswer(invocation -> {
+            CompletableFuture<SendResult<String, UserEvent>> future = new CompletableFuture<>();
+            synchronized (sends) {
+                sends.add(future);
+            }
+            return future;
+        });
+    }
+
+    private SendResult<String, UserEvent> sendResult(UserEvent event) {
+        ProducerRecord<String, UserEvent> record = new ProducerRecord<>("user-events", event.getUserId().toString(), event);
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition("user-events", 0), 0, 0, 0, 0, 0);
+        return new SendResult<>(record, metadata);
+    }
+
+    private UserEvent event(Long userId) {
+        return UserEvent.builder()
+                .eventType("USER_CREATED")
+                .userId(userId)
+                .timestamp(LocalDateTime.now())
+                .version(1L)
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.userservice.service;
+
+import com.example.userservice.domain.User;
+import com.example.userservice.domain.UserEvent;
+import com.example.userservice.domain.UserImportSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.SendResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserImportServiceTest {
+
+    private final UserEventPublisher userEventPublisher = mock(UserEventPublisher.class);
+    private final UserService userService = new UserService(
+            userEventPublisher, new CompactUserStore(), new IdAllocator(new AtomicLong(1)::getAndAdd, 1000));
+    private final UserImportService userImportService = new UserImportService(
+            userService, userEventPublisher, new ObjectMapper().registerModule(new JavaTimeModule()), 2);
+
+    @Test
+    void NDJSON_스트림을_청크단위로_생성하고_잘못된_줄은_건너뛴다() throws Exception {
+        // given
+        when(userEventPublisher.publish(any(UserEvent.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+        String ndjson = """
+                {"name":"사용자1","email":"user1@example.com","department":"개발팀","status":"ACTIVE"}
+                {"name":"사용자2","email":"user2@example.com","department":"개발팀","status":"ACTIVE"}
+
+                {"name":"사용자3",
+                {"name":"사용자4","email":"user4@example.com","department":"기획팀","status":"ACTIVE"}
+                """;
+
+        // when
+        UserImportSummary summary = userImportService.importNdjson(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        // then
+        assertThat(summary.getReceived()).isEqualTo(4);
+        assertThat(summary.getCreated()).isEqualTo(3);
+        assertThat(summary.getInvalid()).isEqualTo(1);
+        assertThat(summary.getErrors()).singleElement().asString().startsWith("line 4:");
+
+        List<User> users = userService.getUsersPage(null, 10);
+        assertThat(users).extracting(User::getId).containsExactly(1L, 2L, 3L);
+        assertThat(users).extracting(User::getName).containsExactly("사용자1", "사용자2", "사용자4");
+        verify(userEventPublisher, times(3)).publish(any(UserEvent.class));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.userservice.service;
+
+import com.example.userservice.domain.User;
+import com.example.userservice.domain.UserEvent;
+import com.example.userservice.outbox.UserEventOutbox;
+import com.example.userservice.serde.UserEventSerde;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserServiceTest {
+
+    private final UserEventSerde serde = new UserEventSerde(new ObjectMapper().registerModule(new JavaTimeModule()), false);
+    private final UserEventPublisher userEventPublisher = mock(UserEventPublisher.class);
+    private final UserStore userStore = spy(new CompactUserStore());
+    private final UserService userService = new UserService(
+            userEventPublisher, userStore, new IdAllocator(new AtomicLong(1)::getAndAdd, 1000));
+
+    @Test
+    void 저장소_로그에_내구화되기_전에는_이벤트를_발행하지_않는다() {
+        // given
+        when(userEventPublisher.publish(any(UserEvent.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+        User user = userService.createUser(User.builder().name("사용자1").email("user1@example.com").status("ACTIVE").build());
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        doReturn(durable).when(userStore).durable(anyLong());
+
+        // when
+        CompletableFuture<User> update = CompletableFuture.supplyAsync(() -> userService.updateUser(user.getId(),
+                User.builder().name("사용자1").email("user1@example.com").department("기획팀").status("ACTIVE").build()));
+
+        // then
+        verify(userEventPublisher, after(200).never()).publish(updated());
+        assertThat(update).isNotDone();
+        durable.complete(null);
+        verify(userEventPublisher, timeout(5_000)).publish(updated());
+        assertThat(update.join().getVersion()).isEqualTo(2L);
+    }
+
+    @Test
+    void 아웃박스에만_커밋되고_저장소에_반영되지_않은_변경은_재시작할_때_반영한다(@TempDir Path dir) throws Exception {
+        // given
+        UserEventOutbox outbox = new UserEventOutbox(dir, DataSize.ofMegabytes(1), true, serde, new SimpleMeterRegistry());
+        UserService service = new UserService(userEventPublisher, new CompactUserStore(),
+                new IdAllocator(new AtomicLong(1)::getAndAdd, 1000), Optional.of(outbox));
+        User first = service.createUser(User.builder().name("사용자1").email("user1@example.com").status("ACTIVE").build());
+        User second = service.createUser(User.builder().name("사용자2").email("user2@example.com").status("ACTIVE").build());
+        // the process dies after each commit point, before the store has the change
+        User moved = first.toBuilder().department("기획팀").version(2L).build();
+        outbox.commit(List.of(event("USER_UPDATED", moved)), () -> null);
+        outbox.commit(List.of(event("USER_DELETED", second.toBuilder().version(2L).build())), () -> null);
+
+        // when: the store comes back with what it had made durable
+        UserStore restored = new CompactUserStore();
+        restored.put(first);
+        new UserService(userEventPublisher, restored, new IdAllocator(new AtomicLong(1001)::getAndAdd, 1000),
+                Optional.of(outbox));
+
+        // then
+        assertThat(restored.get(first.getId())).isEqualTo(moved);
+        assertThat(restored.get(second.getId())).isNull();
+        assertThat(restored.size()).isEqualTo(1);
+        verify(userEventPublisher, never()).publish(any(UserEvent.class));
+        outbox.close();
+    }
+
+    private static UserEvent event(String type, User user) {
+        return UserEvent.builder()
+                .eventType(type)
+                .userId(user.getId())
+                .user(user)
+                .timestamp(user.getUpdatedAt())
+                .version(user.getVersion())
+                .build();
+    }
+
+    private static UserEvent updated() {
+        return argThat(event -> "USER_UPDATED".equals(event.getEventType()));
+    }
+}